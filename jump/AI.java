@@ -1,8 +1,20 @@
 package jump61;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
-/** An automated Player.
+import static jump61.GameException.error;
+
+/** An automated Player.  While a human opponent is thinking, it ponders:
+ *  it searches the positions that can follow each of the opponent's
+ *  replies on a private copy of the board and caches the results, so
+ *  that when the opponent's move arrives it can often answer at once.
+ *  On board sizes with a Tablebase it plays perfectly without
+ *  searching.  Positions are evaluated with the weights in
+ *  Defaults.WEIGHTS_FILE, if there is one (see Evaluator).
  *  @author Brian Su
  */
 class AI extends Player {
@@ -16,102 +28,240 @@ class AI extends Player {
         _color = color;
     }
 
-    /** Initialize the board. */
+    /** Initialize the board, search features, and evaluator. */
     void initialize() {
         _board = _game.getBoard();
-        _numSquares = _game.getBoard().getSquares().length;
+        _features = _game.getSearchFeatures();
+        _evaluator = Evaluator.standard();
+        _configuration = " " + _features
+            + (_evaluator == null ? "" : _evaluator.signature());
     }
 
     @Override
     void makeMove() {
+        long start = System.nanoTime();
+        AISearchEvent event = new AISearchEvent();
+        event.begin();
+        stopPondering();
         initialize();
-        int[] move = findBestMove(_color, _board, 4, Integer.MAX_VALUE);
+        boolean large = _board.size() >= Defaults.LARGE_BOARD;
+        long budget = _game.getSearchBudget();
+        Clock clock = _game.getClock();
+        if (clock != null) {
+            long allotted =
+                TimeManager.allocate(_board, _color,
+                                     clock.remainingMillis(_color),
+                                     clock.incrementMillis());
+            budget = budget < 0 ? allotted : Math.min(budget, allotted);
+        }
+        if (large && budget < 0) {
+            budget = Defaults.LARGE_BOARD_MOVE_MILLIS;
+        }
+        Tablebase tablebase = Tablebase.forSize(_board.size());
+        int[] move = tablebase == null ? null : tablebase.bestMove(_board);
+        if (move == null && !large) {
+            move = cached(_board);
+        }
+        boolean cached = move != null;
+        _searchDepth = 0;
+        _searchNodes = 0;
+        if (move == null) {
+            SearchScheduler.Job<int[]> job;
+            try {
+                job = _game.getScheduler().submit(_game, budget, this::search);
+            } catch (IllegalStateException excp) {
+                throw error("AI cannot search: %s", excp.getMessage());
+            }
+            try {
+                move = job.get();
+            } catch (CancellationException excp) {
+                throw error("AI search cancelled");
+            } catch (InterruptedException excp) {
+                job.cancel();
+                Thread.currentThread().interrupt();
+                throw error("AI search interrupted");
+            } catch (ExecutionException excp) {
+                throw error("AI search failed: %s", excp.getCause());
+            }
+        }
+        Metrics.AI_THINK.recordSince(start);
         _game.moveAI(move[1]);
+        if (event.shouldCommit()) {
+            event.player = _color.toString();
+            event.depth = _searchDepth;
+            event.nodes = _searchNodes;
+            event.score = move[0];
+            event.cached = cached;
+            event.commit();
+        }
+        if (!large && tablebase == null && _board.getWinner() == null
+            && _game.currentPlayer() instanceof HumanPlayer) {
+            startPondering();
+        }
     }
 
-    /** Returns an array containg the move value and move of the best move for
-     * player WHO in board START with DEPTH and CUTOFF. */
-    private int[] findBestMove(Color who, Board start,
-            int depth, double cutoff) {
-        ArrayList<Integer> moves = generateMoves(who);
-        if (_board.getWinner() == who) {
-            return new int[] {Integer.MAX_VALUE, 4};
-        } else if (_board.getWinner() == who.opposite()) {
-            return new int[] {-Integer.MAX_VALUE + 1, 8};
-        } else if (depth == 0) {
-            int[] gbm = guessBestMove(who, moves);
-            return gbm;
+    /** Search for my best move on a fork of the game board under the
+     *  control of JOB, so that the search's trial moves are not seen by
+     *  anything watching the game board, splitting the root moves among
+     *  the game's workers if it has any. */
+    private int[] search(SearchScheduler.Job<int[]> job) {
+        DistributedSearch workers = _game.getWorkers();
+        if (workers != null) {
+            int[] result = workers.bestMove(_board, _color, DEPTH, _features,
+                                            job);
+            _searchDepth = workers.completedDepth();
+            _searchNodes = workers.nodes();
+            if (_searchDepth == DEPTH && _board.size() < Defaults.LARGE_BOARD) {
+                store(_board, result);
+            }
+            return result;
         }
+        Search search = new Search(_board.fork(), job);
+        search.setFeatures(_features);
+        search.setEvaluator(_evaluator);
+        int[] result = search.bestMove(_color, DEPTH);
+        _searchDepth = search.completedDepth();
+        _searchNodes = search.nodes();
+        if (search.completedDepth() == DEPTH
+            && _board.size() < Defaults.LARGE_BOARD) {
+            store(_board, result);
+        }
+        return result;
+    }
 
-        int[] bestSoFar = new int[] {-Integer.MAX_VALUE, -1};
-        for (int move : moves) {
-            _board.addSpot(who, move);
-            int[] moveInfo = {staticEval(who), move};
-            int[] response = findBestMove(who.opposite(),
-                    _board, depth - 1, -bestSoFar[0]);
-            _board.undo();
-            if (-response[0] > bestSoFar[0]) {
-                moveInfo[0] = -response[0];
-                bestSoFar = moveInfo;
-                if (moveInfo[0] >= cutoff) {
-                    break;
-                }
-            }
+    /** Start searching, on a copy of the current board, the position
+     *  after each of my opponent's possible replies, beginning with the
+     *  one I predict, unless the scheduler has been shut down.  This is a
+     *  background search, which gives way to other games' moves. */
+    private void startPondering() {
+        Board copy = _board.fork();
+        try {
+            _ponder = _game.getScheduler().submitBackground(
+                _game, -1, job -> ponder(copy, job));
+        } catch (IllegalStateException excp) {
+            _ponder = null;
         }
-        return bestSoFar;
     }
 
-    /** Returns heuristic value of board B for player P.
-     *  Higher is better for P. */
-    private int staticEval(Color p) {
-        if (_board.getWinner() != null) {
-            if (_board.getWinner() == p) {
-                return Integer.MAX_VALUE;
-            } else {
-                return -Integer.MAX_VALUE;
+    /** Wait for any pondering in progress to stop. */
+    private void stopPondering() {
+        if (_ponder != null) {
+            _ponder.cancel();
+            try {
+                _ponder.get();
+            } catch (CancellationException | ExecutionException excp) {
+                /* Results, if any, are already in the cache. */
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
             }
-        } else {
-            return _board.numOfColor(p) - _board.numOfColor(p.opposite());
+            _ponder = null;
         }
     }
 
-    /** Returns a list of all possible moves for player P in the current
-     *  board. */
-    private ArrayList<Integer> generateMoves(Color p) {
-        ArrayList<Integer> possibleMoves = new ArrayList<Integer>();
-        for (int i = 0; i < _numSquares; i++) {
-            if (_board.isLegal(p, i)) {
-                possibleMoves.add(i);
+    /** Ponder the replies to the position on BOARD under the control of
+     *  JOB, caching my best move after each.  BOARD is mine to modify.
+     *  Returns null. */
+    private int[] ponder(Board board, SearchScheduler.Job<int[]> job) {
+        Color opponent = _color.opposite();
+        Search replies = new Search(board, job);
+        ArrayList<Integer> moves = replies.generateMoves(opponent);
+        if (moves.isEmpty()) {
+            return null;
+        }
+        Integer predicted = replies.guessBestMove(opponent, moves)[1];
+        moves.remove(predicted);
+        moves.add(0, predicted);
+        for (int reply : moves) {
+            if (job.stopped()) {
+                break;
+            }
+            board.addSpot(opponent, reply);
+            try {
+                if (board.getWinner() == null && cached(board) == null) {
+                    Search search = new Search(board, job);
+                    search.setFeatures(_features);
+                    search.setEvaluator(_evaluator);
+                    int[] result = search.bestMove(_color, DEPTH);
+                    if (search.completedDepth() == DEPTH) {
+                        store(board, result);
+                    }
+                }
+            } finally {
+                board.undo();
             }
         }
-        return possibleMoves;
+        return null;
     }
 
-    /** Returns the best move out of the possible MOVES for P. */
-    private int[] guessBestMove(Color p, ArrayList<Integer> moves) {
-        int move, moveValue;
-        move = moves.get(0);
-        moveValue = -Integer.MAX_VALUE;
-        for (int aMove : moves) {
-            _board.addSpot(p, aMove);
-            int aMoveValue = staticEval(p);
-            if (aMoveValue > moveValue) {
-                move = aMove;
-                moveValue = aMoveValue;
+    /** Returns the cached value and best move for the position on BOARD
+     *  or any position equivalent to it under symmetry, found with my
+     *  current search features and evaluator, looking in the shared
+     *  cache, if any, after my own, or null if there is none. */
+    private int[] cached(Board board) {
+        int t = board.canonicalTransform();
+        String key = Symmetry.key(board, t) + _configuration;
+        int[] entry = _cache.get(key);
+        SharedSearchCache shared = SharedSearchCache.shared();
+        if (entry == null && shared != null) {
+            entry = shared.get(key, DEPTH);
+            if (entry != null) {
+                _cache.put(key, entry);
             }
-            _board.undo();
         }
-        return new int[] {moveValue, move};
+        if (entry == null) {
+            return null;
+        }
+        int[] back = Symmetry.transforms(board.size())[Symmetry.inverse(t)];
+        int move = back[entry[1]];
+        if (!board.isLegal(board.whoseMove(), move)) {
+            return null;
+        }
+        return new int[] { entry[0], move };
     }
 
+    /** Cache RESULT, the value and best move for the position on BOARD,
+     *  under BOARD's canonical key and my current search features and
+     *  evaluator, in my cache and the shared cache, if any. */
+    private void store(Board board, int[] result) {
+        int t = board.canonicalTransform();
+        int[] map = Symmetry.transforms(board.size())[t];
+        String key = Symmetry.key(board, t) + _configuration;
+        _cache.put(key, new int[] { result[0], map[result[1]] });
+        SharedSearchCache shared = SharedSearchCache.shared();
+        if (shared != null) {
+            shared.put(key, result[0], map[result[1]], DEPTH);
+        }
+    }
+
+    /** Maximum search depth in plies. */
+    static final int DEPTH = 4;
+
+    /** Maximum number of cached search results. */
+    private static final int CACHE_SIZE = 1 << 14;
+
+    /** Results of completed searches, by position. */
+    private final SearchCache _cache = new SearchCache(CACHE_SIZE);
+    /** Depth completed by the last search for makeMove, which reads it
+     *  once the search's job is done. */
+    private int _searchDepth;
+    /** Positions visited by the last search for makeMove. */
+    private long _searchNodes;
+    /** Search enhancements to use, as of the last call to
+     *  initialize. */
+    private Set<Search.Feature> _features =
+        EnumSet.noneOf(Search.Feature.class);
+    /** Evaluator to search with, as of the last call to initialize, or
+     *  null for the default. */
+    private Evaluator _evaluator;
+    /** Suffix of cache keys distinguishing results found with
+     *  _features and _evaluator from those found with others. */
+    private String _configuration = "";
+    /** Pondering in progress, if any. */
+    private SearchScheduler.Job<int[]> _ponder;
     /** Game. */
     private Game _game;
     /** Board. */
     private Board _board;
     /** Color. */
     private Color _color;
-    /** Number of squares. */
-    private int _numSquares;
 }
-
-
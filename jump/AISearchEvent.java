@@ -0,0 +1,41 @@
+package jump61;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight Recorder event for one move chosen by an AI player, from the
+ *  start of AI.makeMove until the move is made.
+ *  @author Brian Su
+ */
+@Name("jump61.AISearch")
+@Label("AI Search")
+@Category("Jump61")
+@Description("An AI player choosing and making a move")
+@StackTrace(false)
+class AISearchEvent extends jdk.jfr.Event {
+
+    /** Color of the player, as a string. */
+    @Label("Player")
+    String player;
+
+    /** Deepest search completed, or 0 if the move came from the cache or
+     *  no depth was completed. */
+    @Label("Depth")
+    int depth;
+
+    /** Positions searched. */
+    @Label("Nodes")
+    long nodes;
+
+    /** Score of the chosen move for the player. */
+    @Label("Score")
+    int score;
+
+    /** True iff the move came from the AI's cache of earlier and pondered
+     *  searches or from a tablebase. */
+    @Label("Cached")
+    boolean cached;
+}
@@ -0,0 +1,185 @@
+package jump61;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/** Scores every legal move in a position, each with its principal
+ *  variation.  Each move is searched as a separate job on a
+ *  SearchScheduler, using its own fork of the position, so the moves are
+ *  searched in parallel and the board analyzed is never touched.
+ *  @author Brian Su
+ */
+class Analysis {
+
+    /** The score of one move. */
+    static final class Line implements Comparable<Line> {
+
+        /** A line for MOVE with value SCORE for the player making it, found
+         *  by a search of DEPTH plies, with principal variation PV. */
+        Line(int move, int score, int depth, int[] pv) {
+            _move = move;
+            _score = score;
+            _depth = depth;
+            _pv = pv;
+        }
+
+        /** Returns the square played. */
+        int move() {
+            return _move;
+        }
+
+        /** Returns the value of the move for the player making it. */
+        int score() {
+            return _score;
+        }
+
+        /** Returns the depth searched, counting the move itself. */
+        int depth() {
+            return _depth;
+        }
+
+        /** Returns the principal variation, starting with move(). */
+        int[] pv() {
+            return _pv;
+        }
+
+        /** Orders lines best first, then by square number. */
+        @Override
+        public int compareTo(Line other) {
+            if (_score != other._score) {
+                return _score > other._score ? -1 : 1;
+            }
+            return Integer.compare(_move, other._move);
+        }
+
+        /** Square played. */
+        private final int _move;
+        /** Value of the move for the player making it. */
+        private final int _score;
+        /** Depth searched. */
+        private final int _depth;
+        /** Principal variation. */
+        private final int[] _pv;
+    }
+
+    /** An analysis of the position on BOARD whose searches run on
+     *  SCHEDULER on behalf of OWNER. */
+    Analysis(Board board, SearchScheduler scheduler, Object owner) {
+        _board = board;
+        _scheduler = scheduler;
+        _owner = owner;
+    }
+
+    /** Score each legal move for the player to move, searching DEPTH plies
+     *  including the move.  If MILLIS is not negative, instead search
+     *  all moves to depth 1, then 2, and so on up to DEPTH, for about
+     *  MILLIS milliseconds in all, keeping each move's deepest completed
+     *  result.  Calls FOUND with each line as it is finished.  Returns the
+     *  final line for each move, best first.  Moves whose searches were
+     *  cancelled are left out. */
+    List<Line> run(int depth, long millis, Consumer<Line> found)
+        throws InterruptedException {
+        Color who = _board.whoseMove();
+        ArrayList<Integer> moves = new Search(_board, null).generateMoves(who);
+        Line[] lines = new Line[_board.size() * _board.size()];
+        if (millis < 0) {
+            round(who, moves, depth, -1, lines, found);
+        } else {
+            long deadline = System.nanoTime() + millis * 1_000_000L;
+            for (int d = 1; d <= depth; d += 1) {
+                long left = (deadline - System.nanoTime()) / 1_000_000L;
+                if (left <= 0 || round(who, moves, d, left, lines, found)
+                                 < moves.size()) {
+                    break;
+                }
+            }
+        }
+        List<Line> result = new ArrayList<>();
+        for (Line line : lines) {
+            if (line != null) {
+                result.add(line);
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /** Search each of MOVES for WHO to DEPTH plies in parallel, each within
+     *  MILLIS milliseconds (no limit if negative), recording each
+     *  completed search in LINES (indexed by move) and passing it to
+     *  FOUND as it arrives.  Returns the number of searches completed. */
+    private int round(Color who, List<Integer> moves, int depth, long millis,
+                      Line[] lines, Consumer<Line> found)
+        throws InterruptedException {
+        LinkedBlockingQueue<Line> finished = new LinkedBlockingQueue<>();
+        List<SearchScheduler.Job<Line>> jobs = new ArrayList<>();
+        for (int move : moves) {
+            MutableBoard fork = _board.fork();
+            jobs.add(_scheduler.submit(_owner, millis, job -> {
+                Line line = score(fork, who, move, depth, job);
+                if (line != null) {
+                    finished.add(line);
+                }
+                return line;
+            }));
+        }
+        int completed = 0;
+        while (completed < moves.size()) {
+            Line line = finished.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (line != null) {
+                completed += 1;
+                lines[line.move()] = line;
+                found.accept(line);
+            } else if (allDone(jobs) && finished.isEmpty()) {
+                break;
+            }
+        }
+        return completed;
+    }
+
+    /** Returns the line for WHO playing MOVE on BOARD (which I may
+     *  modify), searched to DEPTH plies under the control of JOB, or null
+     *  if JOB stopped the search before it reached DEPTH. */
+    private static Line score(MutableBoard board, Color who, int move,
+                              int depth, SearchScheduler.Job<Line> job) {
+        board.addSpot(who, move);
+        if (board.getWinner() == who) {
+            return new Line(move, Integer.MAX_VALUE, depth, new int[] { move });
+        }
+        Search search = new Search(board, job);
+        search.setRootSymmetry(false);
+        int[] reply = search.bestMove(who.opposite(), depth - 1);
+        if (job.cancelled() || search.completedDepth() < depth - 1) {
+            return null;
+        }
+        int[] rest = search.principalVariation();
+        int[] pv = new int[rest.length + 1];
+        pv[0] = move;
+        System.arraycopy(rest, 0, pv, 1, rest.length);
+        return new Line(move, -reply[0], depth, pv);
+    }
+
+    /** Returns true iff all JOBS are done. */
+    private static boolean allDone(List<SearchScheduler.Job<Line>> jobs) {
+        for (SearchScheduler.Job<Line> job : jobs) {
+            if (!job.done()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Milliseconds between checks for cancelled jobs. */
+    private static final long POLL_MILLIS = 100;
+
+    /** Position analyzed. */
+    private final Board _board;
+    /** Where the searches run. */
+    private final SearchScheduler _scheduler;
+    /** Owner of the searches. */
+    private final Object _owner;
+}
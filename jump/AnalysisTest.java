@@ -0,0 +1,58 @@
+package jump61;
+
+import static jump61.Color.*;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of Analysis.
+ *  @author Brian Su
+ */
+public class AnalysisTest {
+
+    @Test
+    public void testAllMovesScored() throws InterruptedException {
+        MutableBoard B = new MutableBoard(4);
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 4, 4);
+        String before = B.toString();
+        SearchScheduler S = new SearchScheduler(2);
+        List<Analysis.Line> streamed = new ArrayList<>();
+        List<Analysis.Line> lines =
+            new Analysis(B, S, this).run(2, -1, streamed::add);
+        assertEquals(15, lines.size());
+        assertEquals(15, streamed.size());
+        for (int i = 1; i < lines.size(); i += 1) {
+            assertTrue("not sorted",
+                       lines.get(i - 1).score() >= lines.get(i).score());
+        }
+        for (Analysis.Line line : lines) {
+            assertEquals(2, line.depth());
+            assertEquals(line.move(), line.pv()[0]);
+        }
+        assertEquals(before, B.toString());
+        assertEquals(2, B.numMoves());
+        B.undo();
+        assertEquals(1, B.numMoves());
+        assertEquals(WHITE, B.color(4, 4));
+        S.shutdown();
+    }
+
+    @Test
+    public void testBadTimeLimit() {
+        StringWriter output = new StringWriter();
+        Game game = new Game(new StringReader("size 4\nanalyze -5ms\n"
+                                              + "analyze 0ms\nquit\n"),
+                             new StringWriter(), output, output);
+        game.play();
+        String text = output.toString();
+        assertTrue(text, text.contains("time must be positive: -5ms"));
+        assertTrue(text, text.contains("time must be positive: 0ms"));
+        assertFalse(text, text.contains("Scored"));
+    }
+}
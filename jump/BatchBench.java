@@ -0,0 +1,98 @@
+package jump61;
+
+import java.util.SplittableRandom;
+
+import static jump61.Color.*;
+
+/** Measures the rate of random games played by a BatchSimulator, with
+ *  and without the Vector API, against the same number of independent
+ *  MutableBoards stepped one at a time.  Run with "--add-modules
+ *  jdk.incubator.vector" to measure the vector version.
+ *  Usage: java jump61.BatchBench [SIZE [LANES [GAMES [WAVES [SEED]]]]]
+ *  where WAVES is the most waves a step resolves together.
+ *  @author Brian Su
+ */
+public class BatchBench {
+
+    /** Run the benchmark as described by ARGS. */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int lanes = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        long games = args.length > 2 ? Long.parseLong(args[2]) : 200_000;
+        int waves = args.length > 3 ? Integer.parseInt(args[3])
+            : BatchSimulator.DEFAULT_MAX_WAVES;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 61;
+
+        System.out.printf("%dx%d random games, %d lanes, vector API %s%n",
+                          size, size, lanes,
+                          BatchSimulator.VECTOR_AVAILABLE ? "present"
+                          : "absent");
+        for (int round = 0; round < 2; round += 1) {
+            long count = round == 0 ? games / 10 : games;
+            report(round, "MutableBoard", count,
+                   boards(size, lanes, count, new SplittableRandom(seed)));
+            report(round, "batch (scalar)", count,
+                   batch(new BatchSimulator(size, lanes, false), waves,
+                         count, new SplittableRandom(seed)));
+            if (BatchSimulator.VECTOR_AVAILABLE) {
+                report(round, "batch (vector)", count,
+                       batch(new BatchSimulator(size, lanes, true), waves,
+                             count, new SplittableRandom(seed)));
+            }
+        }
+    }
+
+    /** Print the rate of COUNT games that took NANOS nanoseconds by the
+     *  method called NAME, unless ROUND is the warm-up round 0. */
+    private static void report(int round, String name, long count,
+                               long nanos) {
+        if (round > 0) {
+            System.out.printf("%-16s %12.0f games/s%n", name,
+                              count / (nanos * 1e-9));
+        }
+    }
+
+    /** Play GAMES random games chosen with RANDOM on LANES MutableBoards
+     *  of size N, making one move on each in turn.  Returns the elapsed
+     *  nanoseconds. */
+    private static long boards(int n, int lanes, long games,
+                               SplittableRandom random) {
+        MutableBoard[] boards = new MutableBoard[lanes];
+        for (int lane = 0; lane < lanes; lane += 1) {
+            boards[lane] = new MutableBoard(n);
+            boards[lane].setUndoLimit(UNDO_LIMIT);
+        }
+        int area = n * n;
+        long start = System.nanoTime(), finished = 0;
+        while (finished < games) {
+            for (MutableBoard board : boards) {
+                if (board.getWinner() != null) {
+                    finished += 1;
+                    board.clear(n);
+                }
+                Color me = board.whoseMove();
+                int sq;
+                do {
+                    sq = random.nextInt(area);
+                } while (board.color(sq) == me.opposite());
+                board.addSpot(me, sq);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** Play GAMES random games chosen with RANDOM on SIM, resolving at
+     *  most WAVES waves per step together.  Returns the elapsed
+     *  nanoseconds. */
+    private static long batch(BatchSimulator sim, int waves, long games,
+                              SplittableRandom random) {
+        sim.setMaxWaves(waves);
+        long start = System.nanoTime();
+        sim.playOut(games, random);
+        return System.nanoTime() - start;
+    }
+
+    /** Undo history kept by each MutableBoard, which has no use for
+     *  it. */
+    private static final int UNDO_LIMIT = 1;
+}
@@ -0,0 +1,423 @@
+package jump61;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import static jump61.Color.*;
+
+/** A set of independent Jump61 boards of one size (the lanes) stored in
+ *  structure-of-arrays form, for generating many games at once.  Each
+ *  call of step makes at most one move on every lane and then resolves
+ *  all the resulting jumps together in synchronized waves: in each wave,
+ *  every overfull square on every lane jumps at once.
+ *
+ *  Waves give the same result as MutableBoard's one-at-a-time jumps,
+ *  since the final contents of a cascade do not depend on the order of
+ *  its jumps, unless the cascade wins the game, in which case
+ *  MutableBoard stops jumping part-way.  A lane that is won during a
+ *  step is therefore restored and its move replayed in MutableBoard's
+ *  order, so every lane always matches a MutableBoard given the same
+ *  moves.
+ *
+ *  Waves use jdk.incubator.vector (see VectorWaves) when that module is
+ *  present, with one vector lane per board, and otherwise plain loops.
+ *  @author Brian Su
+ */
+class BatchSimulator {
+
+    /** True iff the incubating Vector API is available. */
+    static final boolean VECTOR_AVAILABLE =
+        ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    /** LANES empty N x N boards, resolving jumps with the Vector API iff
+     *  VECTOR and it is available.  The number of lanes is rounded up to
+     *  a multiple of the vector length. */
+    BatchSimulator(int n, int lanes, boolean vector) {
+        _vector = vector && VECTOR_AVAILABLE;
+        int step = _vector ? VectorWaves.length() : 1;
+        _n = n;
+        _area = n * n;
+        _lanes = (lanes + step - 1) / step * step;
+        int size = _area * _lanes;
+        _spots = new int[size];
+        _owner = new int[size];
+        _fire = new int[size + _lanes];
+        _nextFire = new int[size + _lanes];
+        _savedSpots = new int[size];
+        _savedOwner = new int[size];
+        _cap = new int[_area];
+        _nbrs = new int[4 * _area];
+        for (int sq = 0; sq < _area; sq += 1) {
+            int r = sq / n, c = sq % n;
+            _cap[sq] = 4 - (r == 0 || r == n - 1 ? 1 : 0)
+                - (c == 0 || c == n - 1 ? 1 : 0);
+            _nbrs[4 * sq] = c < n - 1 ? sq + 1 : -1;
+            _nbrs[4 * sq + 1] = c > 0 ? sq - 1 : -1;
+            _nbrs[4 * sq + 2] = r < n - 1 ? sq + n : -1;
+            _nbrs[4 * sq + 3] = r > 0 ? sq - n : -1;
+        }
+        _waveNbrs = new int[4 * _area];
+        for (int i = 0; i < _waveNbrs.length; i += 1) {
+            _waveNbrs[i] = _nbrs[i] < 0 ? _area : _nbrs[i];
+        }
+        _player = new int[_lanes];
+        _active = new int[_lanes];
+        _converted = new int[_lanes];
+        _fromOpponent = new int[_lanes];
+        _moves = new int[_lanes];
+        _red = new int[_lanes];
+        _blue = new int[_lanes];
+        _stack = new int[_area + 1];
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            reset(lane);
+        }
+    }
+
+    /** Returns the number of lanes. */
+    int lanes() {
+        return _lanes;
+    }
+
+    /** Returns the size of a side. */
+    int size() {
+        return _n;
+    }
+
+    /** Returns true iff waves are resolved with the Vector API. */
+    boolean vectorized() {
+        return _vector;
+    }
+
+    /** Clear LANE to an empty board with no moves made. */
+    void reset(int lane) {
+        for (int i = lane; i < _spots.length; i += _lanes) {
+            _spots[i] = 0;
+            _owner[i] = 0;
+        }
+        _moves[lane] = _red[lane] = _blue[lane] = 0;
+    }
+
+    /** Returns the number of spots on square SQ of LANE. */
+    int spots(int lane, int sq) {
+        return _spots[sq * _lanes + lane];
+    }
+
+    /** Returns the color of square SQ of LANE. */
+    Color color(int lane, int sq) {
+        return COLORS[_owner[sq * _lanes + lane]];
+    }
+
+    /** Returns the number of moves made on LANE. */
+    int numMoves(int lane) {
+        return _moves[lane];
+    }
+
+    /** Returns the player to move on LANE. */
+    Color whoseMove(int lane) {
+        return (_moves[lane] & 1) == 0 ? RED : BLUE;
+    }
+
+    /** Returns the winner on LANE, or null if its game is not over. */
+    Color winner(int lane) {
+        if (_red[lane] == _area) {
+            return RED;
+        } else if (_blue[lane] == _area) {
+            return BLUE;
+        }
+        return null;
+    }
+
+    /** Returns true iff the player to move on LANE may play square SQ. */
+    boolean isLegal(int lane, int sq) {
+        return _owner[sq * _lanes + lane] != 3 - player(lane);
+    }
+
+    /** Returns a square chosen uniformly with RANDOM from those where the
+     *  player to move on LANE may play.  Requires that its game not be
+     *  over. */
+    int randomMove(int lane, RandomGenerator random) {
+        int them = 3 - player(lane);
+        int legal = _area - (them == 1 ? _red[lane] : _blue[lane]);
+        if (4 * legal >= _area) {
+            while (true) {
+                int sq = random.nextInt(_area);
+                if (_owner[sq * _lanes + lane] != them) {
+                    return sq;
+                }
+            }
+        }
+        int k = random.nextInt(legal);
+        for (int sq = 0; ; sq += 1) {
+            if (_owner[sq * _lanes + lane] != them && k-- == 0) {
+                return sq;
+            }
+        }
+    }
+
+    /** Make move MOVES[L] on each lane L, skipping lanes where it is
+     *  negative, and resolve all jumps.  Each move must be legal. */
+    void step(int[] moves) {
+        System.arraycopy(_spots, 0, _savedSpots, 0, _spots.length);
+        System.arraycopy(_owner, 0, _savedOwner, 0, _owner.length);
+        boolean fired = false;
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            _active[lane] = 0;
+            int sq = lane < moves.length ? moves[lane] : -1;
+            if (sq < 0) {
+                continue;
+            }
+            int me = player(lane);
+            _player[lane] = me;
+            _moves[lane] += 1;
+            int i = sq * _lanes + lane;
+            _spots[i] += 1;
+            convert(lane, _owner[i], me);
+            _owner[i] = me;
+            _active[lane] = won(lane, me) ? 0 : 1;
+            if (_active[lane] != 0 && _spots[i] > _cap[sq]) {
+                _fire[i] = 1;
+                fired = true;
+            }
+        }
+        for (int w = 0; fired && w < _maxWaves; w += 1) {
+            Arrays.fill(_converted, 0);
+            Arrays.fill(_fromOpponent, 0);
+            if (_vector) {
+                fired = VectorWaves.wave(_lanes, _area, _cap, _waveNbrs,
+                                         _spots,
+                                         _owner, _fire, _nextFire, _player,
+                                         _active, _converted, _fromOpponent);
+            } else {
+                fired = wave();
+            }
+            int[] fire = _fire;
+            _fire = _nextFire;
+            _nextFire = fire;
+            for (int lane = 0; lane < _lanes; lane += 1) {
+                if (_active[lane] != 0) {
+                    int me = _player[lane];
+                    addCount(lane, me, _converted[lane]);
+                    addCount(lane, 3 - me, -_fromOpponent[lane]);
+                    if (won(lane, me)) {
+                        _active[lane] = 0;
+                    }
+                }
+            }
+        }
+        for (int lane = 0; lane < moves.length && lane < _lanes; lane += 1) {
+            if (moves[lane] >= 0
+                && (winner(lane) != null || fired && unstable(lane))) {
+                replay(lane, moves[lane]);
+            }
+        }
+        if (fired) {
+            Arrays.fill(_fire, 0);
+        }
+    }
+
+    /** Resolve at most WAVES waves per step, finishing the cascades that
+     *  need more one lane at a time.  A few long cascades would
+     *  otherwise keep every lane waiting. */
+    void setMaxWaves(int waves) {
+        _maxWaves = waves;
+    }
+
+    /** Returns true iff LANE has a square due to jump in the next
+     *  wave. */
+    private boolean unstable(int lane) {
+        for (int i = lane; i < _fire.length; i += _lanes) {
+            if (_fire[i] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Play random games chosen with RANDOM on all lanes, starting each
+     *  lane afresh as soon as its game ends, until GAMES games have
+     *  finished.  Returns the number of red wins. */
+    long playOut(long games, RandomGenerator random) {
+        int[] moves = new int[_lanes];
+        long finished = 0, redWins = 0;
+        while (finished < games) {
+            for (int lane = 0; lane < _lanes; lane += 1) {
+                Color winner = winner(lane);
+                if (winner != null) {
+                    finished += 1;
+                    if (winner == RED) {
+                        redWins += 1;
+                    }
+                    reset(lane);
+                }
+                moves[lane] = randomMove(lane, random);
+            }
+            step(moves);
+        }
+        return redWins;
+    }
+
+    /** One scalar wave from _fire into _nextFire, as for
+     *  VectorWaves.wave. */
+    private boolean wave() {
+        int lanes = _lanes;
+        int[] fire = _fire, next = _nextFire;
+        boolean fired = false;
+        for (int sq = 0; sq < _area; sq += 1) {
+            int cap = _cap[sq], base = sq * lanes;
+            int right = _waveNbrs[4 * sq] * lanes,
+                left = _waveNbrs[4 * sq + 1] * lanes,
+                down = _waveNbrs[4 * sq + 2] * lanes,
+                up = _waveNbrs[4 * sq + 3] * lanes;
+            for (int lane = 0; lane < lanes; lane += 1) {
+                int i = base + lane;
+                int add = fire[right + lane] + fire[left + lane]
+                    + fire[down + lane] + fire[up + lane];
+                int self = fire[i];
+                if (add + self == 0 || _active[lane] == 0) {
+                    next[i] = 0;
+                    continue;
+                }
+                int me = _player[lane], old = _owner[i];
+                _spots[i] += add - self * cap;
+                if (old != me) {
+                    _converted[lane] += 1;
+                    if (old != 0) {
+                        _fromOpponent[lane] += 1;
+                    }
+                    _owner[i] = me;
+                }
+                next[i] = _spots[i] > cap ? 1 : 0;
+                fired |= next[i] != 0;
+            }
+        }
+        return fired;
+    }
+
+    /** Restore LANE to its contents before the last step and make move SQ
+     *  on it again, resolving jumps in MutableBoard's order: depth first,
+     *  visiting neighbors right, left, down, up, with no more jumps once
+     *  the game is won, although spots already due are still handed
+     *  out. */
+    private void replay(int lane, int sq) {
+        _red[lane] = _blue[lane] = 0;
+        for (int i = lane; i < _spots.length; i += _lanes) {
+            _spots[i] = _savedSpots[i];
+            _owner[i] = _savedOwner[i];
+            addCount(lane, _owner[i], 1);
+        }
+        int me = _player[lane];
+        give(lane, sq, me);
+        if (won(lane, me) || !overfull(lane, sq)) {
+            return;
+        }
+        _spots[sq * _lanes + lane] = 1;
+        int top = 0;
+        _stack[top++] = sq << 2;
+        while (top > 0) {
+            int frame = _stack[top - 1];
+            int s = frame >>> 2, dir = frame & 3;
+            if (dir == 3) {
+                top -= 1;
+            } else {
+                _stack[top - 1] = frame + 1;
+            }
+            int nbr = _nbrs[4 * s + dir];
+            if (nbr < 0) {
+                continue;
+            }
+            give(lane, nbr, me);
+            if (!won(lane, me) && overfull(lane, nbr)) {
+                _spots[nbr * _lanes + lane] = 1;
+                if (top == _stack.length) {
+                    _stack = Arrays.copyOf(_stack, 2 * top);
+                }
+                _stack[top++] = nbr << 2;
+            }
+        }
+    }
+
+    /** Add a spot to square SQ of LANE and give it to player ME. */
+    private void give(int lane, int sq, int me) {
+        int i = sq * _lanes + lane;
+        _spots[i] += 1;
+        convert(lane, _owner[i], me);
+        _owner[i] = me;
+    }
+
+    /** Returns true iff square SQ of LANE has more spots than
+     *  neighbors. */
+    private boolean overfull(int lane, int sq) {
+        return _spots[sq * _lanes + lane] > _cap[sq];
+    }
+
+    /** Update the counts of LANE for a square changing from color OLD to
+     *  color ME. */
+    private void convert(int lane, int old, int me) {
+        if (old != me) {
+            addCount(lane, old, -1);
+            addCount(lane, me, 1);
+        }
+    }
+
+    /** Add K to the number of squares of color COLOR on LANE. */
+    private void addCount(int lane, int color, int k) {
+        if (color == 1) {
+            _red[lane] += k;
+        } else if (color == 2) {
+            _blue[lane] += k;
+        }
+    }
+
+    /** Returns true iff player ME owns every square of LANE. */
+    private boolean won(int lane, int me) {
+        return (me == 1 ? _red[lane] : _blue[lane]) == _area;
+    }
+
+    /** Returns the color ordinal of the player to move on LANE. */
+    private int player(int lane) {
+        return 1 + (_moves[lane] & 1);
+    }
+
+    /** Default for setMaxWaves. */
+    static final int DEFAULT_MAX_WAVES = 1;
+
+    /** Colors by ordinal. */
+    private static final Color[] COLORS = Color.values();
+
+    /** True iff waves use the Vector API. */
+    private final boolean _vector;
+    /** Size of a side, number of squares, and number of lanes. */
+    private final int _n, _area, _lanes;
+    /** Spots and color ordinals of square SQ of lane L, at index
+     *  SQ * _lanes + L. */
+    private final int[] _spots, _owner;
+    /** Squares jumping in the current wave (1) or not (0), indexed like
+     *  _spots, and the same for the next wave, each followed by a row of
+     *  zeros for the missing neighbors of edge squares.  _fire is all
+     *  zero between steps. */
+    private int[] _fire, _nextFire;
+    /** Contents of _spots and _owner before the last step. */
+    private final int[] _savedSpots, _savedOwner;
+    /** Number of neighbors of each square. */
+    private final int[] _cap;
+    /** Neighbors of each square: four entries per square (right, left,
+     *  down, up), -1 where there is none. */
+    private final int[] _nbrs;
+    /** As _nbrs, but with _area in place of -1. */
+    private final int[] _waveNbrs;
+    /** Color ordinal of the player moving on each lane in this step. */
+    private final int[] _player;
+    /** 1 for lanes whose cascades are still being resolved, else 0. */
+    private final int[] _active;
+    /** Squares of each lane taken by its mover in the current wave, and
+     *  how many of those were its opponent's. */
+    private final int[] _converted, _fromOpponent;
+    /** Number of moves made on each lane. */
+    private final int[] _moves;
+    /** Number of red and of blue squares on each lane. */
+    private final int[] _red, _blue;
+    /** Most waves resolved together in one step. */
+    private int _maxWaves = DEFAULT_MAX_WAVES;
+    /** Pending jumps for replay, as in MutableBoard. */
+    private int[] _stack;
+}
@@ -0,0 +1,61 @@
+package jump61;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests for BatchSimulator.
+ *  @author Brian Su
+ */
+public class BatchSimulatorTest {
+
+    /** Play random games on every lane of SIM and on a MutableBoard per
+     *  lane for STEPS steps, restarting lanes whose games end, and check
+     *  that every lane always matches its board. */
+    private void checkAgainstBoards(BatchSimulator sim, int steps) {
+        SplittableRandom random = new SplittableRandom(61);
+        int n = sim.size(), lanes = sim.lanes();
+        MutableBoard[] boards = new MutableBoard[lanes];
+        for (int lane = 0; lane < lanes; lane += 1) {
+            boards[lane] = new MutableBoard(n);
+        }
+        int[] moves = new int[lanes];
+        for (int s = 0; s < steps; s += 1) {
+            for (int lane = 0; lane < lanes; lane += 1) {
+                if (sim.winner(lane) != null) {
+                    sim.reset(lane);
+                    boards[lane].clear(n);
+                }
+                moves[lane] = lane % 5 == s % 5 ? -1
+                    : sim.randomMove(lane, random);
+            }
+            sim.step(moves);
+            for (int lane = 0; lane < lanes; lane += 1) {
+                MutableBoard board = boards[lane];
+                if (moves[lane] >= 0) {
+                    board.addSpot(board.whoseMove(), moves[lane]);
+                }
+                assertEquals(board.numMoves(), sim.numMoves(lane));
+                assertEquals(board.getWinner(), sim.winner(lane));
+                for (int sq = 0; sq < n * n; sq += 1) {
+                    assertEquals(board.spots(sq), sim.spots(lane, sq));
+                    assertEquals(board.color(sq), sim.color(lane, sq));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testScalarMatchesMutableBoard() {
+        checkAgainstBoards(new BatchSimulator(4, 13, false), 3000);
+        checkAgainstBoards(new BatchSimulator(7, 5, false), 2000);
+    }
+
+    @Test
+    public void testVectorMatchesMutableBoard() {
+        BatchSimulator sim = new BatchSimulator(5, 9, true);
+        assertEquals(BatchSimulator.VECTOR_AVAILABLE, sim.vectorized());
+        checkAgainstBoards(sim, 3000);
+    }
+}
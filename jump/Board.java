@@ -17,11 +17,25 @@ abstract class Board {
         unsupported("clear");
     }
 
-    /** Copy the contents of BOARD into me. */
+    /** Copy the contents and move number of BOARD into me, clearing my
+     *  undo history. */
     void copy(Board board) {
         unsupported("copy");
     }
 
+    /** Returns a new board with my contents and move number and an empty
+     *  undo history.  Later changes to either board do not affect the
+     *  other. */
+    MutableBoard fork() {
+        return new MutableBoard(this);
+    }
+
+    /** Returns a read-only view of my current position that later changes
+     *  to me do not affect. */
+    Board snapshot() {
+        return new ConstantBoard(fork());
+    }
+
     /** Return the number of rows and of columns of THIS. */
     abstract int size();
 
@@ -105,6 +119,22 @@ abstract class Board {
         return playable && isLegal(player);
     }
 
+    /** Store in MOVES, in increasing order, the squares to which PLAYER
+     *  may now add a spot, and return how many there are.  MOVES must
+     *  have room for size() * size() squares. */
+    int legalMoves(Color player, int[] moves) {
+        if (!isLegal(player)) {
+            return 0;
+        }
+        int count = 0;
+        for (int n = 0; n < size() * size(); n += 1) {
+            if (player.playableSquare(color(n))) {
+                moves[count++] = n;
+            }
+        }
+        return count;
+    }
+
     /** Returns true iff PLAYER is allowed to move at this point. */
     boolean isLegal(Color player) {
         return whoseMove() == player;
@@ -154,6 +184,12 @@ abstract class Board {
         unsupported("setMoves");
     }
 
+    /** Let the player to move pass, for searches that try null moves.
+     *  The pass counts as a move for undo. */
+    void pass() {
+        unsupported("pass");
+    }
+
     /** Undo the effects one move (that is, one addSpot command).  One
      *  can only undo back to the last point at which the undo history
      *  was cleared, or the construction of this Board. */
@@ -161,35 +197,44 @@ abstract class Board {
         unsupported("undo");
     }
 
-    /** Returns my dumped representation. */
-    @Override
-    public String toString() {
-        StringBuilder out = new StringBuilder();
-        out.append("===");
-        for (int i = 0; i < size() * size(); i++) {
-            if (i % size() == 0) {
-                newLine(out);
-                fourSpaces(out);
-            }
-            out.append(getSquares()[i].toString());
-            if (i % size() == size() - 1) {
-                continue;
-            }
-            out.append(" ");
+    /** Returns a string identifying my position: the player to move
+     *  followed by one character per square encoding its color and
+     *  spots.  Two boards have equal keys iff they have the same size,
+     *  contents, and player to move. */
+    String positionKey() {
+        int n = size() * size();
+        char[] key = new char[n + 1];
+        key[0] = (char) whoseMove().ordinal();
+        for (int i = 0; i < n; i += 1) {
+            key[i + 1] = (char) (spots(i) * 3 + color(i).ordinal());
         }
-        newLine(out);
-        out.append("===");
-        return out.toString();
+        return new String(key);
+    }
+
+    /** Returns the smallest of the position keys of my eight rotations
+     *  and reflections, which is the same for all positions equivalent
+     *  to mine under symmetry. */
+    String canonicalKey() {
+        return Symmetry.key(this, canonicalTransform());
+    }
+
+    /** Returns the number of the Symmetry transform that takes me to
+     *  the position whose key is canonicalKey(). */
+    int canonicalTransform() {
+        return Symmetry.canonicalTransform(this);
     }
 
-    /** Appends a new line to StringBuilder OUT. */
-    private void newLine(StringBuilder out) {
-        out.append(System.getProperty("line.separator"));
+    /** Returns a number that changes whenever a square in row R changes,
+     *  1 <= R <= size(), or a negative number if I do not keep track of
+     *  such changes.  Used by BoardRenderer to redraw only changed rows. */
+    long rowVersion(int r) {
+        return -1;
     }
 
-    /** Adds four spaces to StringBuilder OUT. */
-    private void fourSpaces(StringBuilder out) {
-        out.append("    ");
+    /** Returns my dumped representation. */
+    @Override
+    public String toString() {
+        return BoardRenderer.dump(this);
     }
 
     /** Returns an external rendition of me, suitable for
@@ -198,10 +243,12 @@ abstract class Board {
     public String toDisplayString() {
         StringBuilder out = new StringBuilder();
         if (getSquares() != null) {
-            out.append(getSquares()[0]);
-            for (int i = 1; i < getSquares().length; i++) {
-                out.append(" ");
-                out.append(getSquares()[i].toString());
+            int n = size() * size();
+            for (int i = 0; i < n; i++) {
+                if (i > 0) {
+                    out.append(" ");
+                }
+                out.append(BoardRenderer.token(color(i), spots(i)));
             }
         } else {
             out.append("The board has not been initialized.");
@@ -0,0 +1,329 @@
+package jump61;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static jump61.Color.*;
+
+/** A differential fuzzer for Board implementations.  It generates random
+ *  sequences of moves, undos, set and move-number commands, and forks on
+ *  boards of random sizes, applies each sequence in lockstep to a
+ *  ReferenceBoard and to the board under test, and compares their
+ *  contents, move numbers, winners, color counts, and legal moves after
+ *  every operation and their dumps at the end.  A sequence on which they
+ *  disagree is shrunk by removing ever smaller runs of operations for
+ *  as long as the shortened sequence still fails, and is printed as
+ *  game commands.
+ *  Usage: java jump61.BoardFuzzer [SECONDS [THREADS [SEED [MAXSIZE]]]]
+ *  @author Brian Su
+ */
+public class BoardFuzzer {
+
+    /** Operation codes.  Each operation is an int array whose first
+     *  element is one of these, followed by its operands: the board size
+     *  for SIZE; a square number for MOVE; a square number, spots, and
+     *  color ordinal for SET; and a move number for MOVES. */
+    static final int SIZE = 0, MOVE = 1, UNDO = 2, SET = 3, MOVES = 4,
+        FORK = 5;
+
+    /** Fuzz the MutableBoard as described by ARGS, exiting with status 1
+     *  after printing a minimized failing sequence if one is found. */
+    public static void main(String[] args) throws InterruptedException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 60;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2])
+            : System.nanoTime();
+        int maxSize = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        AtomicLong moves = new AtomicLong();
+        AtomicLong sequences = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t += 1) {
+            long mySeed = seed + t;
+            workers[t] = new Thread(() -> {
+                BoardFuzzer fuzzer =
+                    new BoardFuzzer(MutableBoard::new, maxSize);
+                Random random = new Random(mySeed);
+                while (!failed.get() && System.nanoTime() < deadline) {
+                    int[][] ops = fuzzer.generate(random);
+                    String failure = fuzzer.check(ops);
+                    sequences.incrementAndGet();
+                    if (failure != null && failed.compareAndSet(false, true)) {
+                        int[][] small = fuzzer.minimize(ops);
+                        synchronized (System.out) {
+                            System.out.printf("seed %d: %s%n", mySeed,
+                                              fuzzer.check(small));
+                            System.out.print(commands(small));
+                        }
+                    }
+                }
+                moves.addAndGet(fuzzer.moves());
+            });
+            workers[t].start();
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double minutes = (System.nanoTime() - start) * 1e-9 / 60;
+        System.out.printf("%d sequences, %d moves, %.0f moves/min on %d "
+                          + "threads, seed %d: %s%n", sequences.get(),
+                          moves.get(), moves.get() / minutes, threads, seed,
+                          failed.get() ? "FAILED" : "ok");
+        if (failed.get()) {
+            System.exit(1);
+        }
+    }
+
+    /** A fuzzer comparing boards made by ENGINE with ReferenceBoards of
+     *  sizes from 2 to MAXSIZE. */
+    BoardFuzzer(IntFunction<? extends Board> engine, int maxSize) {
+        _engine = engine;
+        _maxSize = maxSize;
+    }
+
+    /** Returns the number of moves applied to the boards under test so
+     *  far. */
+    long moves() {
+        return _moves;
+    }
+
+    /** Returns a random sequence of operations chosen with RANDOM.  The
+     *  first is a SIZE operation, and most moves are legal when made. */
+    int[][] generate(Random random) {
+        int n = 2 + random.nextInt(_maxSize - 1);
+        int length = MIN_LENGTH + random.nextInt(MAX_LENGTH - MIN_LENGTH);
+        ReferenceBoard board = new ReferenceBoard(n);
+        int[][] ops = new int[length][];
+        ops[0] = new int[] { SIZE, n };
+        for (int k = 1; k < length; k += 1) {
+            int choice = random.nextInt(100);
+            int sq = random.nextInt(n * n);
+            if (choice < 85 && board.getWinner() == null) {
+                Color who = board.whoseMove();
+                while (!board.isLegal(who, sq)) {
+                    sq = random.nextInt(n * n);
+                }
+                ops[k] = new int[] { MOVE, sq };
+            } else if (choice < 93) {
+                ops[k] = new int[] { UNDO };
+            } else if (choice < 97) {
+                int spots = random.nextInt(board.neighbors(sq) + 1);
+                Color color = random.nextBoolean() ? RED : BLUE;
+                ops[k] = new int[] { SET, sq, spots, color.ordinal() };
+            } else if (choice < 98) {
+                ops[k] = new int[] { MOVES, 1 + random.nextInt(2 * n * n) };
+            } else {
+                ops[k] = new int[] { FORK };
+            }
+            if (ops[k][0] == FORK) {
+                board = new ReferenceBoard(board);
+            } else {
+                apply(board, ops[k]);
+            }
+        }
+        return ops;
+    }
+
+    /** Apply OPS to a ReferenceBoard and a board under test in lockstep,
+     *  and return a description of the first difference between them, or
+     *  null if there is none. */
+    String check(int[][] ops) {
+        int n = ops[0][1];
+        Board reference = new ReferenceBoard(n);
+        Board board = _engine.apply(n);
+        for (int k = 1; k < ops.length; k += 1) {
+            int[] op = ops[k];
+            if (op[0] == FORK) {
+                Board old = board;
+                board = board.fork();
+                reference = new ReferenceBoard(reference);
+                if (old.isLegal(old.whoseMove(), 0)) {
+                    old.addSpot(old.whoseMove(), 0);
+                }
+                old.set(0, 0, WHITE);
+            } else if (apply(reference, op)) {
+                try {
+                    apply(board, op);
+                } catch (GameException | AssertionError excp) {
+                    return String.format("operation %d (%s) threw %s", k,
+                                         describe(op), excp);
+                }
+            }
+            String diff = compare(reference, board);
+            if (diff != null) {
+                return String.format("after operation %d (%s): %s", k,
+                                     describe(op), diff);
+            }
+        }
+        if (!reference.toString().equals(board.toString())) {
+            return String.format("dumps differ:%n%s%n%s", reference, board);
+        }
+        return null;
+    }
+
+    /** Returns the shortest subsequence of OPS, which fails check, that
+     *  I can find by removing runs of operations, always keeping the
+     *  first. */
+    int[][] minimize(int[][] ops) {
+        List<int[]> current = new ArrayList<>(Arrays.asList(ops));
+        int chunk = Math.max(1, (current.size() - 1) / 2);
+        while (true) {
+            boolean removed = false;
+            for (int start = 1; start < current.size(); ) {
+                int end = Math.min(start + chunk, current.size());
+                List<int[]> candidate = new ArrayList<>(current);
+                candidate.subList(start, end).clear();
+                if (check(candidate.toArray(new int[0][])) != null) {
+                    current = candidate;
+                    removed = true;
+                } else {
+                    start = end;
+                }
+            }
+            if (chunk == 1 && !removed) {
+                return current.toArray(new int[0][]);
+            } else if (!removed) {
+                chunk = Math.max(1, chunk / 2);
+            }
+        }
+    }
+
+    /** Returns OPS as lines of game commands.  Moves appear as R C and are
+     *  made by whichever player is to move, which needs both players to be
+     *  manual; forks have no command and appear as comments. */
+    static String commands(int[][] ops) {
+        int n = ops[0][1];
+        StringBuilder out = new StringBuilder();
+        for (int[] op : ops) {
+            switch (op[0]) {
+            case SIZE:
+                out.append(String.format("size %d%nmanual red%n"
+                                         + "manual blue%n", op[1]));
+                break;
+            case MOVE:
+                out.append(String.format("start%n%d %d%n", op[1] / n + 1,
+                                         op[1] % n + 1));
+                break;
+            case UNDO:
+                out.append(String.format("undo%n"));
+                break;
+            case SET:
+                out.append(String.format("set %d %d %d %s%n", op[1] / n + 1,
+                                         op[1] % n + 1, op[2],
+                                         op[3] == RED.ordinal() ? "r" : "b"));
+                break;
+            case MOVES:
+                out.append(String.format("move %d%n", op[1] - 1));
+                break;
+            default:
+                out.append(String.format("# fork%n"));
+                break;
+            }
+        }
+        out.append(String.format("dump%n"));
+        return out.toString();
+    }
+
+    /** Apply OP, other than SIZE or FORK, to BOARD, returning false and
+     *  doing nothing if it is an illegal move.  Counts the moves made on
+     *  boards under test. */
+    private boolean apply(Board board, int[] op) {
+        switch (op[0]) {
+        case MOVE:
+            Color who = board.whoseMove();
+            if (!board.isLegal(who, op[1])) {
+                return false;
+            }
+            board.addSpot(who, op[1]);
+            if (!(board instanceof ReferenceBoard)) {
+                _moves += 1;
+            }
+            break;
+        case UNDO:
+            board.undo();
+            break;
+        case SET:
+            board.set(op[1], op[2], Color.values()[op[3]]);
+            break;
+        case MOVES:
+            board.setMoves(op[1]);
+            break;
+        default:
+            throw new IllegalArgumentException("bad operation");
+        }
+        return true;
+    }
+
+    /** Returns a description of the first difference between the
+     *  positions of boards EXPECTED and ACTUAL, or null if there is
+     *  none. */
+    private String compare(Board expected, Board actual) {
+        if (expected.numMoves() != actual.numMoves()) {
+            return String.format("numMoves %d, expected %d",
+                                 actual.numMoves(), expected.numMoves());
+        }
+        for (int i = 0; i < expected.size() * expected.size(); i += 1) {
+            if (expected.spots(i) != actual.spots(i)
+                || expected.color(i) != actual.color(i)) {
+                return String.format("square %d:%d has %d%s, expected %d%s",
+                                     expected.row(i), expected.col(i),
+                                     actual.spots(i), actual.color(i),
+                                     expected.spots(i), expected.color(i));
+            }
+        }
+        for (Color color : Color.values()) {
+            if (expected.numOfColor(color) != actual.numOfColor(color)) {
+                return String.format("numOfColor(%s) %d, expected %d",
+                                     color, actual.numOfColor(color),
+                                     expected.numOfColor(color));
+            }
+        }
+        int area = expected.size() * expected.size();
+        if (_expectedMoves.length < area) {
+            _expectedMoves = new int[area];
+            _actualMoves = new int[area];
+        }
+        for (Color player : new Color[] { RED, BLUE }) {
+            int count = expected.legalMoves(player, _expectedMoves);
+            if (actual.legalMoves(player, _actualMoves) != count
+                || !Arrays.equals(_expectedMoves, 0, count,
+                                  _actualMoves, 0, count)) {
+                return String.format("legal moves for %s differ", player);
+            }
+        }
+        if (expected.getWinner() != actual.getWinner()) {
+            return String.format("winner %s, expected %s",
+                                 actual.getWinner(), expected.getWinner());
+        }
+        return null;
+    }
+
+    /** Returns a short description of OP. */
+    private static String describe(int[] op) {
+        String[] names = { "size", "move", "undo", "set", "moves", "fork" };
+        return names[op[0]] + Arrays.toString(Arrays.copyOfRange(op, 1,
+                                                                 op.length));
+    }
+
+    /** Fewest and one more than the most operations in a sequence. */
+    private static final int MIN_LENGTH = 50, MAX_LENGTH = 400;
+
+    /** Makes an N x N board under test. */
+    private final IntFunction<? extends Board> _engine;
+    /** Largest board size generated. */
+    private final int _maxSize;
+    /** Number of moves applied to boards under test. */
+    private long _moves;
+    /** Legal moves found on the reference board and on the board under
+     *  test by compare. */
+    private int[] _expectedMoves = new int[0], _actualMoves = new int[0];
+}
@@ -0,0 +1,74 @@
+package jump61;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of BoardFuzzer and ReferenceBoard.
+ *  @author Brian Su
+ */
+public class BoardFuzzerTest {
+
+    /** A MutableBoard that forgets to undo moves made from a position
+     *  with two spots on square 0. */
+    private static class BrokenBoard extends MutableBoard {
+        BrokenBoard(int N) {
+            super(N);
+        }
+
+        @Override
+        void undo() {
+            if (spots(0) != 2) {
+                super.undo();
+            }
+        }
+    }
+
+    @Test
+    public void testMutableBoardAgrees() {
+        BoardFuzzer fuzzer = new BoardFuzzer(MutableBoard::new, 7);
+        Random random = new Random(61);
+        for (int k = 0; k < 300; k += 1) {
+            int[][] ops = fuzzer.generate(random);
+            assertNull(fuzzer.check(ops));
+        }
+        assertTrue(fuzzer.moves() > 10000);
+    }
+
+    @Test
+    public void testMinimize() {
+        BoardFuzzer fuzzer = new BoardFuzzer(BrokenBoard::new, 4);
+        Random random = new Random(61);
+        int[][] ops;
+        do {
+            ops = fuzzer.generate(random);
+        } while (fuzzer.check(ops) == null);
+        int[][] small = fuzzer.minimize(ops);
+        assertNotNull(fuzzer.check(small));
+        assertEquals(BoardFuzzer.SIZE, small[0][0]);
+        assertTrue("not minimized: " + small.length, small.length <= 5);
+        String commands = BoardFuzzer.commands(small);
+        assertTrue(commands.startsWith("size "));
+        assertTrue(commands.contains("undo"));
+    }
+
+    @Test
+    public void testReferenceUndo() {
+        ReferenceBoard b = new ReferenceBoard(2);
+        b.addSpot(Color.RED, 0);
+        b.addSpot(Color.BLUE, 3);
+        b.addSpot(Color.RED, 0);
+        b.addSpot(Color.BLUE, 3);
+        b.addSpot(Color.RED, 0);
+        assertEquals(Color.RED, b.color(1));
+        assertEquals(1, b.spots(0));
+        b.undo();
+        assertEquals(Color.WHITE, b.color(1));
+        assertEquals(2, b.spots(0));
+        assertEquals(4, b.numMoves());
+        b.set(0, 1, Color.BLUE);
+        b.undo();
+        assertEquals(4, b.numMoves());
+    }
+}
@@ -0,0 +1,11 @@
+package jump61;
+
+/** Receives the changes made to the MutableBoards with which it is
+ *  registered (see MutableBoard.addListener), one batch per operation.
+ *  @author Brian Su
+ */
+interface BoardListener {
+
+    /** Note that BOARD has just been changed as BATCH describes. */
+    void boardChanged(MutableBoard board, ChangeBatch batch);
+}
@@ -0,0 +1,171 @@
+package jump61;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+
+/** Renders a Board in the standard board-dump format (see
+ *  Board.toString) for tools that dump after every move.  Cell text
+ *  comes from a table of interned tokens, each row's text is cached and
+ *  rebuilt only when the board reports that the row has changed (see
+ *  Board.rowVersion), and the whole dump is assembled in a reusable
+ *  buffer that can be written directly to a Writer or ByteBuffer.
+ *  @author Brian Su
+ */
+class BoardRenderer {
+
+    /** A renderer for BOARD. */
+    BoardRenderer(Board board) {
+        _board = board;
+    }
+
+    /** Returns the dump of BOARD, without caching anything. */
+    static String dump(Board board) {
+        int n = board.size();
+        StringBuilder out = new StringBuilder(3 * n * n + 8 * n + 16);
+        out.append(MARK);
+        for (int r = 1; r <= n; r += 1) {
+            out.append(NL).append(INDENT);
+            for (int c = 1; c <= n; c += 1) {
+                if (c > 1) {
+                    out.append(' ');
+                }
+                out.append(token(board.color(r, c), board.spots(r, c)));
+            }
+        }
+        out.append(NL).append(MARK);
+        return out.toString();
+    }
+
+    /** Returns the text of a square with color COLOR and SPOTS spots, as
+     *  for Square.toString. */
+    static String token(Color color, int spots) {
+        if (spots < MAX_TOKEN) {
+            return TOKENS[color.ordinal()][spots];
+        }
+        return spots + color.toString().substring(0, 1);
+    }
+
+    /** Returns my board's current dump. */
+    String render() {
+        update();
+        return new String(_text, 0, _length);
+    }
+
+    /** Write my board's current dump to OUT. */
+    void render(Writer out) throws IOException {
+        update();
+        out.write(_text, 0, _length);
+    }
+
+    /** Write my board's current dump to OUT as ASCII bytes.  OUT must
+     *  have room for it. */
+    void render(ByteBuffer out) {
+        update();
+        for (int i = 0; i < _length; i += 1) {
+            out.put((byte) _text[i]);
+        }
+    }
+
+    /** Returns the number of rows rebuilt so far. */
+    long rowsRendered() {
+        return _rowsRendered;
+    }
+
+    /** Bring _text up to date with my board. */
+    private void update() {
+        int n = _board.size();
+        if (_rows == null || _rows.length != n) {
+            _rows = new char[n][];
+            _versions = new long[n];
+            _valid = new boolean[n];
+        }
+        int length = MARK.length() * 2;
+        for (int r = 0; r < n; r += 1) {
+            long version = _board.rowVersion(r + 1);
+            if (!_valid[r] || version < 0 || version != _versions[r]) {
+                renderRow(r);
+                _versions[r] = version;
+                _valid[r] = version >= 0;
+            }
+            length += _rows[r].length;
+        }
+        length += NL.length();
+        if (_text == null || _text.length < length) {
+            _text = new char[length];
+        }
+        int k = append(MARK, 0);
+        for (char[] row : _rows) {
+            System.arraycopy(row, 0, _text, k, row.length);
+            k += row.length;
+        }
+        k = append(NL, k);
+        _length = append(MARK, k);
+    }
+
+    /** Rebuild the cached text of row #R (0-based): a line separator,
+     *  the indentation, and the row's tokens separated by blanks. */
+    private void renderRow(int r) {
+        int n = _board.size();
+        StringBuilder row = _scratch;
+        row.setLength(0);
+        row.append(NL).append(INDENT);
+        for (int c = 0; c < n; c += 1) {
+            if (c > 0) {
+                row.append(' ');
+            }
+            int sq = r * n + c;
+            row.append(token(_board.color(sq), _board.spots(sq)));
+        }
+        if (_rows[r] == null || _rows[r].length != row.length()) {
+            _rows[r] = new char[row.length()];
+        }
+        row.getChars(0, row.length(), _rows[r], 0);
+        _rowsRendered += 1;
+    }
+
+    /** Copy S into _text at K, returning the position after it. */
+    private int append(String s, int k) {
+        s.getChars(0, s.length(), _text, k);
+        return k + s.length();
+    }
+
+    /** Line separator. */
+    static final String NL = System.getProperty("line.separator");
+    /** Line that starts and ends a dump. */
+    private static final String MARK = "===";
+    /** Indentation of each row. */
+    private static final String INDENT = "    ";
+    /** Spot counts below this have interned tokens. */
+    private static final int MAX_TOKEN = 10;
+    /** Interned tokens by color ordinal and spots. */
+    private static final String[][] TOKENS =
+        new String[Color.values().length][MAX_TOKEN];
+
+    static {
+        for (Color color : Color.values()) {
+            for (int spots = 0; spots < MAX_TOKEN; spots += 1) {
+                TOKENS[color.ordinal()][spots] =
+                    new Square(color, spots).toString().intern();
+            }
+        }
+    }
+
+    /** The board rendered. */
+    private final Board _board;
+    /** Cached text of each row. */
+    private char[][] _rows;
+    /** Board's row versions when each row was cached. */
+    private long[] _versions;
+    /** True for each row whose cached text may be reused if its version
+     *  is unchanged. */
+    private boolean[] _valid;
+    /** The whole dump, in its first _length characters. */
+    private char[] _text;
+    /** Length of the dump in _text. */
+    private int _length;
+    /** Buffer for building rows. */
+    private final StringBuilder _scratch = new StringBuilder();
+    /** Count of rows rebuilt. */
+    private long _rowsRendered;
+}
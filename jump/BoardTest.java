@@ -2,6 +2,13 @@ package jump61;
 
 import static jump61.Color.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -136,6 +143,90 @@ public class BoardTest {
         assertEquals("Wrong number of neighbors", 4, B.neighbors(9));
     }
 
+    @Test
+    public void testPositionKey() {
+        Board B = new MutableBoard(4);
+        Board C = new MutableBoard(4);
+        assertEquals(B.positionKey(), C.positionKey());
+        B.addSpot(RED, 2, 2);
+        assertFalse(B.positionKey().equals(C.positionKey()));
+        C.set(2, 2, 1, RED);
+        assertFalse("player to move differs",
+                    B.positionKey().equals(C.positionKey()));
+        C.setMoves(1);
+        assertEquals(B.positionKey(), C.positionKey());
+        assertFalse(B.positionKey().equals(new MutableBoard(5).positionKey()));
+    }
+
+    @Test
+    public void testCanonicalKey() {
+        Board B = new MutableBoard(5);
+        Board C = new MutableBoard(5);
+        B.set(1, 2, 1, RED);
+        B.set(3, 4, 2, BLUE);
+        C.set(2, 5, 1, RED);
+        C.set(4, 3, 2, BLUE);
+        assertEquals(B.canonicalKey(), C.canonicalKey());
+        C.set(4, 3, 1, BLUE);
+        assertFalse(B.canonicalKey().equals(C.canonicalKey()));
+        for (int t = 0; t < Symmetry.COUNT; t += 1) {
+            int[] map = Symmetry.transforms(5)[t];
+            int[] back = Symmetry.transforms(5)[Symmetry.inverse(t)];
+            for (int s = 0; s < 25; s += 1) {
+                assertEquals(s, back[map[s]]);
+            }
+        }
+        Board E = new MutableBoard(4);
+        ArrayList<Integer> all = new ArrayList<>();
+        for (int s = 0; s < 16; s += 1) {
+            all.add(s);
+        }
+        assertEquals("[0, 1, 5]",
+                     Symmetry.distinctMoves(E, all).toString());
+    }
+
+    @Test
+    public void testDump() {
+        Board B = new MutableBoard(3);
+        B.set(1, 1, 2, RED);
+        B.set(3, 2, 1, BLUE);
+        assertEquals("===" + NL + "    2r -- --" + NL + "    -- -- --" + NL
+                     + "    -- 1b --" + NL + "===", B.toString());
+        assertEquals("2r -- -- -- -- -- -- 1b --", B.toDisplayString());
+    }
+
+    @Test
+    public void testRenderer() throws IOException {
+        MutableBoard B = new MutableBoard(6);
+        BoardRenderer R = new BoardRenderer(B);
+        Random rand = new Random(61);
+        assertEquals(B.toString(), R.render());
+        for (int k = 0; k < 300 && B.getWinner() == null; k += 1) {
+            int sq = rand.nextInt(36);
+            if (!B.isLegal(B.whoseMove(), sq)) {
+                continue;
+            }
+            long rows = R.rowsRendered();
+            B.addSpot(B.whoseMove(), sq);
+            StringWriter out = new StringWriter();
+            R.render(out);
+            assertEquals(B.toString(), out.toString());
+            if (B.numMoves() == 1) {
+                assertEquals("redrew unchanged rows", 1,
+                             R.rowsRendered() - rows);
+            }
+            if (k % 7 == 3) {
+                B.undo();
+                assertEquals(B.toString(), R.render());
+            }
+        }
+        B.clear(4);
+        ByteBuffer buf = ByteBuffer.allocate(1000);
+        R.render(buf);
+        assertEquals(B.toString(), new String(buf.array(), 0, buf.position(),
+                                              StandardCharsets.US_ASCII));
+    }
+
     /** Check if board B has CONTENTS. If not, output MSG. */
     private void checkBoard(String msg, Board B, Object... contents) {
         for (int k = 0; k < contents.length; k += 4) {
@@ -0,0 +1,144 @@
+package jump61;
+
+import java.io.PrintWriter;
+
+/** Histograms describing the cascades of jumps caused by moves on the
+ *  boards that report to it (see MutableBoard.setCascadeStats).  For each
+ *  move it records the number of squares that jumped, the greatest depth
+ *  of the chain of jumps (a jump caused by a jump caused by the move has
+ *  depth 2), the number of distinct squares whose contents changed, and
+ *  whether the game was won before the cascade had finished.  Each
+ *  histogram has power-of-two buckets: 0, 1, 2-3, 4-7, and so on.
+ *  @author Brian Su
+ */
+class CascadeStats {
+
+    /** Names of the measures, in the order of the histograms. */
+    static final String[] MEASURES = { "explosions", "depth", "touched" };
+
+    /** Number of histogram buckets. */
+    static final int BUCKETS = 33;
+
+    /** Forget everything recorded so far. */
+    synchronized void reset() {
+        _moves = 0;
+        _midCascadeWins = 0;
+        for (int k = 0; k < MEASURES.length; k += 1) {
+            _counts[k] = new long[BUCKETS];
+            _totals[k] = 0;
+            _maxima[k] = 0;
+        }
+    }
+
+    /** Record one move whose cascade had EXPLOSIONS jumps, reached depth
+     *  DEPTH, and changed TOUCHED squares, and which ended the game before
+     *  the cascade was complete iff MIDCASCADEWIN. */
+    synchronized void record(int explosions, int depth, int touched,
+                             boolean midCascadeWin) {
+        _moves += 1;
+        if (midCascadeWin) {
+            _midCascadeWins += 1;
+        }
+        add(0, explosions);
+        add(1, depth);
+        add(2, touched);
+    }
+
+    /** Returns the number of moves recorded. */
+    synchronized long moves() {
+        return _moves;
+    }
+
+    /** Returns the number of recorded moves that won the game before
+     *  their cascades were complete. */
+    synchronized long midCascadeWins() {
+        return _midCascadeWins;
+    }
+
+    /** Returns the number of recorded moves whose value of measure
+     *  MEASURE (an index into MEASURES) fell in histogram bucket
+     *  BUCKET. */
+    synchronized long count(int measure, int bucket) {
+        return _counts[measure][bucket];
+    }
+
+    /** Returns the largest value of measure MEASURE recorded. */
+    synchronized long max(int measure) {
+        return _maxima[measure];
+    }
+
+    /** Returns the mean value of measure MEASURE, or 0 if nothing has been
+     *  recorded. */
+    synchronized double mean(int measure) {
+        return _moves == 0 ? 0.0 : (double) _totals[measure] / _moves;
+    }
+
+    /** Returns the smallest value that falls in histogram bucket
+     *  BUCKET. */
+    static long bucketLow(int bucket) {
+        return bucket == 0 ? 0 : 1L << (bucket - 1);
+    }
+
+    /** Returns the largest value that falls in histogram bucket
+     *  BUCKET. */
+    static long bucketHigh(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+    /** Returns the histogram bucket holding VALUE >= 0. */
+    static int bucket(int value) {
+        return 32 - Integer.numberOfLeadingZeros(value);
+    }
+
+    /** Print a summary and the nonempty buckets of each histogram on
+     *  OUT. */
+    synchronized void report(PrintWriter out) {
+        out.printf("%d moves, %d won mid-cascade.%n", _moves,
+                   _midCascadeWins);
+        for (int k = 0; k < MEASURES.length; k += 1) {
+            out.printf("%s: mean %.2f, max %d%n", MEASURES[k], mean(k),
+                       _maxima[k]);
+            for (int b = 0; b < BUCKETS; b += 1) {
+                if (_counts[k][b] > 0) {
+                    out.printf("  %6d-%-6d %10d%n", bucketLow(b),
+                               bucketHigh(b), _counts[k][b]);
+                }
+            }
+        }
+    }
+
+    /** Print every nonempty bucket of every histogram on OUT as CSV,
+     *  with columns measure, low, high, and moves.  The totals appear as
+     *  the rows with measure "moves" and "midCascadeWins". */
+    synchronized void export(PrintWriter out) {
+        out.println("measure,low,high,moves");
+        out.printf("moves,,,%d%n", _moves);
+        out.printf("midCascadeWins,,,%d%n", _midCascadeWins);
+        for (int k = 0; k < MEASURES.length; k += 1) {
+            for (int b = 0; b < BUCKETS; b += 1) {
+                if (_counts[k][b] > 0) {
+                    out.printf("%s,%d,%d,%d%n", MEASURES[k], bucketLow(b),
+                               bucketHigh(b), _counts[k][b]);
+                }
+            }
+        }
+    }
+
+    /** Add VALUE to the histogram for measure K. */
+    private void add(int k, int value) {
+        _counts[k][bucket(value)] += 1;
+        _totals[k] += value;
+        _maxima[k] = Math.max(_maxima[k], value);
+    }
+
+    /** Number of moves recorded. */
+    private long _moves;
+    /** Number of those moves that won the game mid-cascade. */
+    private long _midCascadeWins;
+    /** Histogram of each measure. */
+    private final long[][] _counts = new long[MEASURES.length][BUCKETS];
+    /** Sum of the values of each measure. */
+    private final long[] _totals = new long[MEASURES.length];
+    /** Largest value of each measure. */
+    private final long[] _maxima = new long[MEASURES.length];
+}
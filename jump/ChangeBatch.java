@@ -0,0 +1,121 @@
+package jump61;
+
+import java.util.Arrays;
+
+/** The net changes made to a MutableBoard by one operation: a move and
+ *  its whole cascade, a pass, an undo, a change of contents or move
+ *  number, or a reset.  Only the squares whose contents differ from
+ *  before the operation are included, in the order in which they were
+ *  first changed, so the size of a batch follows the cascade rather than
+ *  the board.  A reset lists every square, since the board may have a
+ *  new size.
+ *  @author Brian Su
+ */
+final class ChangeBatch {
+
+    /** The kinds of operation. */
+    enum Kind {
+        /** A spot added by a player, with its jumps. */
+        MOVE,
+        /** A turn passed. */
+        PASS,
+        /** The last move taken back. */
+        UNDO,
+        /** Squares or the move number set directly. */
+        SET,
+        /** The whole board replaced. */
+        RESET;
+
+        /** Return my lower-case name. */
+        @Override
+        public String toString() {
+            return super.toString().toLowerCase();
+        }
+    }
+
+    /** A batch for an operation of kind KIND, on square SQUARE (-1 if
+     *  none), leaving a board of size N after MOVES moves, whose first
+     *  COUNT changed squares are SQUARES with contents CELLS, each its
+     *  spots times four plus its color's ordinal.  Takes copies of
+     *  SQUARES and CELLS. */
+    ChangeBatch(Kind kind, int square, int n, int moves, int count,
+                int[] squares, int[] cells) {
+        _kind = kind;
+        _square = square;
+        _n = n;
+        _moves = moves;
+        _squares = Arrays.copyOf(squares, count);
+        _cells = Arrays.copyOf(cells, count);
+    }
+
+    /** Returns the kind of operation. */
+    Kind kind() {
+        return _kind;
+    }
+
+    /** Returns the square played or set, or -1 if there is none. */
+    int square() {
+        return _square;
+    }
+
+    /** Returns the size of the board afterwards. */
+    int size() {
+        return _n;
+    }
+
+    /** Returns the number of moves made afterwards. */
+    int moveNumber() {
+        return _moves;
+    }
+
+    /** Returns the number of squares changed. */
+    int count() {
+        return _squares.length;
+    }
+
+    /** Returns the number of the Kth square changed. */
+    int changed(int k) {
+        return _squares[k];
+    }
+
+    /** Returns the new number of spots on the Kth square changed. */
+    int spots(int k) {
+        return _cells[k] >>> 2;
+    }
+
+    /** Returns the new color of the Kth square changed. */
+    Color color(int k) {
+        return COLORS[_cells[k] & 3];
+    }
+
+    /** Returns me in the compact form "KIND MOVES SIZE SQ:SPOTSC ...",
+     *  where each SQ is the number of a changed square and C is the first
+     *  letter of its new color, as in "move 7 6 8:1r 9:4r". */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(_kind).append(' ').append(_moves).append(' ')
+            .append(_n);
+        for (int k = 0; k < _squares.length; k += 1) {
+            result.append(' ').append(_squares[k]).append(':')
+                .append(spots(k)).append(color(k).toString().charAt(0));
+        }
+        return result.toString();
+    }
+
+    /** All colors, by ordinal. */
+    private static final Color[] COLORS = Color.values();
+
+    /** Kind of operation. */
+    private final Kind _kind;
+    /** Square played or set, or -1. */
+    private final int _square;
+    /** Board size. */
+    private final int _n;
+    /** Move number afterwards. */
+    private final int _moves;
+    /** Changed squares. */
+    private final int[] _squares;
+    /** Their new contents. */
+    private final int[] _cells;
+}
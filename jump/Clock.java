@@ -0,0 +1,123 @@
+package jump61;
+
+import java.util.function.LongSupplier;
+
+import static jump61.Color.*;
+
+/** A pair of game clocks, one per player, under a Fischer time control:
+ *  each player starts with the same base time and gains a fixed
+ *  increment after each of their moves.  Only one clock runs at a time.
+ *  @author Brian Su
+ */
+class Clock {
+
+    /** Clocks giving each player BASEMILLIS milliseconds plus
+     *  INCREMENTMILLIS milliseconds per move. */
+    Clock(long baseMillis, long incrementMillis) {
+        this(baseMillis, incrementMillis, System::nanoTime);
+    }
+
+    /** Clocks as for Clock(BASEMILLIS, INCREMENTMILLIS) that read the
+     *  time in nanoseconds from NANOTIME. */
+    Clock(long baseMillis, long incrementMillis, LongSupplier nanoTime) {
+        assert baseMillis > 0 && incrementMillis >= 0;
+        _base = baseMillis;
+        _increment = incrementMillis;
+        _nanoTime = nanoTime;
+        reset();
+    }
+
+    /** Stop both clocks and give each player the base time. */
+    void reset() {
+        _remaining[RED.ordinal()] = _remaining[BLUE.ordinal()] = _base;
+        _running = null;
+    }
+
+    /** Returns the base time in milliseconds. */
+    long baseMillis() {
+        return _base;
+    }
+
+    /** Returns the increment per move in milliseconds. */
+    long incrementMillis() {
+        return _increment;
+    }
+
+    /** Start PLAYER's clock unless it is already running, stopping the
+     *  other's without an increment. */
+    void start(Color player) {
+        if (_running != player) {
+            pause();
+            _running = player;
+            _started = _nanoTime.getAsLong();
+        }
+    }
+
+    /** Stop PLAYER's clock after a move, charging the time since it
+     *  started and then adding the increment if PLAYER had time left.
+     *  Returns false iff PLAYER ran out of time. */
+    boolean stop(Color player) {
+        if (_running == player) {
+            pause();
+        }
+        if (_remaining[player.ordinal()] < 0) {
+            return false;
+        }
+        _remaining[player.ordinal()] += _increment;
+        return true;
+    }
+
+    /** Stop whichever clock is running, charging the time since it
+     *  started, without an increment. */
+    void pause() {
+        if (_running != null) {
+            long elapsed = _nanoTime.getAsLong() - _started;
+            _remaining[_running.ordinal()] -= elapsed / 1_000_000;
+            _running = null;
+        }
+    }
+
+    /** Returns the milliseconds PLAYER has left, counting the time since
+     *  PLAYER's clock was started if it is running. */
+    long remainingMillis(Color player) {
+        long result = _remaining[player.ordinal()];
+        if (_running == player) {
+            result -= (_nanoTime.getAsLong() - _started) / 1_000_000;
+        }
+        return result;
+    }
+
+    /** Returns the time PLAYER has left as M:SS.T. */
+    String display(Color player) {
+        long tenths = Math.max(0, remainingMillis(player)) / 100;
+        return String.format("%d:%02d.%d", tenths / 600, tenths / 10 % 60,
+                             tenths % 10);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("red %s, blue %s (%s + %s per move)",
+                             display(RED), display(BLUE),
+                             seconds(_base), seconds(_increment));
+    }
+
+    /** Returns MILLIS as a number of seconds followed by "s". */
+    private static String seconds(long millis) {
+        return millis % 1000 == 0 ? (millis / 1000) + "s"
+            : (millis / 1000.0) + "s";
+    }
+
+    /** Base time in milliseconds. */
+    private final long _base;
+    /** Increment per move in milliseconds. */
+    private final long _increment;
+    /** Source of the time. */
+    private final LongSupplier _nanoTime;
+    /** Milliseconds left for each player, by color ordinal, not counting
+     *  the running clock's current period. */
+    private final long[] _remaining = new long[3];
+    /** The player whose clock is running, or null. */
+    private Color _running;
+    /** Time at which _running's clock started, in nanoseconds. */
+    private long _started;
+}
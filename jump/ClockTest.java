@@ -0,0 +1,78 @@
+package jump61;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static jump61.Color.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of Clock, TimeManager, and timed games.
+ *  @author Brian Su
+ */
+public class ClockTest {
+
+    @Test
+    public void testClock() {
+        long[] now = { 0 };
+        Clock clock = new Clock(10_000, 500, () -> now[0]);
+        clock.start(RED);
+        now[0] += 2_000_000_000L;
+        assertEquals(8_000, clock.remainingMillis(RED));
+        assertTrue(clock.stop(RED));
+        assertEquals(8_500, clock.remainingMillis(RED));
+        clock.start(BLUE);
+        now[0] += 1_000_000_000L;
+        clock.start(BLUE);
+        now[0] += 1_000_000_000L;
+        clock.pause();
+        now[0] += 5_000_000_000L;
+        assertEquals(8_000, clock.remainingMillis(BLUE));
+        assertEquals("0:08.0", clock.display(BLUE));
+        clock.start(BLUE);
+        now[0] += 9_000_000_000L;
+        assertFalse(clock.stop(BLUE));
+        assertEquals(-1_000, clock.remainingMillis(BLUE));
+        assertEquals("0:00.0", clock.display(BLUE));
+        clock.reset();
+        assertEquals(10_000, clock.remainingMillis(BLUE));
+    }
+
+    @Test
+    public void testAllocate() {
+        MutableBoard quiet = new MutableBoard(6);
+        quiet.addSpot(RED, 0);
+        assertEquals(0, TimeManager.allocate(quiet, BLUE,
+                                             Defaults.CLOCK_RESERVE_MILLIS,
+                                             1000));
+        long share = TimeManager.allocate(quiet, BLUE, 60_000, 0);
+        assertTrue(share > 0 && share < 60_000 / 40);
+        assertTrue(TimeManager.allocate(quiet, BLUE, 60_000, 1000)
+                   > share + 500);
+        assertTrue(TimeManager.allocate(quiet, BLUE, 1000, 100_000)
+                   <= 1000 / 4);
+
+        MutableBoard sharp = new MutableBoard(6);
+        for (int c = 1; c <= 6; c += 1) {
+            sharp.set(1, c, sharp.neighbors(1, c), c % 2 == 0 ? RED : BLUE);
+            sharp.set(2, c, sharp.neighbors(2, c), c % 2 == 0 ? BLUE : RED);
+        }
+        assertEquals(1.0, TimeManager.criticality(sharp), 1e-9);
+        assertEquals(0.0, TimeManager.criticality(quiet), 1e-9);
+        assertTrue(TimeManager.allocate(sharp, BLUE, 60_000, 0)
+                   > TimeManager.allocate(quiet, BLUE, 60_000, 0));
+    }
+
+    @Test
+    public void testTimedGame() {
+        StringWriter output = new StringWriter();
+        Game game = new Game(new StringReader("clock 1.5\nauto red\n"
+                                              + "start\nclock\nquit\n"),
+                             new StringWriter(), output, output);
+        game.play();
+        String text = output.toString();
+        assertTrue(text, text.contains(" wins."));
+        assertFalse(text, text.contains("on time"));
+        assertTrue(text, text.contains("(1.5s + 0s per move)"));
+    }
+}
@@ -0,0 +1,26 @@
+package jump61;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight Recorder event for one command executed by a Game.
+ *  @author Brian Su
+ */
+@Name("jump61.CommandExecuted")
+@Label("Command Executed")
+@Category("Jump61")
+@Description("A command read and executed by a game")
+@StackTrace(false)
+class CommandExecutedEvent extends jdk.jfr.Event {
+
+    /** Name of the command. */
+    @Label("Command")
+    String command;
+
+    /** True iff the command failed with an error. */
+    @Label("Failed")
+    boolean failed;
+}
@@ -2,7 +2,8 @@ package jump61;
 
 /** A ConstantBoard is a view of an existing Board that does not allow
  *  modifications. Changes made to the underlying Board are reflected in
- *  ConstantBoards formed from it.
+ *  ConstantBoards formed from it.  To get a view that does not change,
+ *  wrap a snapshot instead (see Board.snapshot).
  *  @author P. N. Hilfinger and Brian Su
  */
 class ConstantBoard extends Board {
@@ -57,6 +58,11 @@ class ConstantBoard extends Board {
         return _board.isLegal(player);
     }
 
+    @Override
+    int legalMoves(Color player, int[] moves) {
+        return _board.legalMoves(player, moves);
+    }
+
     @Override
     int numOfColor(Color color) {
         return _board.numOfColor(color);
@@ -72,6 +78,21 @@ class ConstantBoard extends Board {
         return _board.hashCode();
     }
 
+    @Override
+    long rowVersion(int r) {
+        return _board.rowVersion(r);
+    }
+
+    @Override
+    MutableBoard fork() {
+        return _board.fork();
+    }
+
+    @Override
+    Board snapshot() {
+        return new ConstantBoard(_board.fork());
+    }
+
     @Override
     Square[] getSquares() {
         return _board.getSquares();
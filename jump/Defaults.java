@@ -11,5 +11,66 @@ class Defaults {
     /** Default board size. */
     static final int BOARD_SIZE = 6;
 
+    /** Boards at least this many squares on a side are large: the AI
+     *  neither caches nor ponders on them, and always has a time limit. */
+    static final int LARGE_BOARD = 16;
+
+    /** Milliseconds of search allowed per AI move on a large board when
+     *  the game sets no limit. */
+    static final int LARGE_BOARD_MOVE_MILLIS = 1000;
+
+    /** Maximum number of changed squares a board remembers for undo (a
+     *  power of two). */
+    static final int UNDO_LIMIT = 1 << 20;
+
+    /** Number of moves between full positions saved in a game's history
+     *  (see History). */
+    static final int CHECKPOINT_INTERVAL = 256;
+
+    /** Approximate limit in bytes on the memory used by a game's
+     *  history. */
+    static final long HISTORY_BYTES = 16L << 20;
+
+    /** Directory holding tablebase files (see Tablebase.file); the
+     *  property jump61.tablebases overrides the default. */
+    static final String TABLEBASE_DIR =
+        System.getProperty("jump61.tablebases", "tablebases");
+
+    /** File of evaluation weights (see Evaluator) used by automated
+     *  players if it exists; the property jump61.weights overrides the
+     *  default. */
+    static final String WEIGHTS_FILE =
+        System.getProperty("jump61.weights", "jump61.weights");
+
+    /** Milliseconds of its clock that an AI never plans to use, to cover
+     *  the time between its search stopping and its move being made. */
+    static final long CLOCK_RESERVE_MILLIS = 50;
+
+    /** File holding the search cache shared by processes on this host
+     *  (see SharedSearchCache), given by the property jump61.sharedCache,
+     *  or null for none. */
+    static final String SHARED_CACHE =
+        System.getProperty("jump61.sharedCache");
+
+    /** Approximate size in bytes of a new shared search cache. */
+    static final long SHARED_CACHE_BYTES = 64L << 20;
+
+    /** Default port for server mode. */
+    static final int SERVER_PORT = 6161;
+
+    /** Milliseconds a server session may sit without input before it
+     *  is closed. */
+    static final int SESSION_IDLE_MILLIS = 5 * 60 * 1000;
+
+    /** Milliseconds of search allowed per AI move in server mode. */
+    static final int SERVER_MOVE_MILLIS = 2000;
+
+    /** Milliseconds between writes of the metrics file. */
+    static final int METRICS_DUMP_MILLIS = 10 * 1000;
+
+    /** Number of threads shared by all games for AI search. */
+    static final int SEARCH_THREADS =
+        Runtime.getRuntime().availableProcessors();
+
 
 }
@@ -0,0 +1,106 @@
+package jump61;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+/** Benchmark of DistributedSearch.  Starts WORKERS SearchWorker
+ *  processes on this host, searches POSITIONS random positions on a
+ *  SIZE x SIZE board to DEPTH plies both in this process and split
+ *  among the workers, checks that the two agree, and reports the times
+ *  and the speedup.  The speedup is bounded by the number of cores and
+ *  by how evenly the root moves' subtrees divide.
+ *  Usage: java jump61.DistributedBench [WORKERS [SIZE [DEPTH
+ *         [POSITIONS [SEED]]]]]
+ *  @author Brian Su
+ */
+public class DistributedBench {
+
+    /** Run the benchmark with the parameters in ARGS. */
+    public static void main(String[] args) throws IOException {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int positions = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 61;
+        List<Process> started = new ArrayList<>();
+        DistributedSearch distributed = null;
+        try {
+            List<InetSocketAddress> addresses =
+                SearchWorker.launch(workers, started);
+            distributed = new DistributedSearch(addresses);
+            Random random = new Random(seed);
+            for (int k = 0; k < 3; k += 1) {
+                MutableBoard warmup = position(n, random);
+                new Search(warmup.fork(), null)
+                    .bestMove(warmup.whoseMove(), depth);
+                distributed.bestMove(warmup, warmup.whoseMove(), depth,
+                                     EnumSet.noneOf(Search.Feature.class),
+                                     null);
+            }
+            System.out.printf("%-9s %12s %10s %10s %8s%n", "position",
+                              "nodes", "local ms", "split ms", "speedup");
+            long localTotal = 0, splitTotal = 0;
+            for (int p = 0; p < positions; p += 1) {
+                MutableBoard board = position(n, random);
+                Color who = board.whoseMove();
+                long start = System.nanoTime();
+                Search local = new Search(board.fork(), null);
+                int[] expected = local.bestMove(who, depth);
+                long localNanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                int[] actual = distributed.bestMove(
+                    board, who, depth, EnumSet.noneOf(Search.Feature.class),
+                    null);
+                long splitNanos = System.nanoTime() - start;
+                if (expected[0] != actual[0] || expected[1] != actual[1]) {
+                    throw new AssertionError(String.format(
+                        "position %d: local %d at %d, split %d at %d", p,
+                        expected[0], expected[1], actual[0], actual[1]));
+                }
+                localTotal += localNanos;
+                splitTotal += splitNanos;
+                System.out.printf("%-9d %12d %10.1f %10.1f %8.2f%n", p,
+                                  local.nodes(), localNanos * 1e-6,
+                                  splitNanos * 1e-6,
+                                  (double) localNanos / splitNanos);
+            }
+            System.out.printf("%-9s %12s %10.1f %10.1f %8.2f%n", "total",
+                              "", localTotal * 1e-6, splitTotal * 1e-6,
+                              (double) localTotal / splitTotal);
+            System.out.printf("%d workers, %d cores, %d failures%n",
+                              workers,
+                              Runtime.getRuntime().availableProcessors(),
+                              distributed.failures());
+        } finally {
+            if (distributed != null) {
+                distributed.close();
+            }
+            for (Process worker : started) {
+                worker.destroy();
+            }
+        }
+    }
+
+    /** Returns a position on an N x N board reached by random moves
+     *  chosen with RANDOM, about two per square, with the game not
+     *  over. */
+    static MutableBoard position(int n, Random random) {
+        MutableBoard board = new MutableBoard(n);
+        for (int k = 2 * n * n; k > 0; k -= 1) {
+            int sq;
+            do {
+                sq = random.nextInt(n * n);
+            } while (!board.isLegal(board.whoseMove(), sq));
+            board.addSpot(board.whoseMove(), sq);
+            if (board.getWinner() != null) {
+                board.undo();
+                break;
+            }
+        }
+        return board;
+    }
+}
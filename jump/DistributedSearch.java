@@ -0,0 +1,382 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A search that splits the root moves of a position among SearchWorker
+ *  processes and combines their results.  Each worker searches its share
+ *  of the moves with the same budget and iterative deepening as a local
+ *  Search; the result is the best move at the deepest depth that every
+ *  share completed, so that all the values compared come from searches
+ *  of equal depth and the answer is the one a single Search of that
+ *  depth would give.  Workers are given the budget less a reserve of
+ *  RESERVE_PERCENT percent.  A worker that cannot be reached, fails, or
+ *  does not answer within half the reserve after its budget (and at most
+ *  GRACE_MILLIS after it) is disconnected and its share searched locally
+ *  with the time that remains; it is tried again on the next search.  If
+ *  some share has not even a result of depth 1, the best move is only
+ *  guessed, over all the moves.  A search without a budget waits at most
+ *  UNTIMED_REPLY_MILLIS for each worker, and one whose job is cancelled
+ *  disconnects from its workers at once.  Used by one thread at a
+ *  time.
+ *  @author Brian Su
+ */
+class DistributedSearch {
+
+    /** Most milliseconds allowed beyond a worker's budget for its reply
+     *  to arrive. */
+    static final int GRACE_MILLIS = 500;
+    /** Percentage of a search's budget kept back from the workers, half
+     *  for their replies to arrive and half for searching locally the
+     *  shares of those that fail. */
+    static final int RESERVE_PERCENT = 25;
+    /** Milliseconds allowed for connecting to a worker. */
+    static final int CONNECT_MILLIS = 1000;
+    /** Milliseconds allowed for a worker's reply to a search with no
+     *  time budget. */
+    static final int UNTIMED_REPLY_MILLIS = 30_000;
+    /** Milliseconds between checks of whether a job has stopped while
+     *  waiting for workers. */
+    static final int POLL_MILLIS = 20;
+
+    /** A search using the workers at WORKERS. */
+    DistributedSearch(List<InetSocketAddress> workers) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("no workers");
+        }
+        _links = new ArrayList<>();
+        for (InetSocketAddress address : workers) {
+            _links.add(new Link(address));
+        }
+        _calls = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "jump61-coordinator");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /** Returns the worker addresses in SPECS, each either HOST:PORT or
+     *  just PORT on the loopback interface.  Throws
+     *  IllegalArgumentException if one is malformed. */
+    static List<InetSocketAddress> parse(String... specs) {
+        List<InetSocketAddress> result = new ArrayList<>();
+        for (String spec : specs) {
+            int colon = spec.lastIndexOf(':');
+            String host = colon < 0 ? null : spec.substring(0, colon);
+            int port = Integer.parseInt(spec.substring(colon + 1));
+            if (port <= 0 || port > 0xffff) {
+                throw new IllegalArgumentException("bad port: " + spec);
+            }
+            result.add(host == null
+                       ? new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                               port)
+                       : new InetSocketAddress(host, port));
+        }
+        return result;
+    }
+
+    /** Returns an array containing the value and the best move for WHO
+     *  on BOARD, as for Search.bestMove, searching to at most MAXDEPTH
+     *  plies with FEATURES and stopping when JOB (if not null) says to.
+     *  BOARD is not changed. */
+    int[] bestMove(Board board, Color who, int maxDepth,
+                   Set<Search.Feature> features, SearchScheduler.Job<?> job) {
+        Search probe = new Search(board.fork(), null);
+        ArrayList<Integer> moves =
+            Symmetry.distinctMoves(board, probe.generateMoves(who));
+        int shares = Math.min(_links.size(), moves.size());
+        List<List<Integer>> split = new ArrayList<>();
+        for (int k = 0; k < shares; k += 1) {
+            split.add(new ArrayList<>());
+        }
+        for (int i = 0; i < moves.size(); i += 1) {
+            split.get(i % shares).add(moves.get(i));
+        }
+        long millis = job == null || job.unlimited() ? -1
+            : Math.max(1, TimeUnit.NANOSECONDS.toMillis(job.remainingNanos()));
+        long reserve = millis * RESERVE_PERCENT / 100,
+            workerMillis = millis < 0 ? -1 : Math.max(1, millis - reserve);
+        int timeout = millis < 0 ? UNTIMED_REPLY_MILLIS
+            : (int) Math.min(Integer.MAX_VALUE, workerMillis
+                             + Math.min(GRACE_MILLIS, reserve / 2));
+        String position = encode(board, maxDepth, workerMillis, features);
+        _nodes.set(0);
+        List<Future<int[][]>> results = new ArrayList<>();
+        for (int k = 0; k < shares; k += 1) {
+            Link link = _links.get(k);
+            List<Integer> share = split.get(k);
+            Board copy = board.fork();
+            results.add(_calls.submit(() -> searchShare(link, position,
+                                                        timeout, share,
+                                                        copy, who,
+                                                        maxDepth, features,
+                                                        job)));
+        }
+        int[][][] byShare = new int[shares][][];
+        boolean disconnected = false;
+        for (int k = 0; k < shares; k += 1) {
+            while (byShare[k] == null) {
+                try {
+                    byShare[k] =
+                        results.get(k).get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException excp) {
+                    if (!disconnected && job != null && job.stopped()) {
+                        disconnected = true;
+                        disconnect();
+                    }
+                } catch (InterruptedException excp) {
+                    Thread.currentThread().interrupt();
+                    disconnect();
+                    byShare[k] = new int[1][];
+                } catch (ExecutionException excp) {
+                    byShare[k] = new int[1][];
+                }
+            }
+        }
+        int[] best = combine(byShare, moves);
+        if (best == null) {
+            _completedDepth = 0;
+            return probe.guessBestMove(who, moves);
+        }
+        return best;
+    }
+
+    /** Returns the depth completed by the last search by every share
+     *  whose result was used. */
+    int completedDepth() {
+        return _completedDepth;
+    }
+
+    /** Returns the number of positions searched, by workers and locally,
+     *  in the last search. */
+    long nodes() {
+        return _nodes.get();
+    }
+
+    /** Returns the number of times a worker has failed or timed out and
+     *  its share been searched locally. */
+    int failures() {
+        return _failures.get();
+    }
+
+    /** Disconnect from my workers. */
+    void close() {
+        disconnect();
+        _calls.shutdownNow();
+    }
+
+    /** Close my connections to my workers, so that calls waiting on them
+     *  fail at once.  They reconnect on their next call. */
+    private void disconnect() {
+        for (Link link : _links) {
+            link.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner result = new StringJoiner(" ");
+        for (Link link : _links) {
+            result.add(link._address.getHostString() + ":"
+                       + link._address.getPort());
+        }
+        return result.toString();
+    }
+
+    /** Search SHARE, the root moves allotted to LINK, by sending it the
+     *  request for POSITION (see encode) and waiting at most TIMEOUT
+     *  milliseconds for the reply.  If that fails, search
+     *  them locally on BOARD, which is mine to change, for WHO to MAXDEPTH
+     *  with FEATURES under JOB.
+     *  Returns the results for depths 1 to the depth completed, at
+     *  indices 1 on. */
+    private int[][] searchShare(Link link, String position, int timeout,
+                                List<Integer> share, Board board, Color who,
+                                int maxDepth, Set<Search.Feature> features,
+                                SearchScheduler.Job<?> job) {
+        StringJoiner root = new StringJoiner(",");
+        for (int move : share) {
+            root.add(Integer.toString(move));
+        }
+        try {
+            String reply = link.call(position + " " + root, timeout);
+            return parseReply(reply);
+        } catch (IOException | IllegalArgumentException excp) {
+            link.close();
+            _failures.incrementAndGet();
+        }
+        Search search = new Search(board, job);
+        search.setFeatures(features);
+        search.setEvaluator(Evaluator.standard());
+        search.setRootMoves(share);
+        search.bestMove(who, maxDepth);
+        _nodes.addAndGet(search.nodes());
+        int[][] result = new int[search.completedDepth() + 1][];
+        for (int d = 1; d < result.length; d += 1) {
+            result[d] = search.result(d);
+        }
+        return result;
+    }
+
+    /** Returns the results in worker reply REPLY, indexed by depth,
+     *  adding its positions searched to _nodes.  Throws
+     *  IllegalArgumentException if it is not a result. */
+    private int[][] parseReply(String reply) {
+        String[] words = reply.split(" ");
+        if (!words[0].equals("result") || words.length < 2) {
+            throw new IllegalArgumentException("worker replied: " + reply);
+        }
+        _nodes.addAndGet(Long.parseLong(words[1]));
+        int[][] result = new int[words.length - 1][];
+        for (int d = 1; d < result.length; d += 1) {
+            String[] pair = words[d + 1].split(",");
+            result[d] = new int[] { Integer.parseInt(pair[0]),
+                                    Integer.parseInt(pair[1]) };
+        }
+        return result;
+    }
+
+    /** Returns the best of the results BYSHARE[K][D] (share K's value
+     *  and move at depth D) at the deepest depth that every share
+     *  completed, preferring among equal values the move earliest in
+     *  MOVES, as a single Search would.  Returns null if some share
+     *  completed no depth, since its moves cannot then be compared with
+     *  the others'. */
+    private int[] combine(int[][][] byShare, List<Integer> moves) {
+        int depth = Integer.MAX_VALUE;
+        for (int[][] results : byShare) {
+            depth = Math.min(depth, results.length - 1);
+        }
+        if (depth < 1) {
+            return null;
+        }
+        int[] best = null;
+        for (int[][] results : byShare) {
+            int[] result = results[depth];
+            if (best == null || result[0] > best[0]
+                || result[0] == best[0]
+                   && moves.indexOf(result[1]) < moves.indexOf(best[1])) {
+                best = result;
+            }
+        }
+        _completedDepth = depth;
+        return best.clone();
+    }
+
+    /** Returns the start of a worker request for a search of BOARD to
+     *  MAXDEPTH plies in MILLIS milliseconds with FEATURES, lacking only
+     *  the root moves. */
+    private static String encode(Board board, int maxDepth, long millis,
+                                 Set<Search.Feature> features) {
+        int area = board.size() * board.size();
+        byte[] cells = new byte[area];
+        for (int sq = 0; sq < area; sq += 1) {
+            cells[sq] = (byte) (board.spots(sq) << 2
+                                | board.color(sq).ordinal());
+        }
+        StringJoiner names = new StringJoiner(",");
+        names.setEmptyValue("none");
+        for (Search.Feature feature : features) {
+            names.add(feature.name().toLowerCase());
+        }
+        return String.format("search %d %d %d %s %s", board.numMoves(),
+                             maxDepth, millis, names,
+                             Base64.getEncoder().encodeToString(cells));
+    }
+
+    /** A connection to one worker, opened when first needed. */
+    private static class Link {
+        /** A link to the worker at ADDRESS. */
+        Link(InetSocketAddress address) {
+            _address = address;
+        }
+
+        /** Send REQUEST to my worker and return its reply, waiting at
+         *  most TIMEOUT milliseconds, which is positive, in all. */
+        synchronized String call(String request, int timeout)
+            throws IOException {
+            long start = System.nanoTime();
+            Socket open = _socket;
+            if (open == null) {
+                Socket socket = new Socket();
+                try {
+                    socket.connect(_address,
+                                   Math.min(CONNECT_MILLIS, timeout));
+                    socket.setTcpNoDelay(true);
+                    _in = new BufferedReader(new InputStreamReader(
+                        socket.getInputStream(), StandardCharsets.UTF_8));
+                    _out = new PrintWriter(new OutputStreamWriter(
+                        socket.getOutputStream(), StandardCharsets.UTF_8));
+                } catch (IOException excp) {
+                    socket.close();
+                    throw excp;
+                }
+                _socket = open = socket;
+            }
+            long elapsed =
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            open.setSoTimeout((int) Math.max(1, timeout - elapsed));
+            _out.print(request + "\n");
+            _out.flush();
+            String reply = _in.readLine();
+            if (reply == null) {
+                throw new EOFException("worker closed the connection");
+            }
+            return reply;
+        }
+
+        /** Close my connection, if open. */
+        void close() {
+            Socket socket = _socket;
+            _socket = null;
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException excp) {
+                    /* Nothing more to do. */
+                }
+            }
+        }
+
+        /** Address of my worker. */
+        private final InetSocketAddress _address;
+        /** Open connection, or null. */
+        private volatile Socket _socket;
+        /** Reader on _socket. */
+        private BufferedReader _in;
+        /** Writer on _socket. */
+        private PrintWriter _out;
+    }
+
+    /** Connections to my workers. */
+    private final List<Link> _links;
+    /** Runs the requests to workers. */
+    private final ExecutorService _calls;
+    /** Depth completed by the last search. */
+    private int _completedDepth;
+    /** Positions searched in the last search. */
+    private final AtomicLong _nodes = new AtomicLong();
+    /** Number of worker failures. */
+    private final AtomicInteger _failures = new AtomicInteger();
+}
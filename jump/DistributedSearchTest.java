@@ -0,0 +1,218 @@
+package jump61;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of DistributedSearch and SearchWorker.
+ *  @author Brian Su
+ */
+public class DistributedSearchTest {
+
+    /** Returns the address of a new SearchWorker in this process. */
+    private InetSocketAddress startWorker() throws IOException {
+        SearchWorker worker = new SearchWorker(0, 1);
+        Thread thread = new Thread(worker::serve);
+        thread.setDaemon(true);
+        thread.start();
+        return address(worker.port());
+    }
+
+    /** Returns the address of a server in this process that answers
+     *  every connection by sending REPLY, if not null, and otherwise
+     *  nothing, while keeping it open. */
+    private InetSocketAddress startImpostor(String reply) throws IOException {
+        ServerSocket listener =
+            new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+        List<Socket> kept = new ArrayList<>();
+        Thread thread = new Thread(() -> {
+                while (true) {
+                    try {
+                        Socket client = listener.accept();
+                        kept.add(client);
+                        if (reply != null) {
+                            OutputStream out = client.getOutputStream();
+                            out.write((reply + "\n")
+                                      .getBytes(StandardCharsets.UTF_8));
+                            out.flush();
+                        }
+                    } catch (IOException excp) {
+                        return;
+                    }
+                }
+            });
+        thread.setDaemon(true);
+        thread.start();
+        return address(listener.getLocalPort());
+    }
+
+    /** Returns the loopback address with port PORT. */
+    private InetSocketAddress address(int port) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /** Returns a loopback port on which nothing is listening. */
+    private int unusedPort() throws IOException {
+        try (ServerSocket socket =
+             new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /** Returns a position on an N x N board after a random number of
+     *  random moves chosen with RANDOM, with the game not over. */
+    private MutableBoard position(int n, Random random) {
+        MutableBoard board = new MutableBoard(n);
+        int moves = 2 + random.nextInt(3 * n);
+        for (int k = 0; k < moves; k += 1) {
+            int sq;
+            do {
+                sq = random.nextInt(n * n);
+            } while (!board.isLegal(board.whoseMove(), sq));
+            board.addSpot(board.whoseMove(), sq);
+            if (board.getWinner() != null) {
+                board.undo();
+                break;
+            }
+        }
+        return board;
+    }
+
+    @Test
+    public void testMatchesLocalSearch() throws IOException {
+        List<InetSocketAddress> workers = new ArrayList<>();
+        for (int k = 0; k < 3; k += 1) {
+            workers.add(startWorker());
+        }
+        DistributedSearch distributed = new DistributedSearch(workers);
+        Random random = new Random(61);
+        try {
+            for (int k = 0; k < 10; k += 1) {
+                MutableBoard board = position(4, random);
+                String before = board.toString();
+                Color who = board.whoseMove();
+                int[] expected = new Search(board.fork(), null)
+                    .bestMove(who, 3);
+                int[] actual = distributed.bestMove(
+                    board, who, 3, EnumSet.noneOf(Search.Feature.class),
+                    null);
+                assertArrayEquals(expected, actual);
+                assertEquals(3, distributed.completedDepth());
+                assertTrue(distributed.nodes() > 0);
+                assertEquals(before, board.toString());
+                Search pvs = new Search(board.fork(), null);
+                pvs.setFeatures(EnumSet.of(Search.Feature.PVS));
+                actual = distributed.bestMove(
+                    board, who, 3, EnumSet.of(Search.Feature.PVS), null);
+                assertEquals(pvs.bestMove(who, 3)[0], actual[0]);
+            }
+            assertEquals(0, distributed.failures());
+        } finally {
+            distributed.close();
+        }
+    }
+
+    @Test
+    public void testFailingWorkers() throws IOException {
+        List<InetSocketAddress> workers = new ArrayList<>();
+        workers.add(startWorker());
+        workers.add(address(unusedPort()));
+        workers.add(startImpostor("result 1 nonsense"));
+        DistributedSearch distributed = new DistributedSearch(workers);
+        try {
+            MutableBoard board = position(4, new Random(61));
+            Color who = board.whoseMove();
+            int[] expected = new Search(board.fork(), null).bestMove(who, 3);
+            assertArrayEquals(expected, distributed.bestMove(
+                board, who, 3, EnumSet.noneOf(Search.Feature.class), null));
+            assertEquals(2, distributed.failures());
+            assertEquals(3, distributed.completedDepth());
+        } finally {
+            distributed.close();
+        }
+    }
+
+    @Test
+    public void testSilentWorker() throws Exception {
+        List<InetSocketAddress> workers = new ArrayList<>();
+        workers.add(startWorker());
+        workers.add(startImpostor(null));
+        DistributedSearch distributed = new DistributedSearch(workers);
+        SearchScheduler scheduler = new SearchScheduler(1);
+        try {
+            MutableBoard board = position(6, new Random(61));
+            Color who = board.whoseMove();
+            long start = System.nanoTime();
+            SearchScheduler.Job<int[]> search =
+                scheduler.submit(this, 200, job -> distributed.bestMove(
+                    board, who, 40, EnumSet.noneOf(Search.Feature.class),
+                    job));
+            int[] result = search.get();
+            long millis = (System.nanoTime() - start) / 1000000;
+            assertTrue(board.isLegal(who, result[1]));
+            assertEquals(1, distributed.failures());
+            assertTrue(distributed.completedDepth() >= 1);
+            assertTrue("took " + millis + " ms", millis < 200 + 100);
+        } finally {
+            scheduler.shutdown();
+            distributed.close();
+        }
+    }
+
+    @Test
+    public void testCancelWhileWorkerSilent() throws Exception {
+        List<InetSocketAddress> workers = new ArrayList<>();
+        workers.add(startImpostor(null));
+        DistributedSearch distributed = new DistributedSearch(workers);
+        SearchScheduler scheduler = new SearchScheduler(1);
+        try {
+            MutableBoard board = position(6, new Random(61));
+            Color who = board.whoseMove();
+            SearchScheduler.Job<int[]> search =
+                scheduler.submit(this, -1, job -> distributed.bestMove(
+                    board, who, 40, EnumSet.noneOf(Search.Feature.class),
+                    job));
+            Thread.sleep(200);
+            long start = System.nanoTime();
+            search.cancel();
+            try {
+                search.get();
+                fail("cancelled search returned a result");
+            } catch (CancellationException excp) {
+                /* Expected. */
+            }
+            long millis = (System.nanoTime() - start) / 1000000;
+            assertTrue("took " + millis + " ms", millis < 1000);
+            assertEquals(1, distributed.failures());
+        } finally {
+            scheduler.shutdown();
+            distributed.close();
+        }
+    }
+
+    @Test
+    public void testParse() {
+        List<InetSocketAddress> addresses =
+            DistributedSearch.parse("7001", "localhost:7002");
+        assertEquals(7001, addresses.get(0).getPort());
+        assertEquals("localhost", addresses.get(1).getHostString());
+        try {
+            DistributedSearch.parse("host:x");
+            fail("accepted a bad port");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+}
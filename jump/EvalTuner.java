@@ -0,0 +1,501 @@
+package jump61;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/** Fits the weights of an Evaluator to the outcomes of games.  Labelled
+ *  positions (each with the player to move and whether that player went
+ *  on to win) come from self-play or from files saved earlier.  Their
+ *  features are extracted in bulk, in parallel, from positions packed
+ *  one byte per square into one array, and the weights are fitted by
+ *  logistic regression, as in Texel tuning: the probability that the
+ *  player to move wins is modelled as the logistic function of the
+ *  weighted sum of the features, and the weights that minimize the
+ *  log-loss are found by Newton's method, summing the gradient and
+ *  Hessian over the positions in parallel.  The result is written as a
+ *  weights file, which automated players load when it is at
+ *  Defaults.WEIGHTS_FILE.
+ *  Usage: java jump61.EvalTuner [--size N] [--games G] [--seed S]
+ *         [--load FILE]... [--save FILE] [--threads T]
+ *         [--iterations I] [--out WEIGHTS]
+ *  plays G games on N x N boards unless positions are loaded.
+ *  @author Brian Su
+ */
+public class EvalTuner {
+
+    /** Labelled positions of one board size, packed into arrays. */
+    static final class Samples {
+
+        /** An empty set of positions on N x N boards. */
+        Samples(int n) {
+            _n = n;
+            _cells = new byte[INITIAL * n * n];
+            _movers = new byte[INITIAL];
+            _labels = new byte[INITIAL];
+        }
+
+        /** Returns the size of my boards. */
+        int size() {
+            return _n;
+        }
+
+        /** Returns the number of positions. */
+        int count() {
+            return _count;
+        }
+
+        /** Returns the array of my positions, position K occupying the N*N
+         *  bytes from K*N*N, as for MutableBoard.encode. */
+        byte[] cells() {
+            return _cells;
+        }
+
+        /** Returns the ordinal of the color to move in position K. */
+        int mover(int k) {
+            return _movers[k];
+        }
+
+        /** Returns 1 if the player to move in position K won, else 0. */
+        int label(int k) {
+            return _labels[k];
+        }
+
+        /** Add the position packed in CELLS from index FROM with the
+         *  player whose ordinal is MOVER to move, who won iff WON. */
+        void add(byte[] cells, int from, int mover, boolean won) {
+            int area = _n * _n;
+            if (_count == _movers.length) {
+                if ((long) 2 * _count * area > Integer.MAX_VALUE - 8) {
+                    throw new IllegalArgumentException("too many positions");
+                }
+                _cells = Arrays.copyOf(_cells, 2 * _count * area);
+                _movers = Arrays.copyOf(_movers, 2 * _count);
+                _labels = Arrays.copyOf(_labels, 2 * _count);
+            }
+            System.arraycopy(cells, from, _cells, _count * area, area);
+            _movers[_count] = (byte) mover;
+            _labels[_count] = (byte) (won ? 1 : 0);
+            _count += 1;
+        }
+
+        /** Add all of OTHER's positions, which must have my size. */
+        void addAll(Samples other) {
+            int area = _n * _n;
+            for (int k = 0; k < other._count; k += 1) {
+                add(other._cells, k * area, other._movers[k],
+                    other._labels[k] == 1);
+            }
+        }
+
+        /** Write my positions to FILE, replacing its contents. */
+        void write(Path file) throws IOException {
+            int area = _n * _n;
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(file)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(_n);
+                out.writeInt(_count);
+                for (int k = 0; k < _count; k += 1) {
+                    out.writeByte(_movers[k]);
+                    out.writeByte(_labels[k]);
+                    out.write(_cells, k * area, area);
+                }
+            }
+        }
+
+        /** Returns the positions written to FILE by write.  Throws
+         *  IllegalArgumentException if it is not such a file. */
+        static Samples read(Path file) throws IOException {
+            try (DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(Files.newInputStream(file)))) {
+                int n;
+                if (in.readInt() != MAGIC || (n = in.readInt()) < 2
+                    || n > Transcripts.MAX_SIZE) {
+                    throw new IllegalArgumentException(file
+                                                       + ": not positions");
+                }
+                int count = in.readInt();
+                Samples result = new Samples(n);
+                byte[] cells = new byte[n * n];
+                for (int k = 0; k < count; k += 1) {
+                    int mover = in.readByte(), label = in.readByte();
+                    in.readFully(cells);
+                    result.add(cells, 0, mover, label == 1);
+                }
+                return result;
+            }
+        }
+
+        /** Magic number at the start of a positions file. */
+        static final int MAGIC = 0x4a363150;
+        /** Initial capacity. */
+        private static final int INITIAL = 1024;
+
+        /** Board size. */
+        private final int _n;
+        /** Number of positions. */
+        private int _count;
+        /** Packed positions. */
+        private byte[] _cells;
+        /** Colors to move, by ordinal. */
+        private byte[] _movers;
+        /** Outcomes for the players to move. */
+        private byte[] _labels;
+    }
+
+    /** Tune weights as directed by ARGS. */
+    public static void main(String[] args)
+        throws IOException, InterruptedException, ExecutionException {
+        int n = Defaults.BOARD_SIZE, games = DEFAULT_GAMES,
+            threads = Runtime.getRuntime().availableProcessors(),
+            iterations = DEFAULT_ITERATIONS;
+        long seed = 61;
+        List<Path> loads = new ArrayList<>();
+        Path save = null, out = Paths.get(Defaults.WEIGHTS_FILE);
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                String value = args[i + 1];
+                switch (args[i++]) {
+                case "--size":
+                    n = Integer.parseInt(value);
+                    break;
+                case "--games":
+                    games = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--load":
+                    loads.add(Paths.get(value));
+                    break;
+                case "--save":
+                    save = Paths.get(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(value);
+                    break;
+                case "--out":
+                    out = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException(args[i - 1]);
+                }
+            }
+            if (n < 2 || n > Transcripts.MAX_SIZE || games < 1
+                || threads < 1 || iterations < 1) {
+                throw new IllegalArgumentException("bad value");
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.err.println("Usage: java jump61.EvalTuner [--size N] "
+                               + "[--games G] [--seed S] [--load FILE]... "
+                               + "[--save FILE] [--threads T] "
+                               + "[--iterations I] [--out WEIGHTS]");
+            System.exit(1);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            Samples samples;
+            if (loads.isEmpty()) {
+                samples = selfPlay(n, games, seed, pool);
+                System.out.printf("played %d games: %d positions in %.1f s%n",
+                                  games, samples.count(), seconds(start));
+            } else {
+                samples = Samples.read(loads.get(0));
+                for (Path file : loads.subList(1, loads.size())) {
+                    Samples more = Samples.read(file);
+                    if (more.size() != samples.size()) {
+                        throw new IllegalArgumentException(
+                            file + ": board size differs");
+                    }
+                    samples.addAll(more);
+                }
+                System.out.printf("loaded %d positions in %.1f s%n",
+                                  samples.count(), seconds(start));
+            }
+            if (save != null) {
+                samples.write(save);
+            }
+            start = System.nanoTime();
+            int[] features = extract(samples, pool);
+            double elapsed = seconds(start);
+            System.out.printf("extracted features in %.2f s: %.0f "
+                              + "positions/s%n", elapsed,
+                              samples.count() / elapsed);
+            double[] material = new double[Evaluator.COUNT];
+            material[0] = 1;
+            double[] before = loss(samples, features, material, pool);
+            start = System.nanoTime();
+            double[] weights = fit(samples, features, iterations, pool);
+            elapsed = seconds(start);
+            double[] after = loss(samples, features, weights, pool);
+            System.out.printf("fitted in %.2f s: %.0f positions/s per "
+                              + "iteration%n", elapsed,
+                              samples.count() * (double) iterations
+                              / elapsed);
+            System.out.printf("material alone: accuracy %.3f%n",
+                              before[1]);
+            System.out.printf("fitted weights: loss %.4f, accuracy %.3f%n",
+                              after[0], after[1]);
+            Evaluator evaluator = new Evaluator(weights);
+            evaluator.write(out, String.format(
+                "fitted to %d positions on %dx%d boards, loss %.4f",
+                samples.count(), samples.size(), samples.size(), after[0]));
+            for (int k = 0; k < Evaluator.COUNT; k += 1) {
+                System.out.printf("%-9s %10.4f%n", Evaluator.FEATURES[k],
+                                  weights[k]);
+            }
+            System.out.printf("wrote %s%n", out);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Returns the positions of GAMES games of self-play on N x N boards,
+     *  played on POOL, game K with the random seed SEED + K.  Each player
+     *  makes a random move with probability EXPLORE and otherwise the
+     *  move that gains it most material at once.  Games that last more
+     *  than MAX_MOVES_PER_SQUARE moves per square are dropped. */
+    static Samples selfPlay(int n, int games, long seed, ForkJoinPool pool)
+        throws InterruptedException, ExecutionException {
+        Samples[] played = pool.submit(
+            () -> IntStream.range(0, games).parallel()
+            .mapToObj(k -> playGame(n, new Random(seed + k)))
+            .toArray(Samples[]::new)).get();
+        Samples result = new Samples(n);
+        for (Samples game : played) {
+            result.addAll(game);
+        }
+        return result;
+    }
+
+    /** Returns the positions of one game of self-play on an N x N board
+     *  using RANDOM, labelled with its outcome, or no positions if it
+     *  lasts too long. */
+    private static Samples playGame(int n, Random random) {
+        MutableBoard board = new MutableBoard(n);
+        int area = n * n;
+        List<byte[]> positions = new ArrayList<>();
+        int[] moves = new int[area];
+        while (board.getWinner() == null) {
+            if (positions.size() > MAX_MOVES_PER_SQUARE * area) {
+                return new Samples(n);
+            }
+            positions.add(board.encode());
+            Color who = board.whoseMove();
+            int count = board.legalMoves(who, moves);
+            int best = moves[random.nextInt(count)];
+            if (random.nextDouble() >= EXPLORE) {
+                int bestValue = Integer.MIN_VALUE;
+                int offset = random.nextInt(count);
+                for (int i = 0; i < count; i += 1) {
+                    int move = moves[(i + offset) % count];
+                    board.addSpot(who, move);
+                    int value = board.numOfColor(who)
+                        - board.numOfColor(who.opposite());
+                    board.undo();
+                    if (value > bestValue) {
+                        best = move;
+                        bestValue = value;
+                    }
+                }
+            }
+            board.addSpot(who, best);
+        }
+        Samples result = new Samples(n);
+        Color winner = board.getWinner();
+        for (int k = 0; k < positions.size(); k += 1) {
+            Color mover = k % 2 == 0 ? Color.RED : Color.BLUE;
+            result.add(positions.get(k), 0, mover.ordinal(), mover == winner);
+        }
+        return result;
+    }
+
+    /** Returns the features of SAMPLES, those of position K at indices
+     *  K * Evaluator.COUNT on, extracted in parallel on POOL. */
+    static int[] extract(Samples samples, ForkJoinPool pool)
+        throws InterruptedException, ExecutionException {
+        int n = samples.size(), area = n * n;
+        byte[] cells = samples.cells();
+        int[] result = new int[samples.count() * Evaluator.COUNT];
+        pool.submit(() -> IntStream.range(0, samples.count()).parallel()
+                    .forEach(k -> Evaluator.extract(cells, k * area, n,
+                                                    samples.mover(k), result,
+                                                    k * Evaluator.COUNT)))
+            .get();
+        return result;
+    }
+
+    /** Returns the weights fitted to SAMPLES, whose features are
+     *  FEATURES (as from extract), by at most ITERATIONS steps of Newton's
+     *  method on POOL. */
+    static double[] fit(Samples samples, int[] features, int iterations,
+                        ForkJoinPool pool)
+        throws InterruptedException, ExecutionException {
+        int m = Evaluator.COUNT;
+        double[] weights = new double[m];
+        for (int i = 0; i < iterations; i += 1) {
+            double[] sums = sums(samples, features, weights, pool);
+            double[][] hessian = new double[m][m + 1];
+            double total = Math.max(1, samples.count());
+            for (int j = 0; j < m; j += 1) {
+                for (int k = 0; k < m; k += 1) {
+                    hessian[j][k] = sums[2 + m + j * m + k] / total;
+                }
+                hessian[j][j] += RIDGE;
+                hessian[j][m] = sums[2 + j] / total + RIDGE * weights[j];
+            }
+            double[] step = solve(hessian);
+            double largest = 0;
+            for (int j = 0; j < m; j += 1) {
+                weights[j] -= step[j];
+                largest = Math.max(largest, Math.abs(step[j]));
+            }
+            if (largest < TOLERANCE) {
+                break;
+            }
+        }
+        return weights;
+    }
+
+    /** Returns the mean log-loss and the fraction of outcomes predicted
+     *  correctly by WEIGHTS for SAMPLES, whose features are FEATURES,
+     *  computed on POOL. */
+    static double[] loss(Samples samples, int[] features, double[] weights,
+                         ForkJoinPool pool)
+        throws InterruptedException, ExecutionException {
+        double[] sums = sums(samples, features, weights, pool);
+        double total = Math.max(1, samples.count());
+        return new double[] { sums[0] / total, sums[1] / total };
+    }
+
+    /** Returns, for the model with WEIGHTS over SAMPLES with FEATURES,
+     *  the total log-loss, the number of outcomes predicted correctly,
+     *  the gradient of the total log-loss, and its Hessian by rows,
+     *  summed over blocks of positions in parallel on POOL. */
+    private static double[] sums(Samples samples, int[] features,
+                                 double[] weights, ForkJoinPool pool)
+        throws InterruptedException, ExecutionException {
+        int m = Evaluator.COUNT, count = samples.count();
+        int blocks = (count + BLOCK - 1) / BLOCK;
+        return pool.submit(() -> IntStream.range(0, blocks).parallel()
+            .mapToObj(b -> blockSums(samples, features, weights, b * BLOCK,
+                                     Math.min(count, (b + 1) * BLOCK)))
+            .reduce(new double[2 + m + m * m], EvalTuner::add)).get();
+    }
+
+    /** Returns the sums described in sums over positions FROM to TO - 1
+     *  only. */
+    private static double[] blockSums(Samples samples, int[] features,
+                                      double[] weights, int from, int to) {
+        int m = Evaluator.COUNT;
+        double[] result = new double[2 + m + m * m];
+        for (int k = from; k < to; k += 1) {
+            int at = k * m;
+            double z = 0;
+            for (int j = 0; j < m; j += 1) {
+                z += weights[j] * features[at + j];
+            }
+            double p = 1 / (1 + Math.exp(-z));
+            int y = samples.label(k);
+            result[0] += y == 1 ? -Math.log(Math.max(p, MIN_PROBABILITY))
+                : -Math.log(Math.max(1 - p, MIN_PROBABILITY));
+            if ((p > 0.5) == (y == 1)) {
+                result[1] += 1;
+            }
+            double error = p - y, curve = p * (1 - p);
+            for (int j = 0; j < m; j += 1) {
+                int fj = features[at + j];
+                if (fj == 0) {
+                    continue;
+                }
+                result[2 + j] += error * fj;
+                for (int i = 0; i < m; i += 1) {
+                    result[2 + m + j * m + i] += curve * fj * features[at + i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns the elementwise sum of A and B. */
+    private static double[] add(double[] a, double[] b) {
+        double[] result = new double[a.length];
+        for (int i = 0; i < a.length; i += 1) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+
+    /** Returns the solution of the linear system whose augmented matrix
+     *  is SYSTEM, destroying SYSTEM.  Gaussian elimination with partial
+     *  pivoting; the matrix must be nonsingular. */
+    private static double[] solve(double[][] system) {
+        int m = system.length;
+        for (int c = 0; c < m; c += 1) {
+            int pivot = c;
+            for (int r = c + 1; r < m; r += 1) {
+                if (Math.abs(system[r][c]) > Math.abs(system[pivot][c])) {
+                    pivot = r;
+                }
+            }
+            double[] row = system[pivot];
+            system[pivot] = system[c];
+            system[c] = row;
+            for (int r = c + 1; r < m; r += 1) {
+                double factor = system[r][c] / row[c];
+                for (int k = c; k <= m; k += 1) {
+                    system[r][k] -= factor * row[k];
+                }
+            }
+        }
+        double[] result = new double[m];
+        for (int r = m - 1; r >= 0; r -= 1) {
+            double sum = system[r][m];
+            for (int k = r + 1; k < m; k += 1) {
+                sum -= system[r][k] * result[k];
+            }
+            result[r] = sum / system[r][r];
+        }
+        return result;
+    }
+
+    /** Returns the seconds since the System.nanoTime() value START. */
+    private static double seconds(long start) {
+        return (System.nanoTime() - start) * 1e-9;
+    }
+
+    /** Games of self-play by default. */
+    static final int DEFAULT_GAMES = 2000;
+    /** Newton steps by default. */
+    static final int DEFAULT_ITERATIONS = 20;
+    /** Probability of a random move in self-play. */
+    static final double EXPLORE = 0.3;
+    /** Moves per square after which a game of self-play is dropped. */
+    static final int MAX_MOVES_PER_SQUARE = 50;
+    /** Weight of the L2 penalty that keeps the fit well-posed when a
+     *  feature never varies. */
+    static final double RIDGE = 1e-6;
+    /** Largest change of a weight at which fitting stops. */
+    static final double TOLERANCE = 1e-7;
+    /** Least probability whose logarithm is taken. */
+    private static final double MIN_PROBABILITY = 1e-12;
+    /** Positions summed by one parallel task. */
+    private static final int BLOCK = 1 << 14;
+}
@@ -0,0 +1,214 @@
+package jump61;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/** A static evaluation of positions: a weighted sum of FEATURES, each
+ *  the difference between the player's count and the opponent's, scaled
+ *  by SCALE and rounded.  Features are computed from positions packed as
+ *  by MutableBoard.encode, so that EvalTuner can extract them in bulk.
+ *  Weights are kept in text files of lines "FEATURE WEIGHT", in which
+ *  blank lines and lines starting with "#" are ignored and features not
+ *  mentioned have weight 0.  An Evaluator is immutable and may be shared
+ *  among threads.
+ *  @author Brian Su
+ */
+final class Evaluator {
+
+    /** Names of the features, in order: squares owned, spots on them,
+     *  squares owned that will jump on their next spot, corners owned,
+     *  other edge squares owned, and squares owned next to an opponent's
+     *  square that will jump on its next spot. */
+    static final String[] FEATURES = {
+        "material", "spots", "critical", "corners", "edges", "exposed"
+    };
+    /** Number of features. */
+    static final int COUNT = FEATURES.length;
+    /** Factor applied to weighted sums before rounding to values. */
+    static final int SCALE = 1000;
+
+    /** An evaluator with weights WEIGHTS, one per feature. */
+    Evaluator(double[] weights) {
+        if (weights.length != COUNT) {
+            throw new IllegalArgumentException("wrong number of weights");
+        }
+        _weights = weights.clone();
+    }
+
+    /** Returns the evaluator whose weights are in the file
+     *  Defaults.WEIGHTS_FILE, reading it on first use, or null if there is
+     *  none or it cannot be read. */
+    static synchronized Evaluator standard() {
+        if (!_looked) {
+            _looked = true;
+            Path file = Paths.get(Defaults.WEIGHTS_FILE);
+            if (Files.isReadable(file)) {
+                try {
+                    _standard = read(file);
+                } catch (IOException | IllegalArgumentException excp) {
+                    System.err.printf("Error: cannot use weights %s: %s%n",
+                                      file, excp.getMessage());
+                }
+            }
+        }
+        return _standard;
+    }
+
+    /** Returns the evaluator whose weights are in FILE.  Throws
+     *  IllegalArgumentException if FILE is malformed. */
+    static Evaluator read(Path file) throws IOException {
+        double[] weights = new double[COUNT];
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] words = line.split("\\s+");
+            int k = List.of(FEATURES).indexOf(words[0]);
+            if (k < 0 || words.length != 2) {
+                throw new IllegalArgumentException("bad line: " + line);
+            }
+            weights[k] = Double.parseDouble(words[1]);
+        }
+        return new Evaluator(weights);
+    }
+
+    /** Write my weights to FILE, preceded by the comment COMMENT. */
+    void write(Path file, String comment) throws IOException {
+        try (BufferedWriter out =
+             Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# " + comment);
+            out.newLine();
+            for (int k = 0; k < COUNT; k += 1) {
+                out.write(String.format("%s %.6f", FEATURES[k], _weights[k]));
+                out.newLine();
+            }
+        }
+    }
+
+    /** Returns the weight of feature K. */
+    double weight(int k) {
+        return _weights[k];
+    }
+
+    /** Returns a string that differs between evaluators with different
+     *  weights. */
+    String signature() {
+        StringBuilder result = new StringBuilder();
+        for (double weight : _weights) {
+            result.append(' ').append(Double.toHexString(weight));
+        }
+        return result.toString();
+    }
+
+    /** Returns the value of the position on BOARD, which no one has won,
+     *  for player P.  Higher is better for P. */
+    int value(Board board, Color p) {
+        int n = board.size();
+        byte[] cells = new byte[n * n];
+        for (int sq = 0; sq < cells.length; sq += 1) {
+            cells[sq] = (byte) (board.spots(sq) << 2
+                                | board.color(sq).ordinal());
+        }
+        int[] features = new int[COUNT];
+        extract(cells, 0, n, p.ordinal(), features, 0);
+        return value(features, 0);
+    }
+
+    /** Returns my value for the features FEATURES[AT] to
+     *  FEATURES[AT + COUNT - 1]. */
+    int value(int[] features, int at) {
+        double sum = 0;
+        for (int k = 0; k < COUNT; k += 1) {
+            sum += _weights[k] * features[at + k];
+        }
+        return (int) Math.round(SCALE * sum);
+    }
+
+    /** Store in FEATURES[AT] to FEATURES[AT + COUNT - 1] the features,
+     *  for the player whose color has ordinal PLAYER, of the N x N
+     *  position packed as by MutableBoard.encode in CELLS[FROM] to
+     *  CELLS[FROM + N * N - 1]. */
+    static void extract(byte[] cells, int from, int n, int player,
+                        int[] features, int at) {
+        int opponent = 3 - player;
+        int[] mine = new int[COUNT], theirs = new int[COUNT];
+        for (int r = 0; r < n; r += 1) {
+            for (int c = 0; c < n; c += 1) {
+                int cell = cells[from + r * n + c];
+                int owner = cell & 3;
+                if (owner != player && owner != opponent) {
+                    continue;
+                }
+                int[] counts = owner == player ? mine : theirs;
+                int nbrs = neighbors(r, c, n);
+                counts[0] += 1;
+                counts[1] += cell >>> 2;
+                if (cell >>> 2 == nbrs) {
+                    counts[2] += 1;
+                }
+                if (nbrs == 2) {
+                    counts[3] += 1;
+                } else if (nbrs == 3) {
+                    counts[4] += 1;
+                }
+                if (threatened(cells, from, n, r, c, 3 - owner)) {
+                    counts[5] += 1;
+                }
+            }
+        }
+        for (int k = 0; k < COUNT; k += 1) {
+            features[at + k] = mine[k] - theirs[k];
+        }
+    }
+
+    /** Returns the number of neighbors of row R, column C (from 0) of an
+     *  N x N board. */
+    private static int neighbors(int r, int c, int n) {
+        int result = 4;
+        if (r == 0 || r == n - 1) {
+            result -= 1;
+        }
+        if (c == 0 || c == n - 1) {
+            result -= 1;
+        }
+        return result;
+    }
+
+    /** Returns true iff a neighbor of row R, column C (from 0) of the
+     *  N x N position in CELLS from index FROM belongs to the player with
+     *  ordinal ENEMY and will jump on its next spot. */
+    private static boolean threatened(byte[] cells, int from, int n,
+                                      int r, int c, int enemy) {
+        return critical(cells, from, n, r - 1, c, enemy)
+            || critical(cells, from, n, r + 1, c, enemy)
+            || critical(cells, from, n, r, c - 1, enemy)
+            || critical(cells, from, n, r, c + 1, enemy);
+    }
+
+    /** Returns true iff row R, column C (from 0) of the N x N position
+     *  in CELLS from index FROM exists, belongs to the player with ordinal
+     *  OWNER, and will jump on its next spot. */
+    private static boolean critical(byte[] cells, int from, int n,
+                                    int r, int c, int owner) {
+        if (r < 0 || r >= n || c < 0 || c >= n) {
+            return false;
+        }
+        int cell = cells[from + r * n + c];
+        return (cell & 3) == owner && cell >>> 2 == neighbors(r, c, n);
+    }
+
+    /** Weights of the features. */
+    private final double[] _weights;
+
+    /** True once standard() has looked for the weights file. */
+    private static boolean _looked;
+    /** The evaluator in the weights file, if any. */
+    private static Evaluator _standard;
+}
@@ -0,0 +1,117 @@
+package jump61;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static jump61.Color.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of Evaluator and EvalTuner.
+ *  @author Brian Su
+ */
+public class EvaluatorTest {
+
+    @Test
+    public void testFeatures() {
+        MutableBoard b = new MutableBoard(3);
+        b.set(1, 1, 2, RED);
+        b.set(1, 2, 1, RED);
+        b.set(2, 2, 4, BLUE);
+        b.set(3, 2, 1, BLUE);
+        int[] features = new int[Evaluator.COUNT];
+        Evaluator.extract(b.encode(), 0, 3, RED.ordinal(), features, 0);
+        assertArrayEquals(new int[] { 0, -2, 0, 1, 0, 1 }, features);
+        Evaluator.extract(b.encode(), 0, 3, BLUE.ordinal(), features, 0);
+        assertArrayEquals(new int[] { 0, 2, 0, -1, 0, -1 }, features);
+    }
+
+    @Test
+    public void testMaterialWeights() {
+        double[] weights = new double[Evaluator.COUNT];
+        weights[0] = 1;
+        Evaluator material = new Evaluator(weights);
+        Random random = new Random(61);
+        MutableBoard b = new MutableBoard(5);
+        for (int k = 0; k < 40 && b.getWinner() == null; k += 1) {
+            int sq;
+            do {
+                sq = random.nextInt(25);
+            } while (!b.isLegal(b.whoseMove(), sq));
+            b.addSpot(b.whoseMove(), sq);
+            for (Color p : new Color[] { RED, BLUE }) {
+                assertEquals(Evaluator.SCALE
+                             * (b.numOfColor(p) - b.numOfColor(p.opposite())),
+                             material.value(b, p));
+            }
+        }
+        b = new MutableBoard(4);
+        b.addSpot(RED, 1, 1);
+        Search plain = new Search(b.fork(), null);
+        Search weighted = new Search(b.fork(), null);
+        weighted.setEvaluator(material);
+        assertEquals(plain.bestMove(BLUE, 3)[1],
+                     weighted.bestMove(BLUE, 3)[1]);
+    }
+
+    @Test
+    public void testWeightsFile() throws IOException {
+        Path file = Files.createTempFile("jump61", ".weights");
+        double[] weights = { 0.5, -0.25, 1, 0, 2, -3 };
+        new Evaluator(weights).write(file, "test");
+        Evaluator read = Evaluator.read(file);
+        for (int k = 0; k < Evaluator.COUNT; k += 1) {
+            assertEquals(weights[k], read.weight(k), 1e-9);
+        }
+        assertEquals(new Evaluator(weights).signature(), read.signature());
+        weights[5] = -3.0000001;
+        assertFalse(new Evaluator(weights).signature()
+                    .equals(read.signature()));
+        Files.write(file, Arrays.asList("# partial", "", "corners 1.5"),
+                    StandardCharsets.UTF_8);
+        read = Evaluator.read(file);
+        assertEquals(1.5, read.weight(3), 0);
+        assertEquals(0, read.weight(0), 0);
+        Files.write(file, Arrays.asList("mobility 1"), StandardCharsets.UTF_8);
+        try {
+            Evaluator.read(file);
+            fail("accepted an unknown feature");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testTuning() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            EvalTuner.Samples samples = EvalTuner.selfPlay(4, 300, 61, pool);
+            assertTrue(samples.count() > 300);
+            Path file = Files.createTempFile("jump61", ".positions");
+            samples.write(file);
+            EvalTuner.Samples read = EvalTuner.Samples.read(file);
+            assertEquals(samples.count(), read.count());
+            int[] features = EvalTuner.extract(samples, pool);
+            assertArrayEquals(features, EvalTuner.extract(read, pool));
+            EvalTuner.Samples again =
+                EvalTuner.selfPlay(4, 300, 61, ForkJoinPool.commonPool());
+            assertArrayEquals(features, EvalTuner.extract(again, pool));
+            double[] zero = new double[Evaluator.COUNT];
+            double[] weights = EvalTuner.fit(samples, features, 20, pool);
+            double before = EvalTuner.loss(samples, features, zero, pool)[0],
+                after = EvalTuner.loss(samples, features, weights, pool)[0];
+            assertEquals(Math.log(2), before, 1e-9);
+            assertTrue(after < before);
+            weights[0] += 0.01;
+            assertTrue(after
+                       <= EvalTuner.loss(samples, features, weights, pool)[0]);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
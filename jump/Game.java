@@ -1,9 +1,16 @@
 package jump61;
 
+import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.io.PrintWriter;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
 import java.util.Scanner;
 import java.util.Random;
 
@@ -15,6 +22,9 @@ import static jump61.GameException.error;
  */
 class Game {
 
+    /** Deepest search allowed by the analyze command. */
+    private static final int MAX_ANALYSIS_DEPTH = 32;
+
     /** Name of resource containing help message. */
     private static final String HELP = "jump61/Help.txt";
 
@@ -25,11 +35,15 @@ class Game {
      *  closing them when its play method returns. */
     Game(Reader input, Writer prompts, Writer output, Writer errorOutput) {
         _board = new MutableBoard(Defaults.BOARD_SIZE);
+        _renderer = new BoardRenderer(_board);
+        _history.reset(_board);
         _prompter = new PrintWriter(prompts, true);
         _inp = new Scanner(input);
         _inp.useDelimiter("(?m)\\p{Blank}*$|^\\p{Blank}*|\\p{Blank}+");
-        _out = new PrintWriter(output, true);
-        _err = new PrintWriter(errorOutput, true);
+        _out = new PrintWriter(new MeteredWriter(output, Metrics.OUTPUT),
+                               true);
+        _err = new PrintWriter(new MeteredWriter(errorOutput,
+                                                 Metrics.OUTPUT), true);
 
         _redPlayer = new HumanPlayer(this, RED);
         _bluePlayer = new AI(this, BLUE);
@@ -41,6 +55,40 @@ class Game {
         return _board;
     }
 
+    /** Run my AI players' searches on SCHEDULER. */
+    void setScheduler(SearchScheduler scheduler) {
+        _scheduler.cancel(this);
+        _scheduler = scheduler;
+    }
+
+    /** Returns the scheduler on which my AI players search. */
+    SearchScheduler getScheduler() {
+        return _scheduler;
+    }
+
+    /** Have my AI players use the search enhancements in FEATURES. */
+    void setSearchFeatures(Set<Search.Feature> features) {
+        _searchFeatures = features.isEmpty()
+            ? EnumSet.noneOf(Search.Feature.class) : EnumSet.copyOf(features);
+    }
+
+    /** Returns the search enhancements my AI players use. */
+    Set<Search.Feature> getSearchFeatures() {
+        return Collections.unmodifiableSet(_searchFeatures);
+    }
+
+    /** Limit each AI move to about MILLIS milliseconds of search (no
+     *  limit if negative). */
+    void setSearchBudget(long millis) {
+        _searchBudget = millis;
+    }
+
+    /** Returns the time budget in milliseconds for each AI move, or a
+     *  negative number if there is none. */
+    long getSearchBudget() {
+        return _searchBudget;
+    }
+
     /** Play a session of Jump61.  This may include multiple games,
      *  and proceeds until the user exits.  Returns an exit code: 0 is
      *  normal; any positive quantity indicates an error.  */
@@ -50,7 +98,7 @@ class Game {
         do {
             try {
                 if (_playing) {
-                    currentPlayer().makeMove();
+                    makeTimedMove();
                     checkForWin();
                 } else if (promptForNext()) {
                     readExecuteCommand();
@@ -66,17 +114,75 @@ class Game {
         return _exitCode;
     }
 
-    /** Closes all the PrintWriters. */
+    /** Closes all the PrintWriters, cancels outstanding searches, and
+     *  disconnects from any search workers. */
     void close() {
+        stopSearches();
+        if (_workers != null) {
+            _workers.close();
+            _workers = null;
+        }
         _out.close();
         _err.close();
         _prompter.close();
     }
 
-    /** Get a move from prompt and execute. */
+    /** Have the current player make a move, or execute a command
+     *  instead, charging the time taken to the player's clock if there
+     *  is one.  A player who moves after running out of time loses.  If
+     *  an automated player cannot move, play stops, since it would fail
+     *  again at once. */
+    private void makeTimedMove() {
+        Color mover = current();
+        int moves = _board.numMoves();
+        if (_clock != null) {
+            _clock.start(mover);
+        }
+        Player player = currentPlayer();
+        try {
+            player.makeMove();
+        } catch (GameException excp) {
+            if (player instanceof AI) {
+                stopPlay();
+            }
+            throw excp;
+        }
+        if (_clock != null && _playing && _board.numMoves() != moves
+            && !_clock.stop(mover)) {
+            Metrics.GAMES_WON.increment();
+            _out.printf("%s wins on time.%n",
+                        mover.opposite().toCapitalizedString());
+            stopPlay();
+        }
+    }
+
+    /** Returns the players' clocks, or null if the game is untimed. */
+    Clock getClock() {
+        return _clock;
+    }
+
+    /** Time the game with CLOCK, or leave it untimed if CLOCK is
+     *  null. */
+    void setClock(Clock clock) {
+        _clock = clock;
+    }
+
+    /** Returns the workers among which AI players split their searches,
+     *  or null if they search in this process. */
+    DistributedSearch getWorkers() {
+        return _workers;
+    }
+
+    /** Get a move from prompt and execute.  If my input has ended, as
+     *  when a client disconnects or idles out, quit. */
     void getMove() {
-        if (_playing && promptForNext()) {
+        if (!_playing) {
+            return;
+        }
+        if (promptForNext()) {
             readExecuteCommand();
+        } else {
+            quit();
         }
     }
 
@@ -99,7 +205,10 @@ class Game {
 
     /** Add a spot to square #N, if legal to do so. */
     void makeMove(int n) {
+        long start = System.nanoTime();
         _board.addSpot(current(), n);
+        _history.push(n, _board);
+        Metrics.MOVES.recordSince(start);
     }
 
     /** Returns the current player color. */
@@ -135,6 +244,14 @@ class Game {
     /** Stops playing the game. */
     private void stopPlay() {
         _playing = false;
+        if (_clock != null) {
+            _clock.pause();
+        }
+    }
+
+    /** Cancel any AI searches, including pondering, on my behalf. */
+    private void stopSearches() {
+        _scheduler.cancel(this);
     }
 
     /** Start playing the game. */
@@ -144,11 +261,13 @@ class Game {
 
     /** Send announcement of winner to my user output. */
     private void announceWinner() {
+        Metrics.GAMES_WON.increment();
         _out.println(current().opposite().toCapitalizedString() + " wins.");
     }
 
     /** Make PLAYER an AI for subsequent moves. */
     private void setAuto(Color player) {
+        stopSearches();
         if (player == RED) {
             _redPlayer = new AI(this, player);
         } else {
@@ -156,8 +275,19 @@ class Game {
         }
     }
 
+    /** Make PLAYER move at random for subsequent moves. */
+    private void setRandom(Color player) {
+        stopSearches();
+        if (player == RED) {
+            _redPlayer = new RandomPlayer(this, player);
+        } else {
+            _bluePlayer = new RandomPlayer(this, player);
+        }
+    }
+
     /** Make PLAYER take manual input from the user for subsequent moves. */
     private void setManual(Color player) {
+        stopSearches();
         if (player == RED) {
             _redPlayer = new HumanPlayer(this, player);
         } else {
@@ -169,12 +299,237 @@ class Game {
      *  state. */
     private void clear() {
         stopPlay();
+        stopSearches();
         _board.clear(_board.size());
+        _history.reset(_board);
+        resetClock();
+    }
+
+    /** Give both players their full base time, if the game is
+     *  timed. */
+    private void resetClock() {
+        if (_clock != null) {
+            _clock.reset();
+        }
+    }
+
+    /** Set the time control as directed by ARGS: none prints the time
+     *  left, "off" makes the game untimed, and BASE [INCREMENT] gives each
+     *  player BASE seconds plus INCREMENT seconds per move. */
+    private void clock(String[] args) {
+        if (args.length == 0) {
+            _out.println(_clock == null ? "off" : _clock.toString());
+            return;
+        } else if (args.length == 1 && args[0].equals("off")) {
+            stopPlay();
+            _clock = null;
+            return;
+        }
+        long base, increment;
+        try {
+            base = Math.round(Double.parseDouble(args[0]) * 1000);
+            increment = args.length > 1
+                ? Math.round(Double.parseDouble(args[1]) * 1000) : 0;
+        } catch (NumberFormatException excp) {
+            throw error("syntax error in 'clock' command");
+        }
+        if (args.length > 2 || base <= 0 || increment < 0) {
+            throw error("syntax error in 'clock' command");
+        }
+        stopPlay();
+        _clock = new Clock(base, increment);
+    }
+
+    /** Make AI players split their searches among the SearchWorkers at
+     *  the addresses ARGS, or search in this process if ARGS is "off".
+     *  With no ARGS, print the workers in use. */
+    private void workers(String[] args) {
+        if (args.length == 0) {
+            _out.println(_workers == null ? "off" : _workers.toString());
+            return;
+        }
+        DistributedSearch workers = null;
+        if (args.length != 1 || !args[0].equals("off")) {
+            try {
+                workers = new DistributedSearch(DistributedSearch.parse(args));
+            } catch (IllegalArgumentException excp) {
+                throw error("syntax error in 'workers' command");
+            }
+        }
+        stopSearches();
+        if (_workers != null) {
+            _workers.close();
+        }
+        _workers = workers;
     }
 
     /** Print the current board using standard board-dump format. */
     private void dump() {
-        _out.println(_board);
+        try {
+            _renderer.render(_out);
+        } catch (IOException excp) {
+            throw error("cannot write board: %s", excp.getMessage());
+        }
+        _out.println();
+    }
+
+    /** Score every legal move for the player to move and print the
+     *  results, each as soon as it is found and then all together, best
+     *  first.  LIMIT is null for the AI's usual depth, a number of plies,
+     *  or a number of milliseconds followed by "ms".  The board and its
+     *  undo history are untouched. */
+    private void analyze(String limit) {
+        int depth = AI.DEPTH;
+        long millis = -1;
+        try {
+            if (limit == null) {
+                depth = AI.DEPTH;
+            } else if (limit.endsWith("ms")) {
+                millis = Long.parseLong(limit.substring(0, limit.length() - 2));
+                depth = MAX_ANALYSIS_DEPTH;
+            } else {
+                depth = parseInt(limit);
+            }
+        } catch (NumberFormatException excp) {
+            throw error("syntax error in 'analyze' command");
+        }
+        if (depth < 1 || depth > MAX_ANALYSIS_DEPTH) {
+            throw error("syntax error in 'analyze' command");
+        }
+        if (limit != null && limit.endsWith("ms") && millis <= 0) {
+            throw error("analysis time must be positive: %s", limit);
+        }
+        if (_board.getWinner() != null) {
+            throw error("game is over");
+        }
+        List<Analysis.Line> lines;
+        try {
+            lines = new Analysis(_board, _scheduler, this).run(depth, millis,
+                line -> _out.printf("Scored %d %d: %d (depth %d).%n",
+                                    _board.row(line.move()),
+                                    _board.col(line.move()), line.score(),
+                                    line.depth()));
+        } catch (InterruptedException excp) {
+            stopSearches();
+            Thread.currentThread().interrupt();
+            throw error("analysis interrupted");
+        }
+        _out.printf("%3s %3s %11s %5s  %s%n", "row", "col", "score", "depth",
+                    "pv");
+        for (Analysis.Line line : lines) {
+            _out.printf("%3d %3d %11d %5d ", _board.row(line.move()),
+                        _board.col(line.move()), line.score(), line.depth());
+            for (int sq : line.pv()) {
+                _out.printf(" %d:%d", _board.row(sq), _board.col(sq));
+            }
+            _out.println();
+        }
+    }
+
+    /** Take back the last move, if it is recorded. */
+    private void undo() {
+        if (_board.numMoves() > _history.first()) {
+            _history.goTo(_board, _board.numMoves() - 1);
+        }
+    }
+
+    /** Replay the move last undone, if there is one. */
+    private void redo() {
+        if (_board.numMoves() < _history.last()) {
+            _history.goTo(_board, _board.numMoves() + 1);
+        }
+    }
+
+    /** Stop any current game and return to the recorded position in which
+     *  N moves have been made. */
+    private void goTo(int n) {
+        if (n < _history.first() || n > _history.last()) {
+            throw error("no position recorded at move %d (have %d to %d)",
+                        n, _history.first(), _history.last());
+        }
+        stopSearches();
+        _history.goTo(_board, n);
+    }
+
+    /** Enable exactly the search enhancements named in NAMES ("none" for
+     *  none), or if there are no NAMES, print those enabled. */
+    private void searchFeatures(String[] names) {
+        if (names.length == 0) {
+            StringJoiner line = new StringJoiner(" ");
+            line.setEmptyValue("none");
+            for (Search.Feature feature : _searchFeatures) {
+                line.add(feature.name().toLowerCase());
+            }
+            _out.println(line);
+            return;
+        }
+        try {
+            stopSearches();
+            setSearchFeatures(Search.Feature.parse(names));
+        } catch (IllegalArgumentException excp) {
+            throw error("syntax error in 'search' command");
+        }
+    }
+
+    /** Perform ACTION, which replays or takes back recorded moves, without
+     *  reporting its cascades. */
+    private void unprofiled(Runnable action) {
+        CascadeStats stats = _board.setCascadeStats(null);
+        try {
+            action.run();
+        } finally {
+            _board.setCascadeStats(stats);
+        }
+    }
+
+    /** Control or report the collection of cascade statistics according
+     *  to OPTION: "on", "off", "reset", "csv" (print the histograms as
+     *  CSV), or null (print a summary). */
+    private void cascades(String option) {
+        if (option == null) {
+            _cascades.report(_out);
+            return;
+        }
+        switch (option) {
+        case "on":
+            _board.setCascadeStats(_cascades);
+            break;
+        case "off":
+            _board.setCascadeStats(null);
+            break;
+        case "reset":
+            _cascades.reset();
+            break;
+        case "csv":
+            _cascades.export(_out);
+            break;
+        default:
+            throw error("syntax error in 'cascades' command");
+        }
+    }
+
+    /** Print each subsequent change to the board as a line "delta "
+     *  followed by its ChangeBatch in compact form iff OPTION is "on", or
+     *  stop iff it is "off".  With OPTION null, print which. */
+    private void deltas(String option) {
+        if (option == null) {
+            _out.println(_deltas == null ? "off" : "on");
+            return;
+        }
+        switch (option) {
+        case "on":
+            if (_deltas == null) {
+                _deltas = (board, batch) -> _out.println("delta " + batch);
+                _board.addListener(_deltas);
+            }
+            break;
+        case "off":
+            _board.removeListener(_deltas);
+            _deltas = null;
+            break;
+        default:
+            throw error("syntax error in 'deltas' command");
+        }
     }
 
     /** Print a help message. */
@@ -185,7 +540,9 @@ class Game {
     /** Stop any current game and set the move number to N. */
     private void setMoveNumber(int n) {
         stopPlay();
+        stopSearches();
         _board.setMoves(n);
+        _history.reset(_board);
     }
 
     /** Seed the random-number generator with SEED. */
@@ -199,7 +556,9 @@ class Game {
      *  the number of neighbors of square R, C. */
     private void setSpots(int r, int c, int spots, String color) {
         if (spots >= 0 && spots <= _board.neighbors(r, c)) {
+            stopSearches();
             _board.set(r, c, spots, Color.parseColor(color));
+            _history.reset(_board);
         } else {
             throw error("syntax error in 'set' command");
         }
@@ -208,19 +567,29 @@ class Game {
     /** Stop any current game and set the board to an empty N x N board
      *  with numMoves() == 0.  */
     private void setSize(int n) {
+        if ((long) n * n > MutableBoard.MAX_SQUARES) {
+            throw error("board size %d is too large", n);
+        }
         stopPlay();
+        stopSearches();
         _board.clear(n);
+        _history.reset(_board);
+        resetClock();
     }
 
     /** Begin accepting moves for game.  If the game is won,
      *  immediately print a win message and end the game. */
     private void restartGame() {
+        if (!_playing) {
+            Metrics.GAMES_STARTED.increment();
+        }
         startPlay();
         checkForWin();
     }
 
     /** Exit the game. */
     private void quit() {
+        stopSearches();
         _exitCode = 0;
     }
 
@@ -237,7 +606,16 @@ class Game {
     /** Read and execute one command.  Leave the input at the start of
      *  a line, if there is more input. */
     private void readExecuteCommand() {
-        String command = _inp.nextLine();
+        long start = System.nanoTime();
+        try {
+            parseExecuteCommand(_inp.nextLine());
+        } finally {
+            Metrics.COMMANDS.recordSince(start);
+        }
+    }
+
+    /** Execute the command on line COMMAND. */
+    private void parseExecuteCommand(String command) {
         String[] cmnd = command.trim().split("\\s+");
         if (intArg(cmnd[0])) {
             if (cmnd.length == 2) {
@@ -278,15 +656,63 @@ class Game {
     }
 
     /** Gather arguments cmnd and execute command CMND.  Throws GameException
-     *  on errors. Ignores first element of array, which is cmnd. */
+     *  on errors. Ignores first element of array, which is cmnd.  Reports
+     *  each command to Flight Recorder, when it is recording. */
     private void executeCommand(String[] cmnd) {
+        CommandExecutedEvent event = new CommandExecutedEvent();
+        event.begin();
+        boolean failed = true;
+        try {
+            dispatchCommand(cmnd);
+            failed = false;
+        } finally {
+            if (event.shouldCommit()) {
+                event.command = cmnd[0];
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    /** Execute command CMND, as for executeCommand. */
+    private void dispatchCommand(String[] cmnd) {
         switch (cmnd[0]) {
         case "\n": case "\r\n":
             return;
         case "#":
             break;
         case "undo":
-            _board.undo();
+            stopSearches();
+            unprofiled(this::undo);
+            break;
+        case "redo":
+            stopSearches();
+            unprofiled(this::redo);
+            break;
+        case "goto":
+            assertSize(cmnd, 2, cmnd[0]);
+            stopPlay();
+            int target = parseInt(cmnd[1]);
+            unprofiled(() -> goTo(target));
+            break;
+        case "search":
+            searchFeatures(Arrays.copyOfRange(cmnd, 1, cmnd.length));
+            break;
+        case "clock":
+            clock(Arrays.copyOfRange(cmnd, 1, cmnd.length));
+            break;
+        case "workers":
+            workers(Arrays.copyOfRange(cmnd, 1, cmnd.length));
+            break;
+        case "cache":
+            SharedSearchCache shared = SharedSearchCache.shared();
+            _out.println(shared == null ? "no shared cache" : shared.stats());
+            break;
+        case "cascades":
+            cascades(cmnd.length > 1 ? cmnd[1] : null);
+            break;
+        case "deltas":
+            deltas(cmnd.length > 1 ? cmnd[1] : null);
             break;
         case "clear":
             clear();
@@ -300,7 +726,13 @@ class Game {
         case "auto":
             assertSize(cmnd, 2, cmnd[0]);
             stopPlay();
-            setAuto(parseColor(cmnd[1]));
+            if (cmnd.length > 2 && cmnd[2].equals("random")) {
+                setRandom(parseColor(cmnd[1]));
+            } else if (cmnd.length > 2) {
+                throw error("syntax error in 'auto' command");
+            } else {
+                setAuto(parseColor(cmnd[1]));
+            }
             break;
         case "manual":
             assertSize(cmnd, 2, cmnd[0]);
@@ -331,6 +763,9 @@ class Game {
         case "help":
             help();
             break;
+        case "analyze":
+            analyze(cmnd.length > 1 ? cmnd[1] : null);
+            break;
         default:
             throw error("bad command: '%s'", cmnd[0]);
         }
@@ -341,6 +776,9 @@ class Game {
     private boolean promptForNext() {
         if (_playing) {
             _prompter.print(current());
+            if (_clock != null) {
+                _prompter.print(" " + _clock.display(current()));
+            }
         }
         _prompter.print("> ");
         _prompter.flush();
@@ -350,6 +788,7 @@ class Game {
     /** Send an error message to the user formed from arguments FORMAT
      *  and ARGS, whose meanings are as for printf. */
     void reportError(String format, Object... args) {
+        Metrics.ERRORS.increment();
         _err.print("Error: ");
         _err.printf(format, args);
         _err.println();
@@ -376,11 +815,31 @@ class Game {
     private final PrintWriter _err;
 
     /** The board on which I record all moves. */
-    private final Board _board;
+    private final MutableBoard _board;
+    /** Cascade statistics for _board's moves, while enabled. */
+    private final CascadeStats _cascades = new CascadeStats();
+    /** Prints the changes to _board while delta output is on, or null. */
+    private BoardListener _deltas;
+    /** The players' clocks, or null if the game is untimed. */
+    private Clock _clock;
+    /** Workers for AI searches, or null to search in this process. */
+    private DistributedSearch _workers;
+    /** Moves and checkpoints of _board for undo, redo, and goto. */
+    private final History _history = new History();
+    /** Renders _board for dumps. */
+    private final BoardRenderer _renderer;
 
     /** A pseudo-random number generator used by players as needed. */
     private final Random _random = new Random();
 
+    /** Scheduler on which AI players search. */
+    private SearchScheduler _scheduler = SearchScheduler.shared();
+    /** Search enhancements used by AI players. */
+    private EnumSet<Search.Feature> _searchFeatures =
+        EnumSet.noneOf(Search.Feature.class);
+    /** Milliseconds allowed per AI move, or negative for no limit. */
+    private long _searchBudget = -1;
+
     /** True iff a game is currently in progress. */
     private boolean _playing;
 
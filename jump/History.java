@@ -0,0 +1,167 @@
+package jump61;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/** The record of the moves of a game, for undo, redo, and goto.  Moves
+ *  are kept as square numbers in a ring of ints; every so often a full
+ *  position is saved as a checkpoint of one byte per square.  Any
+ *  recorded position is rebuilt from the nearest checkpoint at or before
+ *  it by replaying at most one checkpoint interval of moves, or, when it
+ *  is near the board's current position, by undoing.
+ *
+ *  When the record outgrows its memory limit, the oldest checkpoint and
+ *  the moves that follow it are forgotten, so that the earliest
+ *  reachable position moves forward.
+ *  @author Brian Su
+ */
+class History {
+
+    /** An empty history with the default checkpoint interval and memory
+     *  limit. */
+    History() {
+        this(Defaults.CHECKPOINT_INTERVAL, Defaults.HISTORY_BYTES);
+    }
+
+    /** An empty history that saves a checkpoint every INTERVAL moves and
+     *  uses about MAXBYTES bytes at most. */
+    History(int interval, long maxBytes) {
+        assert interval > 0;
+        _interval = interval;
+        _maxBytes = maxBytes;
+        _moves = new int[INITIAL_MOVES];
+    }
+
+    /** Forget everything, and start a new record at the current position
+     *  of BOARD. */
+    void reset(MutableBoard board) {
+        _checkpoints.clear();
+        _first = _last = board.numMoves();
+        _checkpoints.add(new Checkpoint(_first, board.encode()));
+        if (_moves.length > INITIAL_MOVES) {
+            _moves = new int[INITIAL_MOVES];
+        }
+    }
+
+    /** Record that BOARD has just had a spot added to square SQ, which
+     *  forgets any positions that might have been redone from the one
+     *  before that move. */
+    void push(int sq, MutableBoard board) {
+        int k = board.numMoves() - 1;
+        if (k < _first || k > _last) {
+            reset(board);
+            return;
+        }
+        while (_checkpoints.peekLast().moves > k) {
+            _checkpoints.removeLast();
+        }
+        if (k + 1 - _first > _moves.length) {
+            growMoves();
+        }
+        _moves[k & (_moves.length - 1)] = sq;
+        _last = k + 1;
+        if (_last - _checkpoints.peekLast().moves >= _interval) {
+            _checkpoints.add(new Checkpoint(_last, board.encode()));
+        }
+        while (bytes() > _maxBytes && _checkpoints.size() > 1) {
+            _checkpoints.removeFirst();
+            _first = _checkpoints.peekFirst().moves;
+        }
+    }
+
+    /** Returns the move number of the earliest recorded position. */
+    int first() {
+        return _first;
+    }
+
+    /** Returns the move number of the latest recorded position. */
+    int last() {
+        return _last;
+    }
+
+    /** Returns the number of checkpoints I hold. */
+    int checkpoints() {
+        return _checkpoints.size();
+    }
+
+    /** Returns the approximate number of bytes I occupy. */
+    long bytes() {
+        long total = 4L * _moves.length;
+        for (Checkpoint c : _checkpoints) {
+            total += c.cells.length + CHECKPOINT_OVERHEAD;
+        }
+        return total;
+    }
+
+    /** Set BOARD, which must be at a position I recorded, to the recorded
+     *  position with move number TARGET, first() <= TARGET <= last(). */
+    void goTo(MutableBoard board, int target) {
+        assert _first <= target && target <= _last;
+        int now = board.numMoves();
+        if (target <= now && now - target <= board.undoDepth()) {
+            while (board.numMoves() > target) {
+                board.undo();
+            }
+            return;
+        }
+        Checkpoint base = _checkpoints.peekFirst();
+        Iterator<Checkpoint> iter = _checkpoints.descendingIterator();
+        while (iter.hasNext()) {
+            Checkpoint c = iter.next();
+            if (c.moves <= target) {
+                base = c;
+                break;
+            }
+        }
+        if (now > target || now < base.moves) {
+            board.decode(base.cells, base.moves);
+        }
+        while (board.numMoves() < target) {
+            int k = board.numMoves();
+            board.addSpot(board.whoseMove(), _moves[k & (_moves.length - 1)]);
+        }
+    }
+
+    /** Double the size of the move ring, keeping each recorded move at
+     *  its move number modulo the new size. */
+    private void growMoves() {
+        int[] moves = new int[2 * _moves.length];
+        for (int k = _first; k < _last; k += 1) {
+            moves[k & (moves.length - 1)] = _moves[k & (_moves.length - 1)];
+        }
+        _moves = moves;
+    }
+
+    /** A saved position. */
+    private static class Checkpoint {
+        /** A checkpoint of position CELLS (as from MutableBoard.encode)
+         *  with move number MOVES. */
+        Checkpoint(int moves, byte[] cells) {
+            this.moves = moves;
+            this.cells = cells;
+        }
+
+        /** Move number of the position. */
+        private final int moves;
+        /** Contents of the position. */
+        private final byte[] cells;
+    }
+
+    /** Initial size of the move ring (a power of two). */
+    private static final int INITIAL_MOVES = 256;
+    /** Approximate bytes used by a checkpoint besides its cells. */
+    private static final int CHECKPOINT_OVERHEAD = 48;
+
+    /** Number of moves between checkpoints. */
+    private final int _interval;
+    /** Limit on bytes() before old moves are forgotten. */
+    private final long _maxBytes;
+    /** Ring of moves: the square played from the position with move
+     *  number K is at K modulo its length, for _first <= K < _last. */
+    private int[] _moves;
+    /** Move numbers of the earliest and latest recorded positions. */
+    private int _first, _last;
+    /** Saved positions in order of move number; the first is at
+     *  _first. */
+    private final ArrayDeque<Checkpoint> _checkpoints = new ArrayDeque<>();
+}
@@ -0,0 +1,72 @@
+package jump61;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** Measures the memory used by a game's History and the time taken to
+ *  go to random moves of a long game of random moves.
+ *  Usage: java jump61.HistoryBench [SIZE [MOVES [GOTOS [SEED]]]]
+ *  @author Brian Su
+ */
+public class HistoryBench {
+
+    /** Run the benchmark as described by ARGS. */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int gotos = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 61;
+        Random random = new Random(seed);
+
+        MutableBoard board = new MutableBoard(size);
+        History history = new History();
+        history.reset(board);
+        int n = size * size;
+        long start = System.nanoTime();
+        while (board.numMoves() < moves && board.getWinner() == null) {
+            int sq;
+            do {
+                sq = random.nextInt(n);
+            } while (!board.isLegal(board.whoseMove(), sq));
+            board.addSpot(board.whoseMove(), sq);
+            history.push(sq, board);
+        }
+        double playSecs = (System.nanoTime() - start) * 1e-9;
+        System.out.printf("%dx%d board, %d moves in %.2f s%n", size, size,
+                          board.numMoves(), playSecs);
+        System.out.printf("history: moves %d to %d, %d checkpoints,"
+                          + " %.1f KiB%n", history.first(), history.last(),
+                          history.checkpoints(), history.bytes() / 1024.0);
+
+        int first = history.first(), last = history.last();
+        for (int i = 0; i < gotos / 4; i += 1) {
+            history.goTo(board, first + random.nextInt(last - first + 1));
+        }
+        long[] times = new long[gotos];
+        for (int i = 0; i < gotos; i += 1) {
+            int target = first + random.nextInt(last - first + 1);
+            long t0 = System.nanoTime();
+            history.goTo(board, target);
+            times[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(times);
+        long total = 0;
+        for (long t : times) {
+            total += t;
+        }
+        System.out.printf("goto: mean %.3f ms, median %.3f ms,"
+                          + " 99th percentile %.3f ms, max %.3f ms%n",
+                          total * 1e-6 / gotos, times[gotos / 2] * 1e-6,
+                          times[gotos * 99 / 100] * 1e-6,
+                          times[gotos - 1] * 1e-6);
+
+        long steps = 0;
+        start = System.nanoTime();
+        while (board.numMoves() > first && steps < gotos) {
+            history.goTo(board, board.numMoves() - 1);
+            steps += 1;
+        }
+        System.out.printf("undo: %.4f ms per move%n",
+                          (System.nanoTime() - start) * 1e-6 / steps);
+    }
+}
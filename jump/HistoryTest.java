@@ -0,0 +1,144 @@
+package jump61;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static jump61.Color.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests for History and MutableBoard's bounded undo.
+ *  @author Brian Su
+ */
+public class HistoryTest {
+
+    /** Play random moves on BOARD, recording them in HISTORY, until the
+     *  game ends or MOVES moves have been made.  Returns the position
+     *  keys of every position reached, starting with the current one. */
+    private ArrayList<String> play(MutableBoard board, History history,
+                                   int moves, Random random) {
+        ArrayList<String> keys = new ArrayList<>();
+        keys.add(board.positionKey());
+        int n = board.size() * board.size();
+        for (int i = 0; i < moves && board.getWinner() == null; i += 1) {
+            int sq;
+            do {
+                sq = random.nextInt(n);
+            } while (!board.isLegal(board.whoseMove(), sq));
+            board.addSpot(board.whoseMove(), sq);
+            history.push(sq, board);
+            keys.add(board.positionKey());
+        }
+        return keys;
+    }
+
+    @Test
+    public void testGoTo() {
+        Random random = new Random(61);
+        MutableBoard board = new MutableBoard(5);
+        board.setUndoLimit(16);
+        History history = new History(8, 1 << 20);
+        history.reset(board);
+        ArrayList<String> keys = play(board, history, 200, random);
+        assertEquals(0, history.first());
+        assertEquals(keys.size() - 1, history.last());
+        for (int i = 0; i < 200; i += 1) {
+            int k = random.nextInt(keys.size());
+            history.goTo(board, k);
+            assertEquals(k, board.numMoves());
+            assertEquals(keys.get(k), board.positionKey());
+        }
+    }
+
+    @Test
+    public void testRedoTruncated() {
+        Random random = new Random(1);
+        MutableBoard board = new MutableBoard(4);
+        History history = new History(4, 1 << 20);
+        history.reset(board);
+        ArrayList<String> keys = play(board, history, 10, random);
+        history.goTo(board, 3);
+        assertEquals(keys.get(3), board.positionKey());
+        ArrayList<String> more = play(board, history, 2, random);
+        assertEquals(5, history.last());
+        history.goTo(board, 4);
+        assertEquals(more.get(1), board.positionKey());
+        history.goTo(board, 1);
+        assertEquals(keys.get(1), board.positionKey());
+    }
+
+    @Test
+    public void testMemoryCap() {
+        Random random = new Random(3);
+        MutableBoard board = new MutableBoard(16);
+        History history = new History(16, 8192);
+        history.reset(board);
+        ArrayList<String> keys = play(board, history, 2000, random);
+        assertTrue(history.bytes() <= 8192);
+        assertTrue(history.first() > 0);
+        assertEquals(keys.size() - 1, history.last());
+        history.goTo(board, history.first());
+        assertEquals(keys.get(history.first()), board.positionKey());
+        history.goTo(board, history.last());
+        assertEquals(keys.get(history.last()), board.positionKey());
+    }
+
+    @Test
+    public void testUndoLimit() {
+        MutableBoard board = new MutableBoard(4);
+        board.setUndoLimit(4);
+        board.addSpot(RED, 1, 1);
+        board.addSpot(BLUE, 4, 4);
+        board.addSpot(RED, 2, 2);
+        board.addSpot(BLUE, 3, 3);
+        board.addSpot(RED, 1, 3);
+        assertEquals(4, board.undoDepth());
+        board.addSpot(BLUE, 3, 1);
+        assertEquals(4, board.undoDepth());
+        for (int i = 0; i < 4; i += 1) {
+            board.undo();
+        }
+        assertEquals(2, board.numMoves());
+        board.undo();
+        assertEquals(2, board.numMoves());
+        assertEquals(1, board.numOfColor(RED));
+        assertEquals(1, board.numOfColor(BLUE));
+        board.set(1, 1, 2, RED);
+        assertEquals(0, board.undoDepth());
+    }
+
+    @Test
+    public void testUndoLimitWithPasses() {
+        Random random = new Random(61);
+        for (int game = 0; game < 200; game += 1) {
+            MutableBoard board = new MutableBoard(4);
+            for (int sq = 0; sq < 16; sq += 1) {
+                board.set(board.row(sq), board.col(sq),
+                          1 + random.nextInt(board.neighbors(sq)),
+                          sq % 2 == 0 ? RED : BLUE);
+            }
+            board.setUndoLimit(8);
+            ArrayList<String> keys = new ArrayList<>();
+            keys.add(board.positionKey());
+            int moves = random.nextInt(40);
+            for (int i = 0; i < moves && board.getWinner() == null; i += 1) {
+                Color who = board.whoseMove();
+                if (random.nextBoolean()) {
+                    board.pass();
+                } else {
+                    int sq;
+                    do {
+                        sq = random.nextInt(16);
+                    } while (!board.isLegal(who, sq));
+                    board.addSpot(who, sq);
+                }
+                keys.add(board.positionKey());
+            }
+            for (int k = board.undoDepth(); k > 0; k -= 1) {
+                board.undo();
+                assertEquals(keys.get(board.numMoves()),
+                             board.positionKey());
+            }
+        }
+    }
+}
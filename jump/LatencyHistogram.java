@@ -0,0 +1,92 @@
+package jump61;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A histogram of durations that many threads may record into at once
+ *  without locking.  Durations are kept in power-of-two buckets of
+ *  microseconds: under 1, 1, 2-3, 4-7, and so on up to BUCKETS - 1,
+ *  which also holds anything longer.
+ *  @author Brian Su
+ */
+class LatencyHistogram {
+
+    /** Number of buckets.  The last starts at about 36 minutes. */
+    static final int BUCKETS = 33;
+
+    /** A histogram reported under NAME and described by HELP. */
+    LatencyHistogram(String name, String help) {
+        _name = name;
+        _help = help;
+    }
+
+    /** Returns the name under which I am reported. */
+    String name() {
+        return _name;
+    }
+
+    /** Record a duration of NANOS nanoseconds. */
+    void record(long nanos) {
+        _counts.getAndIncrement(bucket(nanos));
+        _nanos.add(nanos);
+    }
+
+    /** Record the time since START, a value of System.nanoTime(). */
+    void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    /** Returns the number of durations recorded. */
+    long count() {
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b += 1) {
+            total += _counts.get(b);
+        }
+        return total;
+    }
+
+    /** Returns the number of recorded durations in bucket B. */
+    long count(int b) {
+        return _counts.get(b);
+    }
+
+    /** Returns the sum of the durations recorded, in nanoseconds. */
+    long totalNanos() {
+        return _nanos.sum();
+    }
+
+    /** Returns the bucket holding a duration of NANOS nanoseconds. */
+    static int bucket(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        return Math.min(BUCKETS - 1,
+                        64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /** Print me on OUT in the Prometheus text format, as a histogram
+     *  in seconds.  Recording may continue meanwhile, so the figures
+     *  are only approximately consistent with each other. */
+    void write(PrintWriter out) {
+        out.printf("# HELP %s %s%n", _name, _help);
+        out.printf("# TYPE %s histogram%n", _name);
+        long cumulative = 0;
+        for (int b = 0; b < BUCKETS - 1; b += 1) {
+            cumulative += _counts.get(b);
+            out.printf("%s_bucket{le=\"%s\"} %d%n", _name,
+                       Double.toString((1L << b) * 1e-6), cumulative);
+        }
+        cumulative += _counts.get(BUCKETS - 1);
+        out.printf("%s_bucket{le=\"+Inf\"} %d%n", _name, cumulative);
+        out.printf("%s_sum %s%n", _name, Double.toString(totalNanos() * 1e-9));
+        out.printf("%s_count %d%n", _name, cumulative);
+    }
+
+    /** Name under which I am reported. */
+    private final String _name;
+    /** Description of what I measure. */
+    private final String _help;
+    /** Number of durations in each bucket. */
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+    /** Sum of the durations recorded, in nanoseconds. */
+    private final LongAdder _nanos = new LongAdder();
+}
@@ -0,0 +1,123 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A load-testing client for Server.  It opens many concurrent
+ *  sessions, has each play complete AI-against-AI games, and reports
+ *  the rate of completed sessions and of moves.
+ *  Usage: java jump61.LoadTest [PORT [SESSIONS [CONCURRENCY [SIZE]]]]
+ *  With no PORT (or PORT 0), starts a Server in this JVM.
+ *  @author Brian Su
+ */
+public class LoadTest {
+
+    /** Run the load test as described by ARGS. */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        Server server = null;
+        if (port == 0) {
+            server = new Server(0, Defaults.SESSION_IDLE_MILLIS,
+                                Defaults.SEARCH_THREADS);
+            port = server.port();
+            Thread acceptor = new Thread(server::serve, "jump61-server");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        LoadTest test = new LoadTest(port, size);
+        long start = System.nanoTime();
+        int failed = test.run(sessions, concurrency);
+        double secs = (System.nanoTime() - start) * 1e-9;
+
+        System.out.printf("sessions: %d (%d failed), concurrency %d, "
+                          + "board %dx%d%n", sessions, failed, concurrency,
+                          size, size);
+        System.out.printf("elapsed: %.2f s%n", secs);
+        System.out.printf("sessions/s: %.1f%n", (sessions - failed) / secs);
+        System.out.printf("moves/s: %.1f%n", test._moves.get() / secs);
+        if (server != null) {
+            System.out.printf("search: %s%n", server.scheduler().stats());
+            server.close();
+        }
+    }
+
+    /** A load tester for the server on the local PORT playing games on
+     *  SIZE x SIZE boards. */
+    LoadTest(int port, int size) {
+        _port = port;
+        _size = size;
+    }
+
+    /** Play SESSIONS sessions, at most CONCURRENCY at a time.  Returns
+     *  the number of sessions that failed. */
+    int run(int sessions, int concurrency) throws InterruptedException {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < sessions; i += 1) {
+            results.add(clients.submit(this::session));
+        }
+        int failed = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                if (!result.get()) {
+                    failed += 1;
+                }
+            } catch (Exception excp) {
+                failed += 1;
+            }
+        }
+        clients.shutdown();
+        return failed;
+    }
+
+    /** Play one session consisting of a single AI-against-AI game.
+     *  Returns true iff the game ran to a win. */
+    private boolean session() throws IOException {
+        try (Socket socket =
+             new Socket(InetAddress.getLoopbackAddress(), _port)) {
+            PrintWriter out =
+                new PrintWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8));
+            BufferedReader in =
+                new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            out.printf("size %d%nauto red%nauto blue%nstart%nquit%n", _size);
+            out.flush();
+            boolean won = false;
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                if (line.contains(" moves ")) {
+                    _moves.incrementAndGet();
+                } else if (line.endsWith("wins.")) {
+                    won = true;
+                }
+            }
+            return won;
+        }
+    }
+
+    /** Server port. */
+    private final int _port;
+    /** Board size for each game. */
+    private final int _size;
+    /** Total number of moves seen across all sessions. */
+    private final AtomicLong _moves = new AtomicLong();
+}
@@ -7,6 +7,10 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import com.sun.net.httpserver.HttpServer;
 
 /** The jump61 game.
  * @author Brian Su
@@ -17,13 +21,20 @@ public class Main {
     static final String USAGE = "jump61/Usage.txt";
 
     /** Play jump61.  ARGS0 may consist of the single string
-     *  '--display' to indicate that the game is played using a GUI. Prints
-     *  a usage message if the arguments are wrong. */
+     *  '--display' to indicate that the game is played using a GUI, or
+     *  '--server' optionally followed by a port number to host games over
+     *  TCP on the loopback interface.  Either may be preceded by
+     *  '--metrics PORT' to serve operational metrics over HTTP, or by
+     *  '--metrics-file FILE' to write them to FILE periodically. Prints a
+     *  usage message if the arguments are wrong. */
     public static void main(String[] args0) {
+        args0 = exportMetrics(args0);
         if (args0.length > 0) {
             if (args0[0].equals("--version")) {
                 System.out.printf("%s%n", Defaults.VERSION);
                 System.exit(0);
+            } else if (args0[0].equals("--server") && args0.length <= 2) {
+                System.exit(serve(args0.length == 2 ? args0[1] : null));
             } else {
                 usage();
                 System.exit(0);
@@ -36,6 +47,57 @@ public class Main {
         System.exit(game.play());
     }
 
+    /** Start exporting metrics as directed by the options at the start
+     *  of ARGS, and return the remaining arguments.  Prints a usage
+     *  message and exits if the options are wrong. */
+    private static String[] exportMetrics(String[] args) {
+        if (args.length == 0 || !args[0].startsWith("--metrics")) {
+            return args;
+        }
+        try {
+            if (args[0].equals("--metrics") && args.length >= 2) {
+                HttpServer server = Metrics.serve(Integer.parseInt(args[1]));
+                System.err.printf("metrics at http://localhost:%d/metrics%n",
+                                  Metrics.port(server));
+            } else if (args[0].equals("--metrics-file") && args.length >= 2) {
+                Metrics.dumpTo(Paths.get(args[1]),
+                               Defaults.METRICS_DUMP_MILLIS);
+            } else {
+                usage();
+                System.exit(1);
+            }
+        } catch (NumberFormatException excp) {
+            usage();
+            System.exit(1);
+        } catch (IOException excp) {
+            System.err.printf("Error: cannot serve metrics: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+        }
+        return Arrays.copyOfRange(args, 2, args.length);
+    }
+
+    /** Run a game server on port PORT (the default port if null) until
+     *  killed.  Returns an exit code. */
+    private static int serve(String port) {
+        try {
+            int portNum =
+                port == null ? Defaults.SERVER_PORT : Integer.parseInt(port);
+            Server server = new Server(portNum, Defaults.SESSION_IDLE_MILLIS,
+                                       Defaults.SEARCH_THREADS);
+            System.err.printf("%s serving on port %d%n", Defaults.VERSION,
+                              server.port());
+            server.serve();
+            return 0;
+        } catch (NumberFormatException excp) {
+            usage();
+            return 1;
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            return 1;
+        }
+    }
+
     /** Print the contents of the resource named NAME on OUT.
      *  NAME will typically be a file name based in one of the directories
      *  in the class path.  */
@@ -0,0 +1,49 @@
+package jump61;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/** A Writer that passes everything on to another, recording the time
+ *  taken by each write and flush in a LatencyHistogram.
+ *  @author Brian Su
+ */
+class MeteredWriter extends FilterWriter {
+
+    /** A Writer on OUT that records its latencies in HISTOGRAM. */
+    MeteredWriter(Writer out, LatencyHistogram histogram) {
+        super(out);
+        _histogram = histogram;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        long start = System.nanoTime();
+        super.write(c);
+        _histogram.recordSince(start);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        super.write(cbuf, off, len);
+        _histogram.recordSince(start);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        super.write(str, off, len);
+        _histogram.recordSince(start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        long start = System.nanoTime();
+        super.flush();
+        _histogram.recordSince(start);
+    }
+
+    /** Where my latencies are recorded. */
+    private final LatencyHistogram _histogram;
+}
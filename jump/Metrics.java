@@ -0,0 +1,144 @@
+package jump61;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpServer;
+
+/** Operational metrics for all the games in this process: latency
+ *  histograms for commands, moves, AI thinking, and output, and counts
+ *  of games started and won and of errors reported.  Recording never
+ *  locks.  The figures can be served in the Prometheus text format over
+ *  HTTP on the loopback interface, or written to a file periodically.
+ *  @author Brian Su
+ */
+class Metrics {
+
+    /** Time for Game to read and execute one command, including any
+     *  move it makes. */
+    static final LatencyHistogram COMMANDS =
+        new LatencyHistogram("jump61_command_seconds",
+                             "Time to read and execute one command.");
+    /** Time for Game to apply one move to its board and history. */
+    static final LatencyHistogram MOVES =
+        new LatencyHistogram("jump61_move_seconds",
+                             "Time to apply one move.");
+    /** Time for an AI to choose a move. */
+    static final LatencyHistogram AI_THINK =
+        new LatencyHistogram("jump61_ai_think_seconds",
+                             "Time for an AI player to choose a move.");
+    /** Time for each write or flush of a Game's output. */
+    static final LatencyHistogram OUTPUT =
+        new LatencyHistogram("jump61_output_write_seconds",
+                             "Time for one write or flush of game output.");
+
+    /** Number of games started. */
+    static final LongAdder GAMES_STARTED = new LongAdder();
+    /** Number of games won. */
+    static final LongAdder GAMES_WON = new LongAdder();
+    /** Number of errors reported to users. */
+    static final LongAdder ERRORS = new LongAdder();
+
+    /** Print all metrics on OUT in the Prometheus text format. */
+    static void write(PrintWriter out) {
+        counter(out, "jump61_games_started_total", "Games started.",
+                GAMES_STARTED);
+        counter(out, "jump61_games_won_total", "Games won.", GAMES_WON);
+        counter(out, "jump61_errors_total", "Errors reported to users.",
+                ERRORS);
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.write(out);
+        }
+        out.flush();
+    }
+
+    /** Returns all metrics in the Prometheus text format. */
+    static String text() {
+        StringWriter result = new StringWriter();
+        write(new PrintWriter(result));
+        return result.toString();
+    }
+
+    /** Serve the metrics over HTTP at /metrics on PORT (0 for any free
+     *  port) of the loopback interface.  Returns the server, whose port
+     *  is given by port(SERVER). */
+    static HttpServer serve(int port) throws IOException {
+        HttpServer server =
+            HttpServer.create(new InetSocketAddress(
+                                  InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = text().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "jump61-metrics");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        return server;
+    }
+
+    /** Returns the port on which SERVER listens. */
+    static int port(HttpServer server) {
+        return server.getAddress().getPort();
+    }
+
+    /** Replace FILE with the current metrics every MILLIS milliseconds
+     *  until the result is closed.  Each version of the file is complete:
+     *  it is written beside FILE and then moved over it. */
+    static Closeable dumpTo(Path file, long millis) {
+        ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "jump61-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        timer.scheduleAtFixedRate(() -> {
+            try {
+                Files.writeString(temp, text());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException excp) {
+                System.err.printf("Error: cannot write metrics: %s%n",
+                                  excp.getMessage());
+            }
+        }, 0, millis, TimeUnit.MILLISECONDS);
+        return timer::shutdown;
+    }
+
+    /** Print counter NAME described by HELP with value VALUE on OUT. */
+    private static void counter(PrintWriter out, String name, String help,
+                                LongAdder value) {
+        out.printf("# HELP %s %s%n", name, help);
+        out.printf("# TYPE %s counter%n", name);
+        out.printf("%s %d%n", name, value.sum());
+    }
+
+    /** All latency histograms, in the order reported. */
+    private static final List<LatencyHistogram> HISTOGRAMS =
+        List.of(COMMANDS, MOVES, AI_THINK, OUTPUT);
+
+    /** Content type of the Prometheus text format. */
+    private static final String CONTENT_TYPE =
+        "text/plain; version=0.0.4; charset=utf-8";
+}
@@ -0,0 +1,71 @@
+package jump61;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of LatencyHistogram and Metrics.
+ *  @author Brian Su
+ */
+public class MetricsTest {
+
+    @Test
+    public void testBuckets() {
+        assertEquals(0, LatencyHistogram.bucket(999));
+        assertEquals(1, LatencyHistogram.bucket(1000));
+        assertEquals(2, LatencyHistogram.bucket(3999));
+        assertEquals(3, LatencyHistogram.bucket(4000));
+        assertEquals(LatencyHistogram.BUCKETS - 1,
+                     LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testWrite() {
+        LatencyHistogram h = new LatencyHistogram("t_seconds", "Test.");
+        h.record(500);
+        h.record(1500);
+        h.record(1500);
+        h.record(3_000_000);
+        assertEquals(4, h.count());
+        assertEquals(2, h.count(1));
+        StringWriter text = new StringWriter();
+        h.write(new PrintWriter(text));
+        String out = text.toString();
+        assertTrue(out.contains("# TYPE t_seconds histogram"));
+        assertTrue(out.contains("t_seconds_bucket{le=\"1.0E-6\"} 1\n"));
+        assertTrue(out.contains("t_seconds_bucket{le=\"2.0E-6\"} 3\n"));
+        assertTrue(out.contains("t_seconds_bucket{le=\"0.002048\"} 3\n"));
+        assertTrue(out.contains("t_seconds_bucket{le=\"0.004096\"} 4\n"));
+        assertTrue(out.contains("t_seconds_bucket{le=\"+Inf\"} 4\n"));
+        assertTrue(out.contains("t_seconds_sum 0.00300"));
+        assertTrue(out.contains("t_seconds_count 4\n"));
+    }
+
+    @Test
+    public void testServe() throws IOException {
+        HttpServer server = Metrics.serve(0);
+        try {
+            Metrics.ERRORS.increment();
+            URL url =
+                new URL("http://localhost:" + Metrics.port(server)
+                        + "/metrics");
+            String body;
+            try (InputStream in = url.openStream()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            assertTrue(body.contains("jump61_errors_total "
+                                     + Metrics.ERRORS.sum()));
+            assertTrue(body.contains("jump61_move_seconds_count "));
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package jump61;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** Flight Recorder event for one call of MutableBoard.addSpot,
+ *  including the cascade of jumps it causes.  Search trial moves are
+ *  included, so by default only moves taking at least a millisecond
+ *  are recorded.
+ *  @author Brian Su
+ */
+@Name("jump61.MoveApplied")
+@Label("Move Applied")
+@Category("Jump61")
+@Description("A spot added to a board and the jumps that followed")
+@StackTrace(false)
+@Threshold("1 ms")
+class MoveAppliedEvent extends jdk.jfr.Event {
+
+    /** Number of the square that received the spot. */
+    @Label("Square")
+    int square;
+
+    /** Number of squares that jumped. */
+    @Label("Cascade Size")
+    long cascadeSize;
+
+    /** Size of the board. */
+    @Label("Board Size")
+    int boardSize;
+}
@@ -1,9 +1,22 @@
 package jump61;
 
+import java.util.Arrays;
+
 import static jump61.Color.*;
 import static jump61.GameException.error;
 
-/** A Jump61 board state.
+/** A Jump61 board state.  The cost of a move is proportional to the
+ *  number of squares its cascade of jumps touches, not to the size of
+ *  the board: counts and bit sets of the squares of each color are kept
+ *  up to date, jumps are resolved with an explicit stack rather than
+ *  recursion, and the undo history records only the squares that
+ *  changed.  The bit sets let legalMoves find a player's moves a word
+ *  of squares at a time.
+ *
+ *  Copies of a MutableBoard share its squares until one of them changes,
+ *  at which point that board takes a private copy.  Copying is therefore
+ *  O(1), and the cost of the squares is paid only by copies that are
+ *  actually modified.
  *  @author Brian Su
  */
 class MutableBoard extends Board {
@@ -13,20 +26,36 @@ class MutableBoard extends Board {
         initiate(N);
     }
 
-    /** A board whose initial contents are copied from BOARD0. Clears the
-     *  undo history. */
+    /** A board whose initial contents and move number are copied from
+     *  BOARD0. Clears the undo history. */
     MutableBoard(Board board0) {
         copy(board0);
-        _undos = new Stack<Square[]>();
+        clearUndo();
     }
 
-    /** Create a new board of size N. */
+    /** Create a new board of size N.  Throws IllegalArgumentException
+     *  if it has more than MAX_SQUARES squares. */
     void initiate(int N) {
+        checkSize(N);
+        unsyncWaves();
         _N = N;
         _moves = 0;
         _squares = new Square[N * N];
+        _shared = false;
+        _rowVersions = null;
         populateSquares();
-        _undos = new Stack<Square[]>();
+        countColors();
+        clearUndo();
+        _stack = new int[INITIAL_STACK];
+        publishReset();
+    }
+
+    /** Throw IllegalArgumentException if a board of size N would have
+     *  more than MAX_SQUARES squares. */
+    private static void checkSize(int N) {
+        if ((long) N * N > MAX_SQUARES) {
+            throw new IllegalArgumentException("board too large: " + N);
+        }
     }
 
     /** Instantiate a Square object for every element in _SQUARES. */
@@ -43,7 +72,46 @@ class MutableBoard extends Board {
 
     @Override
     void copy(Board board) {
-        _squares = board.getSquares();
+        checkSize(board.size());
+        unsyncWaves();
+        _N = board.size();
+        _moves = board.numMoves();
+        if (board instanceof MutableBoard) {
+            MutableBoard other = (MutableBoard) board;
+            _squares = other._squares;
+            _colorBits = other._colorBits;
+            _counts = other._counts.clone();
+            _shared = other._shared = true;
+        } else {
+            _squares = new Square[_N * _N];
+            for (int i = 0; i < _squares.length; i += 1) {
+                _squares[i] = new Square(board.color(i), board.spots(i));
+            }
+            _shared = false;
+            countColors();
+        }
+        clearUndo();
+        _rowVersions = null;
+        if (_stack == null) {
+            _stack = new int[INITIAL_STACK];
+        }
+        publishReset();
+    }
+
+    @Override
+    long rowVersion(int r) {
+        if (_rowVersions == null) {
+            _rowVersions = new long[_N];
+            for (int i = 0; i < _N; i += 1) {
+                _rowVersions[i] = ++_version;
+            }
+        }
+        return _rowVersions[r - 1];
+    }
+
+    @Override
+    MutableBoard fork() {
+        return new MutableBoard(this);
     }
 
     @Override
@@ -78,13 +146,31 @@ class MutableBoard extends Board {
 
     @Override
     int numOfColor(Color color) {
-        int num = 0;
-        for (Square square : _squares) {
-            if (square.getColor() == color) {
-                num++;
+        return _counts[color.ordinal()];
+    }
+
+    @Override
+    boolean isLegal(Color player, int n) {
+        return isLegal(player)
+            && player.playableSquare(_squares[n].getColor());
+    }
+
+    @Override
+    int legalMoves(Color player, int[] moves) {
+        if (!isLegal(player)) {
+            return 0;
+        }
+        int words = _colorBits.length / COLORS.length;
+        int white = WHITE.ordinal() * words, mine = player.ordinal() * words;
+        int count = 0;
+        for (int w = 0; w < words; w += 1) {
+            long bits = _colorBits[white + w] | _colorBits[mine + w];
+            while (bits != 0) {
+                moves[count++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
             }
         }
-        return num;
+        return count;
     }
 
     @Override
@@ -95,15 +181,34 @@ class MutableBoard extends Board {
     @Override
     void addSpot(Color player, int n) {
         if (isLegal(player, n)) {
-            _undos.push(copyArray(_squares));
-            set(n, _squares[n].getSpots() + 1, player);
+            MoveAppliedEvent event = new MoveAppliedEvent();
+            event.begin();
+            long jumps = _jumps;
+            startChanges();
+            markUndo();
+            change(n, _squares[n].getSpots() + 1, player);
             _moves++;
             jump(n, player);
+            publish(ChangeBatch.Kind.MOVE, n);
+            if (event.shouldCommit()) {
+                event.square = n;
+                event.cascadeSize = _jumps - jumps;
+                event.boardSize = _N;
+                event.commit();
+            }
         } else {
             throw error("invalid move: %d %d", row(n), col(n));
         }
     }
 
+    @Override
+    void pass() {
+        startChanges();
+        markUndo();
+        _moves++;
+        publish(ChangeBatch.Kind.PASS, -1);
+    }
+
     /** Returns a new Square array with contents of ORIGINAL.*/
     Square[] copyArray(Square[] original) {
         Square[] result = new Square[original.length];
@@ -124,62 +229,591 @@ class MutableBoard extends Board {
         if (num == 0) {
             player = WHITE;
         }
-        _squares[n].setColor(player);
-        _squares[n].setSpots(num);
+        clearUndo();
+        startChanges();
+        change(n, num, player);
+        publish(ChangeBatch.Kind.SET, n);
     }
 
     @Override
     void setMoves(int num) {
         assert num > 0;
+        clearUndo();
+        startChanges();
         _moves = num;
+        publish(ChangeBatch.Kind.SET, -1);
     }
 
     @Override
     void undo() {
-        if (_moves > 0) {
-            Square[] item = _undos.pop();
-            _squares = item;
+        if (_moves > 0 && _marksEnd > _marksStart) {
+            startChanges();
+            _marksEnd -= 1;
+            long mark = _marks[(int) _marksEnd & (_marks.length - 1)];
+            int mask = _journal.length - 1;
+            while (_journalEnd > mark) {
+                _journalEnd -= 1;
+                int entry = _journal[(int) _journalEnd & mask];
+                restore(entry >>> JOURNAL_SHIFT, entry & JOURNAL_MASK);
+            }
             _moves--;
+            publish(ChangeBatch.Kind.UNDO, -1);
+        }
+    }
+
+    /** Returns the number of moves that undo() can currently take
+     *  back. */
+    int undoDepth() {
+        return (int) (_marksEnd - _marksStart);
+    }
+
+    /** Limit the undo history to about ENTRIES changed squares, a power
+     *  of two, forgetting the oldest moves as needed.  Clears the undo
+     *  history. */
+    void setUndoLimit(int entries) {
+        assert Integer.bitCount(entries) == 1;
+        _undoLimit = entries;
+        clearUndo();
+    }
+
+    /** Returns my contents in compact form: one byte per square holding
+     *  its spots times four plus its color's ordinal.  Requires that no
+     *  square have 64 or more spots. */
+    byte[] encode() {
+        byte[] cells = new byte[_squares.length];
+        for (int i = 0; i < cells.length; i += 1) {
+            Square sq = _squares[i];
+            cells[i] = (byte) ((sq.getSpots() << 2) | sq.getColor().ordinal());
+        }
+        return cells;
+    }
+
+    /** Set my contents to CELLS, as returned by encode() for a board of my
+     *  size, and my move number to MOVES.  Clears the undo history. */
+    void decode(byte[] cells, int moves) {
+        assert cells.length == _squares.length;
+        clearUndo();
+        startChanges();
+        for (int i = 0; i < cells.length; i += 1) {
+            change(i, cells[i] >>> 2, COLORS[cells[i] & 3]);
         }
+        _moves = moves;
+        publish(ChangeBatch.Kind.SET, -1);
     }
 
     /** Do all jumping on this board, assuming that initially, S is the only
-     *  square that might be over-full. Changes color of square to PLAYER. */
+     *  square that might be over-full. Changes color of square to PLAYER.
+     *  The squares are visited in exactly the order of a depth-first
+     *  recursion that, for each jumping square, gives a spot to its right,
+     *  left, lower, and upper neighbors in turn and then jumps each
+     *  neighbor before moving on to the next.  Once the board is all one
+     *  color, remaining spots are still handed out but no more squares
+     *  jump.  A cascade that reaches the threshold of a wave resolver set
+     *  with setWaveResolver is finished by the resolver, unless it wins
+     *  the game. */
     private void jump(int S, Color player) {
-        if (getWinner() != null) {
+        CascadeStats stats = _cascadeStats;
+        if (getWinner() != null || !overfull(S)) {
+            if (stats != null) {
+                stats.record(0, 0, 1, false);
+            }
             return;
         }
-        if (_squares[S].getSpots() > neighbors(S)) {
-            _squares[S].setSpots(1);
-            if (col(S) < size()) {
-                _squares[S + 1].setSpots(_squares[S + 1].getSpots() + 1);
-                changeColor(S + 1, player);
-                jump(S + 1, player);
+        change(S, 1, player);
+        _jumps += 1;
+        WaveResolver waves =
+            stats == null && _waves != null && _waves.size() == _N
+            ? _waves : null;
+        int explosions = 1, depth = 1, touched = 0;
+        boolean midCascadeWin = false;
+        if (stats != null) {
+            startTouches();
+            touched += touch(S);
+        }
+        int top = 0;
+        _stack[top++] = S << 2;
+        while (top > 0) {
+            int frame = _stack[top - 1];
+            int sq = frame >>> 2, dir = frame & 3;
+            int nbr = neighbor(sq, dir);
+            if (dir == 3) {
+                top -= 1;
+            } else {
+                _stack[top - 1] = frame + 1;
+            }
+            if (nbr < 0) {
+                continue;
+            }
+            change(nbr, _squares[nbr].getSpots() + 1, player);
+            if (stats != null) {
+                touched += touch(nbr);
+            }
+            if (getWinner() == null && overfull(nbr)) {
+                change(nbr, 1, player);
+                _jumps += 1;
+                explosions += 1;
+                if (top == _stack.length) {
+                    _stack = Arrays.copyOf(_stack, 2 * top);
+                }
+                _stack[top++] = nbr << 2;
+                depth = Math.max(depth, top);
+                if (waves != null && explosions == waves.threshold()
+                    && resolveInWaves(top, player)) {
+                    top = 0;
+                }
+            } else if (stats != null && !midCascadeWin && top > 0) {
+                midCascadeWin = getWinner() != null;
+            }
+        }
+        if (stats != null) {
+            stats.record(explosions, depth, touched, midCascadeWin);
+        }
+    }
+
+    /** Finish the cascade for PLAYER whose pending jumps are the first
+     *  TOP frames of _stack with _waves.  Returns true if done, and false,
+     *  leaving me unchanged, if the cascade wins the game, since only
+     *  the depth-first order gives the right final position then.  Also
+     *  returns false if some square is already over-full, as squares
+     *  left by a win in mid-cascade and then set can be: the depth-first
+     *  order jumps such a square only when it receives a spot, and then
+     *  leaves it one spot, while a wave jumps it at once and takes away
+     *  only as many spots as it has neighbors.  _waves is kept equal to
+     *  me between handovers, so that only the squares changed since the
+     *  last one, and the rows the cascade reaches, are visited; the
+     *  whole board is loaded only after it has been replaced or changed
+     *  in many places. */
+    private boolean resolveInWaves(int top, Color player) {
+        WaveResolver waves = _waves;
+        int me = player.ordinal();
+        if (!_wavesSynced) {
+            for (int sq = 0; sq < _squares.length; sq += 1) {
+                if (overfull(sq)) {
+                    return false;
+                }
+            }
+            for (int sq = 0; sq < _squares.length; sq += 1) {
+                waves.set(sq, _squares[sq].getSpots(),
+                          _squares[sq].getColor().ordinal());
             }
-            if (col(S) > 1) {
-                _squares[S - 1].setSpots(_squares[S - 1].getSpots() + 1);
-                changeColor(S - 1, player);
-                jump(S - 1, player);
+            if (_isDirty == null || _isDirty.length != _squares.length) {
+                _isDirty = new boolean[_squares.length];
+                _dirty = new int[_squares.length / MAX_DIRTY_FRACTION + 1];
             }
-            int n = size();
-            if (row(S) < size()) {
-                _squares[S + n].setSpots(_squares[S + n].getSpots() + 1);
-                changeColor(S + n, player);
-                jump(S + n, player);
+        } else {
+            for (int k = 0; k < _dirtyCount; k += 1) {
+                if (overfull(_dirty[k])) {
+                    return false;
+                }
             }
-            if (row(S) > 1) {
-                _squares[S - n].setSpots(_squares[S - n].getSpots() + 1);
-                changeColor(S - n, player);
-                jump(S - n, player);
+            for (int k = 0; k < _dirtyCount; k += 1) {
+                int sq = _dirty[k];
+                waves.set(sq, _squares[sq].getSpots(),
+                          _squares[sq].getColor().ordinal());
+            }
+            clearDirty();
+        }
+        _wavesSynced = false;
+        int others = _squares.length - numOfColor(player);
+        for (int k = 0; k < top; k += 1) {
+            int sq = _stack[k] >>> 2;
+            for (int dir = _stack[k] & 3; dir < 4; dir += 1) {
+                int nbr = neighbor(sq, dir);
+                if (nbr >= 0 && waves.give(nbr, me)) {
+                    others -= 1;
+                }
             }
         }
+        long jumps = waves.resolve(me, others);
+        if (jumps < 0) {
+            return false;
+        }
+        int n = _N;
+        for (int r = waves.firstRow(); r <= waves.lastRow(); r += 1) {
+            for (int sq = r * n; sq < (r + 1) * n; sq += 1) {
+                Square square = _squares[sq];
+                if (square.getSpots() != waves.spots(sq)
+                    || square.getColor().ordinal() != waves.owner(sq)) {
+                    change(sq, waves.spots(sq), COLORS[waves.owner(sq)]);
+                }
+            }
+        }
+        _wavesSynced = true;
+        _jumps += jumps;
+        return true;
+    }
+
+    /** Note that square N no longer matches _waves, forgetting which
+     *  squares those are and reloading all of _waves at the next
+     *  handover if too many do. */
+    private void noteDirty(int n) {
+        if (_isDirty[n]) {
+            return;
+        }
+        if (_dirtyCount == _dirty.length) {
+            unsyncWaves();
+            return;
+        }
+        _isDirty[n] = true;
+        _dirty[_dirtyCount++] = n;
     }
 
-    /** Change the color of square N to COLOR if it is not already. */
-    private void changeColor(int n, Color color) {
-        if (_squares[n].getColor() != color) {
-            _squares[n].setColor(color);
+    /** Forget the squares noted by noteDirty. */
+    private void clearDirty() {
+        for (int k = 0; k < _dirtyCount; k += 1) {
+            _isDirty[_dirty[k]] = false;
         }
+        _dirtyCount = 0;
+    }
+
+    /** Have the next handover load all of _waves. */
+    private void unsyncWaves() {
+        _wavesSynced = false;
+        clearDirty();
+    }
+
+    /** Have WAVES finish the cascades on me that reach its threshold,
+     *  whenever it is my size and no one is collecting cascade
+     *  statistics; or, if WAVES is null, resolve all cascades depth
+     *  first.  No one else may change WAVES while I have it.  Returns
+     *  the previous resolver. */
+    WaveResolver setWaveResolver(WaveResolver waves) {
+        WaveResolver previous = _waves;
+        _waves = waves;
+        unsyncWaves();
+        return previous;
+    }
+
+    /** Start counting the distinct squares touched by a new move. */
+    private void startTouches() {
+        if (_touches == null || _touches.length != _squares.length
+            || _touchEpoch == Integer.MAX_VALUE) {
+            _touches = new int[_squares.length];
+            _touchEpoch = 0;
+        }
+        _touchEpoch += 1;
+    }
+
+    /** Note that square N has been touched by the current move.  Returns
+     *  1 if this is the first time, and otherwise 0. */
+    private int touch(int n) {
+        if (_touches[n] == _touchEpoch) {
+            return 0;
+        }
+        _touches[n] = _touchEpoch;
+        return 1;
+    }
+
+    /** Report the cascade caused by each subsequent move to STATS, or to
+     *  no one if STATS is null.  Returns the previous recipient.  When no
+     *  one is listening, the cost is one test per move and a few per
+     *  jump. */
+    CascadeStats setCascadeStats(CascadeStats stats) {
+        CascadeStats previous = _cascadeStats;
+        _cascadeStats = stats;
+        return previous;
+    }
+
+    /** Report the changes of my contents and move number to LISTENER,
+     *  in one ChangeBatch per operation, from now on.  Copies made with
+     *  fork do not inherit my listeners.  When no one is listening, the
+     *  cost is one test per square changed. */
+    void addListener(BoardListener listener) {
+        if (_listeners == null) {
+            _listeners = new BoardListener[] { listener };
+        } else {
+            _listeners = Arrays.copyOf(_listeners, _listeners.length + 1);
+            _listeners[_listeners.length - 1] = listener;
+        }
+    }
+
+    /** Stop reporting changes to LISTENER. */
+    void removeListener(BoardListener listener) {
+        if (_listeners == null) {
+            return;
+        }
+        for (int k = 0; k < _listeners.length; k += 1) {
+            if (_listeners[k] == listener) {
+                BoardListener[] rest = new BoardListener[_listeners.length - 1];
+                System.arraycopy(_listeners, 0, rest, 0, k);
+                System.arraycopy(_listeners, k + 1, rest, k, rest.length - k);
+                _listeners = rest.length == 0 ? null : rest;
+                return;
+            }
+        }
+    }
+
+    /** Start collecting the squares changed by an operation, if anyone
+     *  is listening. */
+    private void startChanges() {
+        if (_listeners == null) {
+            return;
+        }
+        int area = _squares.length;
+        if (_changeMarks == null || _changeMarks.length != area
+            || _changeEpoch == Integer.MAX_VALUE) {
+            _changeMarks = new int[area];
+            _before = new int[area];
+            _changed = new int[area];
+            _changeEpoch = 0;
+        }
+        _changeEpoch += 1;
+        _changedCount = 0;
+    }
+
+    /** Note that square N is about to change in the current
+     *  operation. */
+    private void noteChange(int n) {
+        if (_changeMarks[n] != _changeEpoch) {
+            _changeMarks[n] = _changeEpoch;
+            _before[n] = cell(n);
+            _changed[_changedCount++] = n;
+        }
+    }
+
+    /** Send my listeners, if any, the squares changed since startChanges
+     *  whose contents now differ, as an operation of kind KIND on square
+     *  SQUARE (-1 if none). */
+    private void publish(ChangeBatch.Kind kind, int square) {
+        if (_listeners == null) {
+            return;
+        }
+        int count = 0;
+        int[] cells = new int[_changedCount];
+        for (int k = 0; k < _changedCount; k += 1) {
+            int n = _changed[k];
+            if (cell(n) != _before[n]) {
+                _changed[count] = n;
+                cells[count] = cell(n);
+                count += 1;
+            }
+        }
+        send(new ChangeBatch(kind, square, _N, _moves, count, _changed,
+                             cells));
+    }
+
+    /** Send my listeners, if any, all my squares, after my contents have
+     *  been replaced. */
+    private void publishReset() {
+        if (_listeners == null) {
+            return;
+        }
+        int area = _squares.length;
+        int[] squares = new int[area], cells = new int[area];
+        for (int n = 0; n < area; n += 1) {
+            squares[n] = n;
+            cells[n] = cell(n);
+        }
+        send(new ChangeBatch(ChangeBatch.Kind.RESET, -1, _N, _moves, area,
+                             squares, cells));
+    }
+
+    /** Send BATCH to each of my listeners. */
+    private void send(ChangeBatch batch) {
+        for (BoardListener listener : _listeners) {
+            listener.boardChanged(this, batch);
+        }
+    }
+
+    /** Returns the contents of square N as its spots times four plus its
+     *  color's ordinal. */
+    private int cell(int n) {
+        Square sq = _squares[n];
+        return (sq.getSpots() << 2) | sq.getColor().ordinal();
+    }
+
+    /** Returns the neighbor of square S in direction DIR (0 right,
+     *  1 left, 2 down, 3 up), or -1 if there is none. */
+    private int neighbor(int S, int dir) {
+        int n = _N, c = S % n;
+        switch (dir) {
+        case 0:
+            return c < n - 1 ? S + 1 : -1;
+        case 1:
+            return c > 0 ? S - 1 : -1;
+        case 2:
+            return S + n < n * n ? S + n : -1;
+        default:
+            return S >= n ? S - n : -1;
+        }
+    }
+
+    /** Returns true iff square S has more spots than neighbors. */
+    private boolean overfull(int S) {
+        int n = _N, r = S / n, c = S % n;
+        int nbrs = 4;
+        if (r == 0 || r == n - 1) {
+            nbrs -= 1;
+        }
+        if (c == 0 || c == n - 1) {
+            nbrs -= 1;
+        }
+        return _squares[S].getSpots() > nbrs;
+    }
+
+    /** Give square N NUM spots and color COLOR, keeping the color counts
+     *  and (if there is any undo history) the journal up to date. */
+    private void change(int n, int num, Color color) {
+        if (_shared) {
+            unshare();
+        }
+        if (_rowVersions != null) {
+            _rowVersions[n / _N] = ++_version;
+        }
+        if (_listeners != null) {
+            noteChange(n);
+        }
+        if (_wavesSynced) {
+            noteDirty(n);
+        }
+        Square sq = _squares[n];
+        Color old = sq.getColor();
+        if (_marksEnd > _marksStart) {
+            record(n, sq.getSpots(), old);
+        }
+        if (old != color) {
+            recolor(n, old, color);
+            sq.setColor(color);
+        }
+        sq.setSpots(num);
+    }
+
+    /** Restore square N from journal entry DATA. */
+    private void restore(int n, int data) {
+        if (_shared) {
+            unshare();
+        }
+        if (_rowVersions != null) {
+            _rowVersions[n / _N] = ++_version;
+        }
+        if (_listeners != null) {
+            noteChange(n);
+        }
+        if (_wavesSynced) {
+            noteDirty(n);
+        }
+        Square sq = _squares[n];
+        Color color = COLORS[data & 3];
+        Color old = sq.getColor();
+        if (old != color) {
+            recolor(n, old, color);
+            sq.setColor(color);
+        }
+        sq.setSpots(data >>> 2);
+    }
+
+    /** Move square N from the count and bit set of color OLD to those of
+     *  color COLOR. */
+    private void recolor(int n, Color old, Color color) {
+        int words = _colorBits.length / COLORS.length;
+        long bit = 1L << n;
+        _counts[old.ordinal()] -= 1;
+        _counts[color.ordinal()] += 1;
+        _colorBits[old.ordinal() * words + (n >>> 6)] &= ~bit;
+        _colorBits[color.ordinal() * words + (n >>> 6)] |= bit;
+    }
+
+    /** Replace my squares, which other boards may also be using, with a
+     *  private copy. */
+    private void unshare() {
+        _squares = copyArray(_squares);
+        _colorBits = _colorBits.clone();
+        _shared = false;
+    }
+
+    /** Append to the journal that square N had SPOTS spots and color
+     *  COLOR, forgetting old moves if the journal is full.  Several may
+     *  have to go, since passes have no entries. */
+    private void record(int n, int spots, Color color) {
+        if (_journalEnd - _journalStart == _journal.length
+            && _journal.length < _undoLimit) {
+            _journal = grow(_journal, _journalStart, _journalEnd);
+        }
+        while (_journalEnd - _journalStart == _journal.length) {
+            forgetOldestMove();
+            if (_marksEnd == _marksStart) {
+                return;
+            }
+        }
+        _journal[(int) _journalEnd & (_journal.length - 1)] =
+            (n << JOURNAL_SHIFT) | (spots << 2) | color.ordinal();
+        _journalEnd += 1;
+    }
+
+    /** Record the start of a move in the undo history. */
+    private void markUndo() {
+        if (_marksEnd - _marksStart == _marks.length) {
+            if (_marks.length < _undoLimit) {
+                _marks = grow(_marks, _marksStart, _marksEnd);
+            } else {
+                forgetOldestMove();
+            }
+        }
+        _marks[(int) _marksEnd & (_marks.length - 1)] = _journalEnd;
+        _marksEnd += 1;
+    }
+
+    /** Drop the oldest move from the undo history. */
+    private void forgetOldestMove() {
+        _marksStart += 1;
+        if (_marksStart == _marksEnd) {
+            _journalStart = _journalEnd;
+        } else {
+            _journalStart = _marks[(int) _marksStart & (_marks.length - 1)];
+        }
+    }
+
+    /** Returns a ring twice the size of RING holding the same entries,
+     *  numbered START up to END, at the same positions modulo its size. */
+    private static int[] grow(int[] ring, long start, long end) {
+        int[] result = new int[2 * ring.length];
+        for (long i = start; i < end; i += 1) {
+            result[(int) i & (result.length - 1)] =
+                ring[(int) i & (ring.length - 1)];
+        }
+        return result;
+    }
+
+    /** Returns a ring twice the size of RING holding the same entries,
+     *  numbered START up to END, at the same positions modulo its size. */
+    private static long[] grow(long[] ring, long start, long end) {
+        long[] result = new long[2 * ring.length];
+        for (long i = start; i < end; i += 1) {
+            result[(int) i & (result.length - 1)] =
+                ring[(int) i & (ring.length - 1)];
+        }
+        return result;
+    }
+
+    /** Empty the undo history. */
+    private void clearUndo() {
+        int journalSize = Math.min(INITIAL_JOURNAL, _undoLimit),
+            marksSize = Math.min(INITIAL_MARKS, _undoLimit);
+        if (_journal == null || _journal.length != journalSize) {
+            _journal = new int[journalSize];
+            _marks = new long[marksSize];
+        }
+        _journalStart = _journalEnd = 0;
+        _marksStart = _marksEnd = 0;
+    }
+
+    /** Recompute the counts and bit sets of the squares of each
+     *  color. */
+    private void countColors() {
+        int words = (_squares.length + 63) >>> 6;
+        _counts = new int[COLORS.length];
+        _colorBits = new long[COLORS.length * words];
+        for (int n = 0; n < _squares.length; n += 1) {
+            int c = _squares[n].getColor().ordinal();
+            _counts[c] += 1;
+            _colorBits[c * words + (n >>> 6)] |= 1L << n;
+        }
+    }
+
+    /** Returns the total number of times a square has jumped on this
+     *  board. */
+    long jumps() {
+        return _jumps;
     }
 
     /** Returns the array of squares. */
@@ -187,12 +821,95 @@ class MutableBoard extends Board {
         return _squares;
     }
 
+    /** All colors, by ordinal. */
+    private static final Color[] COLORS = Color.values();
+    /** Journal entries hold a square number above this many bits, and
+     *  spots and color below. */
+    private static final int JOURNAL_SHIFT = 12;
+    /** At most 1 / MAX_DIRTY_FRACTION of the squares are tracked as
+     *  differing from a wave resolver before it is reloaded in full. */
+    private static final int MAX_DIRTY_FRACTION = 8;
+    /** Mask for the spots and color of a journal entry. */
+    private static final int JOURNAL_MASK = (1 << JOURNAL_SHIFT) - 1;
+    /** Most squares a board may have, so that every square number fits
+     *  in the unsigned top bits of a journal entry. */
+    static final int MAX_SQUARES = 1 << (Integer.SIZE - JOURNAL_SHIFT);
+    /** Initial capacities. */
+    private static final int INITIAL_STACK = 64, INITIAL_JOURNAL = 64,
+        INITIAL_MARKS = 16;
+
     /** Total combined number of moves by both sides. */
     protected int _moves;
     /** Convenience variable: size of board (squares along one edge). */
     private int _N;
-    /** Stack for storing undos. */
-    private Stack<Square[]> _undos;
     /** Current board. */
     private Square[] _squares;
+    /** True iff _squares may also be in use by another board, so that I
+     *  must copy it before changing it. */
+    private boolean _shared;
+    /** Number of squares of each color, by ordinal. */
+    private int[] _counts;
+    /** Bit sets of the squares of each color, by ordinal: bit n % 64 of
+     *  word c * W + n / 64, where W is the number of words per color, is
+     *  set iff square n has the color with ordinal c.  Shared along with
+     *  _squares. */
+    private long[] _colorBits;
+    /** Ring of the prior contents of each square changed since the first
+     *  recorded move.  Entry #K (counting from the first ever recorded)
+     *  is at K modulo its length, a power of two. */
+    private int[] _journal;
+    /** Numbers of the oldest retained and next journal entries. */
+    private long _journalStart, _journalEnd;
+    /** Ring of the journal entry numbers at the start of each recorded
+     *  move, numbered like _journal. */
+    private long[] _marks;
+    /** Numbers of the oldest retained and next marks. */
+    private long _marksStart, _marksEnd;
+    /** Maximum length of the journal and mark rings. */
+    private int _undoLimit = Defaults.UNDO_LIMIT;
+    /** Version of each row, for rowVersion, or null if no one has asked
+     *  yet. */
+    private long[] _rowVersions;
+    /** Last row version issued. */
+    private long _version;
+    /** Number of jumps so far. */
+    private long _jumps;
+    /** Resolver that finishes large cascades, or null.  It belongs to
+     *  me while set. */
+    private WaveResolver _waves;
+    /** True iff _waves holds my contents except at the squares in
+     *  _dirty. */
+    private boolean _wavesSynced;
+    /** The squares changed since _waves last matched me, in the first
+     *  _dirtyCount elements. */
+    private int[] _dirty;
+    /** Number of squares in _dirty. */
+    private int _dirtyCount;
+    /** For each square, true iff it is in _dirty. */
+    private boolean[] _isDirty;
+    /** Recipient of cascade statistics, or null. */
+    private CascadeStats _cascadeStats;
+    /** For each square, the value of _touchEpoch when a move last touched
+     *  it, while cascade statistics are being collected. */
+    private int[] _touches;
+    /** Number of the current move when collecting cascade statistics. */
+    private int _touchEpoch;
+    /** Recipients of my changes, or null if there are none. */
+    private BoardListener[] _listeners;
+    /** Squares changed by the current operation, in order, while anyone
+     *  is listening. */
+    private int[] _changed;
+    /** Number of squares in _changed. */
+    private int _changedCount;
+    /** For each square, the value of _changeEpoch when the current
+     *  operation first changed it. */
+    private int[] _changeMarks;
+    /** Number of the current operation, while anyone is listening. */
+    private int _changeEpoch;
+    /** Contents of each square in _changed before the current operation,
+     *  as for cell. */
+    private int[] _before;
+    /** Pending jumps: square numbers shifted left two bits, plus the
+     *  next direction to visit. */
+    private int[] _stack;
 }
@@ -1,5 +1,10 @@
 package jump61;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import static jump61.Color.*;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -32,6 +37,185 @@ public class MutableBoardTest {
         assertEquals(_b.numOfColor(WHITE), 36);
     }
 
+    @Test
+    public void testCascadeStats() {
+        MutableBoard b = new MutableBoard(4);
+        CascadeStats stats = new CascadeStats();
+        b.set(1, 1, 2, RED);
+        b.set(1, 2, 3, RED);
+        assertNull(b.setCascadeStats(stats));
+        b.addSpot(RED, 1, 1);
+        assertEquals(1, stats.moves());
+        assertEquals(2, stats.max(0));
+        assertEquals(2, stats.max(1));
+        assertEquals(5, stats.max(2));
+        b.addSpot(BLUE, 4, 4);
+        assertEquals(2, stats.moves());
+        assertEquals(1, stats.count(0, 0));
+        assertEquals(1, stats.count(2, 1));
+        assertEquals(0, stats.midCascadeWins());
+        MutableBoard small = new MutableBoard(2);
+        small.set(1, 1, 2, RED);
+        small.set(1, 2, 2, RED);
+        small.set(2, 1, 1, BLUE);
+        small.setCascadeStats(stats);
+        small.addSpot(RED, 1, 1);
+        assertEquals(RED, small.getWinner());
+        assertEquals(1, stats.midCascadeWins());
+        assertSame(stats, b.setCascadeStats(null));
+        b.addSpot(RED, 1, 1);
+        assertEquals(3, stats.moves());
+    }
+
+    @Test
+    public void testFork() {
+        MutableBoard a = new MutableBoard(4);
+        a.addSpot(RED, 1, 1);
+        a.addSpot(BLUE, 2, 2);
+        String before = a.toString();
+        MutableBoard b = a.fork();
+        Board frozen = a.snapshot();
+        assertEquals(4, b.size());
+        assertEquals(2, b.numMoves());
+        assertEquals(before, b.toString());
+        b.addSpot(RED, 1, 1);
+        assertEquals(before, a.toString());
+        assertEquals(2, b.spots(1, 1));
+        a.addSpot(RED, 4, 4);
+        a.undo();
+        a.undo();
+        assertEquals(before, frozen.toString());
+        assertEquals(2, frozen.numMoves());
+        assertEquals(1, a.numOfColor(RED));
+        b.undo();
+        assertEquals(before, b.toString());
+        MutableBoard c = new MutableBoard(new ConstantBoard(b));
+        c.addSpot(RED, 3, 3);
+        assertEquals(before, b.toString());
+        assertEquals(2, c.numOfColor(RED));
+    }
+
+    @Test
+    public void testMaxSquares() {
+        int n = (int) Math.sqrt(MutableBoard.MAX_SQUARES);
+        assertTrue(n * n <= MutableBoard.MAX_SQUARES);
+        MutableBoard b = new MutableBoard(2);
+        try {
+            b.clear(n + 1);
+            fail("accepted a board too large for the undo journal");
+        } catch (IllegalArgumentException excp) {
+            assertEquals(2, b.size());
+        }
+    }
+
+    @Test
+    public void testLegalMoves() {
+        Random random = new Random(61);
+        int[] moves = new int[100], expected = new int[100];
+        for (int n : new int[] { 3, 8, 10 }) {
+            MutableBoard b = new MutableBoard(n);
+            MutableBoard fork = b;
+            for (int k = 0; k < 400; k += 1) {
+                if (b.getWinner() != null || k % 50 == 49) {
+                    b.undo();
+                    b.set(random.nextInt(n * n), 1, BLUE);
+                } else if (k % 7 == 6) {
+                    b.undo();
+                } else if (k % 31 == 30) {
+                    fork = b;
+                    b = b.fork();
+                }
+                for (Color p : new Color[] { RED, BLUE }) {
+                    int count = 0;
+                    for (int sq = 0; sq < n * n; sq += 1) {
+                        if (b.isLegal(p, sq)) {
+                            expected[count++] = sq;
+                        }
+                    }
+                    assertEquals(count, b.legalMoves(p, moves));
+                    assertTrue(Arrays.equals(expected, 0, count,
+                                             moves, 0, count));
+                }
+                int[] mine = new int[n * n];
+                int count = b.legalMoves(b.whoseMove(), mine);
+                if (count > 0) {
+                    b.addSpot(b.whoseMove(), mine[random.nextInt(count)]);
+                }
+            }
+            assertEquals(fork.numOfColor(WHITE),
+                         fork.legalMoves(fork.whoseMove(), moves)
+                         - fork.numOfColor(fork.whoseMove()));
+        }
+    }
+
+    @Test
+    public void testChangeBatches() {
+        Random random = new Random(61);
+        MutableBoard b = new MutableBoard(5);
+        List<ChangeBatch> batches = new ArrayList<>();
+        b.addListener((board, batch) -> batches.add(batch));
+        b.addSpot(RED, 2, 2);
+        assertEquals(1, batches.size());
+        ChangeBatch first = batches.get(0);
+        assertEquals(ChangeBatch.Kind.MOVE, first.kind());
+        assertEquals(b.sqNum(2, 2), first.square());
+        assertEquals(1, first.moveNumber());
+        assertEquals(1, first.count());
+        assertEquals(1, first.spots(0));
+        assertEquals(RED, first.color(0));
+        assertEquals("move 1 5 6:1r", first.toString());
+        b.fork().addSpot(BLUE, 1, 1);
+        assertEquals(1, batches.size());
+
+        int[] mirror = new int[25];
+        int moves = 0;
+        b.clear(5);
+        batches.clear();
+        for (int k = 0; k < 400; k += 1) {
+            int n = b.size();
+            switch (random.nextInt(12)) {
+            case 0:
+                b.undo();
+                break;
+            case 1:
+                b.set(random.nextInt(n * n), 1 + random.nextInt(2), BLUE);
+                break;
+            case 2:
+                b.clear(4 + random.nextInt(3));
+                break;
+            case 3:
+                b.decode(b.fork().encode(), b.numMoves());
+                break;
+            default:
+                if (b.getWinner() != null) {
+                    b.clear(n);
+                    break;
+                }
+                int sq;
+                do {
+                    sq = random.nextInt(n * n);
+                } while (!b.isLegal(b.whoseMove(), sq));
+                b.addSpot(b.whoseMove(), sq);
+            }
+            for (ChangeBatch batch : batches) {
+                if (batch.kind() == ChangeBatch.Kind.RESET) {
+                    mirror = new int[batch.size() * batch.size()];
+                }
+                for (int j = 0; j < batch.count(); j += 1) {
+                    mirror[batch.changed(j)] =
+                        batch.spots(j) << 2 | batch.color(j).ordinal();
+                }
+                moves = batch.moveNumber();
+            }
+            batches.clear();
+            assertEquals(b.numMoves(), moves);
+            for (int sq = 0; sq < mirror.length; sq += 1) {
+                assertEquals(b.spots(sq) << 2 | b.color(sq).ordinal(),
+                             mirror[sq]);
+            }
+        }
+    }
+
     /** Board. */
     Board _b;
 }
@@ -0,0 +1,209 @@
+package jump61;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import static jump61.Color.*;
+
+/** A bare-bones Jump61 board for fast random playouts.  Squares live in
+ *  primitive arrays, moves cannot be undone, and jumps stop as soon as
+ *  someone wins.  Jumps are resolved in the same order as MutableBoard,
+ *  so a Playout and a MutableBoard given the same moves agree on every
+ *  position until the game ends, and on the winner.
+ *  @author Brian Su
+ */
+class Playout {
+
+    /** An empty N x N board. */
+    Playout(int n) {
+        _n = n;
+        int area = n * n;
+        _spots = new int[area];
+        _owner = new byte[area];
+        _cap = new int[area];
+        _nbrs = new int[4 * area];
+        _stack = new int[area + 1];
+        for (int sq = 0; sq < area; sq += 1) {
+            int r = sq / n, c = sq % n;
+            _cap[sq] = 4 - (r == 0 || r == n - 1 ? 1 : 0)
+                - (c == 0 || c == n - 1 ? 1 : 0);
+            _nbrs[4 * sq] = c < n - 1 ? sq + 1 : -1;
+            _nbrs[4 * sq + 1] = c > 0 ? sq - 1 : -1;
+            _nbrs[4 * sq + 2] = r < n - 1 ? sq + n : -1;
+            _nbrs[4 * sq + 3] = r > 0 ? sq - n : -1;
+        }
+        reset();
+    }
+
+    /** Clear me to an empty board with no moves made. */
+    void reset() {
+        Arrays.fill(_spots, 0);
+        Arrays.fill(_owner, (byte) 0);
+        _counts[0] = _spots.length;
+        _counts[1] = _counts[2] = 0;
+        _moves = 0;
+    }
+
+    /** Make my position that of BOARD, which must be my size. */
+    void load(Board board) {
+        assert board.size() == _n;
+        _counts[0] = _counts[1] = _counts[2] = 0;
+        for (int sq = 0; sq < _spots.length; sq += 1) {
+            _spots[sq] = board.spots(sq);
+            _owner[sq] = (byte) board.color(sq).ordinal();
+            _counts[_owner[sq]] += 1;
+        }
+        _moves = board.numMoves();
+    }
+
+    /** Make my position the one after MOVES moves with SPOTS[sq] spots
+     *  on each square SQ, colored by the Color whose ordinal is
+     *  OWNERS[sq]. */
+    void load(byte[] owners, int[] spots, int moves) {
+        _counts[0] = _counts[1] = _counts[2] = 0;
+        for (int sq = 0; sq < _spots.length; sq += 1) {
+            _spots[sq] = spots[sq];
+            _owner[sq] = owners[sq];
+            _counts[owners[sq]] += 1;
+        }
+        _moves = moves;
+    }
+
+    /** Returns the size of a side. */
+    int size() {
+        return _n;
+    }
+
+    /** Returns the number of moves made. */
+    int numMoves() {
+        return _moves;
+    }
+
+    /** Returns the number of spots on square SQ. */
+    int spots(int sq) {
+        return _spots[sq];
+    }
+
+    /** Returns the color of square SQ. */
+    Color color(int sq) {
+        return COLORS[_owner[sq]];
+    }
+
+    /** Returns the player to move. */
+    Color whoseMove() {
+        return (_moves & 1) == 0 ? RED : BLUE;
+    }
+
+    /** Returns the winner, or null if the game is not over. */
+    Color winner() {
+        if (_counts[1] == _spots.length) {
+            return RED;
+        } else if (_counts[2] == _spots.length) {
+            return BLUE;
+        }
+        return null;
+    }
+
+    /** Play random moves chosen with RANDOM until someone wins, and
+     *  return the winner. */
+    Color playOut(RandomGenerator random) {
+        int area = _spots.length;
+        while (_counts[1] != area && _counts[2] != area) {
+            move(randomMove(random));
+        }
+        return winner();
+    }
+
+    /** Returns a square chosen uniformly with RANDOM from those where the
+     *  player to move may play.  Requires that the game not be over. */
+    int randomMove(RandomGenerator random) {
+        int area = _spots.length;
+        int me = 1 + (_moves & 1), them = 3 - me;
+        int legal = area - _counts[them];
+        if (4 * legal >= area) {
+            while (true) {
+                int sq = random.nextInt(area);
+                if (_owner[sq] != them) {
+                    return sq;
+                }
+            }
+        }
+        int k = random.nextInt(legal);
+        for (int sq = 0; ; sq += 1) {
+            if (_owner[sq] != them && k-- == 0) {
+                return sq;
+            }
+        }
+    }
+
+    /** Add a spot to square SQ for the player to move, which must be a
+     *  legal move, and do all resulting jumps. */
+    void move(int sq) {
+        byte me = (byte) (1 + (_moves & 1));
+        _moves += 1;
+        give(sq, me);
+        int area = _spots.length;
+        if (_counts[me] == area || _spots[sq] <= _cap[sq]) {
+            return;
+        }
+        _spots[sq] -= _cap[sq];
+        int top = 0;
+        _stack[top++] = sq << 2;
+        while (top > 0) {
+            int frame = _stack[top - 1];
+            int s = frame >>> 2, dir = frame & 3;
+            if (dir == 3) {
+                top -= 1;
+            } else {
+                _stack[top - 1] = frame + 1;
+            }
+            int nbr = _nbrs[4 * s + dir];
+            if (nbr < 0) {
+                continue;
+            }
+            give(nbr, me);
+            if (_counts[me] == area) {
+                return;
+            }
+            if (_spots[nbr] > _cap[nbr]) {
+                _spots[nbr] -= _cap[nbr];
+                if (top == _stack.length) {
+                    _stack = Arrays.copyOf(_stack, 2 * top);
+                }
+                _stack[top++] = nbr << 2;
+            }
+        }
+    }
+
+    /** Add a spot to square SQ and give it to player ME. */
+    private void give(int sq, byte me) {
+        _spots[sq] += 1;
+        byte old = _owner[sq];
+        if (old != me) {
+            _counts[old] -= 1;
+            _counts[me] += 1;
+            _owner[sq] = me;
+        }
+    }
+
+    /** Colors by ordinal. */
+    private static final Color[] COLORS = Color.values();
+
+    /** Size of a side. */
+    private final int _n;
+    /** Spots on each square. */
+    private final int[] _spots;
+    /** Color ordinal of each square. */
+    private final byte[] _owner;
+    /** Number of neighbors of each square. */
+    private final int[] _cap;
+    /** Neighbors of each square: four entries per square (right, left,
+     *  down, up), -1 where there is none. */
+    private final int[] _nbrs;
+    /** Number of squares of each color, by ordinal. */
+    private final int[] _counts = new int[3];
+    /** Number of moves made. */
+    private int _moves;
+    /** Pending jumps, as in MutableBoard. */
+    private int[] _stack;
+}
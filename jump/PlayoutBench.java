@@ -0,0 +1,73 @@
+package jump61;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jump61.Color.*;
+
+/** Measures the rate of complete random games using Playout, with one
+ *  independently seeded random stream per thread.
+ *  Usage: java jump61.PlayoutBench [SIZE [SECONDS [THREADS [SEED]]]]
+ *  @author Brian Su
+ */
+public class PlayoutBench {
+
+    /** Run the benchmark as described by ARGS. */
+    public static void main(String[] args) throws InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 61;
+
+        long warmupEnd = System.nanoTime() + 1_000_000_000L;
+        run(size, seed, threads, warmupEnd);
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        long[] totals = run(size, seed, threads, end);
+        double secs = (System.nanoTime() - start) * 1e-9;
+        System.out.printf("%dx%d random games, %d thread(s), %.1f s%n",
+                          size, size, threads, secs);
+        System.out.printf("games/min: %.0f%n", totals[0] * 60 / secs);
+        System.out.printf("moves/s: %.0f%n", totals[1] / secs);
+        System.out.printf("red wins: %.1f%%%n", 100.0 * totals[2] / totals[0]);
+    }
+
+    /** Play random SIZE x SIZE games on THREADS threads, thread #k seeded
+     *  with SEED + k, until System.nanoTime() passes END.  Returns the
+     *  numbers of games, moves, and red wins. */
+    static long[] run(int size, long seed, int threads, long end)
+        throws InterruptedException {
+        AtomicLong games = new AtomicLong(), moves = new AtomicLong(),
+            redWins = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int k = 0; k < threads; k += 1) {
+            SplittableRandom random = new SplittableRandom(seed + k);
+            workers[k] = new Thread(() -> {
+                Playout board = new Playout(size);
+                long g = 0, m = 0, r = 0;
+                while (System.nanoTime() < end) {
+                    for (int i = 0; i < BATCH; i += 1) {
+                        board.reset();
+                        if (board.playOut(random) == RED) {
+                            r += 1;
+                        }
+                        m += board.numMoves();
+                    }
+                    g += BATCH;
+                }
+                games.addAndGet(g);
+                moves.addAndGet(m);
+                redWins.addAndGet(r);
+            });
+            workers[k].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new long[] { games.get(), moves.get(), redWins.get() };
+    }
+
+    /** Games played between checks of the clock. */
+    private static final int BATCH = 256;
+}
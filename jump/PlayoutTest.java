@@ -0,0 +1,48 @@
+package jump61;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of Playout.
+ *  @author Brian Su
+ */
+public class PlayoutTest {
+
+    @Test
+    public void testMatchesMutableBoard() {
+        SplittableRandom random = new SplittableRandom(61);
+        for (int g = 0; g < 500; g += 1) {
+            int n = 2 + g % 6;
+            Playout p = new Playout(n);
+            MutableBoard b = new MutableBoard(n);
+            while (p.winner() == null) {
+                int sq = p.randomMove(random);
+                assertTrue("illegal move", b.isLegal(b.whoseMove(), sq));
+                p.move(sq);
+                b.addSpot(b.whoseMove(), sq);
+                assertEquals(b.getWinner(), p.winner());
+                assertEquals(b.numMoves(), p.numMoves());
+                if (p.winner() == null) {
+                    for (int i = 0; i < n * n; i += 1) {
+                        assertEquals(b.spots(i), p.spots(i));
+                        assertEquals(b.color(i), p.color(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLoad() {
+        MutableBoard b = new MutableBoard(3);
+        b.addSpot(Color.RED, 1, 1);
+        b.addSpot(Color.BLUE, 2, 2);
+        Playout p = new Playout(3);
+        p.load(b);
+        assertEquals(Color.RED, p.whoseMove());
+        assertEquals(Color.BLUE, p.color(4));
+        assertNotNull(p.playOut(new SplittableRandom(1)));
+    }
+}
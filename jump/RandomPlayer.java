@@ -0,0 +1,36 @@
+package jump61;
+
+/** A Player that picks uniformly at random among its legal moves, using
+ *  its game's random-number generator (see Game.randInt).
+ *  @author Brian Su
+ */
+class RandomPlayer extends Player {
+
+    /** A new player of GAME initially playing COLOR that moves at
+     *  random. */
+    RandomPlayer(Game game, Color color) {
+        super(game, color);
+    }
+
+    @Override
+    void makeMove() {
+        Game game = getGame();
+        Board board = getBoard();
+        int area = board.size() * board.size();
+        Color them = getColor().opposite();
+        int legal = area - board.numOfColor(them);
+        int sq;
+        if (4 * legal >= area) {
+            do {
+                sq = game.randInt(area);
+            } while (board.color(sq) == them);
+        } else {
+            int k = game.randInt(legal);
+            for (sq = 0; board.color(sq) == them || k-- > 0; sq += 1) {
+                continue;
+            }
+        }
+        game.moveAI(sq);
+    }
+
+}
@@ -0,0 +1,191 @@
+package jump61;
+
+import static jump61.Color.*;
+import static jump61.GameException.error;
+
+/** The original, deliberately simple Jump61 board, kept as an oracle for
+ *  BoardFuzzer: jumps are resolved by direct recursion, colors are
+ *  counted by scanning the board, and each move saves a complete copy
+ *  of the squares for undo.  Only its agreement with faster boards
+ *  matters, not its speed.
+ *  @author Brian Su
+ */
+class ReferenceBoard extends Board {
+
+    /** An N x N board in initial configuration. */
+    ReferenceBoard(int N) {
+        clear(N);
+    }
+
+    /** A board whose contents and move number are copied from BOARD0.
+     *  Its undo history is empty. */
+    ReferenceBoard(Board board0) {
+        copy(board0);
+    }
+
+    @Override
+    void clear(int N) {
+        _N = N;
+        _moves = 0;
+        _squares = new Square[N * N];
+        for (int i = 0; i < _squares.length; i++) {
+            _squares[i] = new Square();
+        }
+        _undos = new Stack<Square[]>();
+    }
+
+    @Override
+    void copy(Board board) {
+        _N = board.size();
+        _moves = board.numMoves();
+        _squares = new Square[_N * _N];
+        for (int i = 0; i < _squares.length; i++) {
+            _squares[i] = new Square(board.color(i), board.spots(i));
+        }
+        _undos = new Stack<Square[]>();
+    }
+
+    @Override
+    int size() {
+        return _N;
+    }
+
+    @Override
+    int spots(int r, int c) {
+        return spots(sqNum(r, c));
+    }
+
+    @Override
+    int spots(int n) {
+        return _squares[n].getSpots();
+    }
+
+    @Override
+    Color color(int r, int c) {
+        return color(sqNum(r, c));
+    }
+
+    @Override
+    Color color(int n) {
+        return _squares[n].getColor();
+    }
+
+    @Override
+    int numMoves() {
+        return _moves;
+    }
+
+    @Override
+    int numOfColor(Color color) {
+        int num = 0;
+        for (Square square : _squares) {
+            if (square.getColor() == color) {
+                num++;
+            }
+        }
+        return num;
+    }
+
+    @Override
+    void addSpot(Color player, int r, int c) {
+        addSpot(player, sqNum(r, c));
+    }
+
+    @Override
+    void addSpot(Color player, int n) {
+        if (isLegal(player, n)) {
+            _undos.push(copyArray(_squares));
+            _squares[n].setSpots(_squares[n].getSpots() + 1);
+            _squares[n].setColor(player);
+            _moves++;
+            jump(n, player);
+        } else {
+            throw error("invalid move: %d %d", row(n), col(n));
+        }
+    }
+
+    @Override
+    void set(int r, int c, int num, Color player) {
+        set(sqNum(r, c), num, player);
+    }
+
+    @Override
+    void set(int n, int num, Color player) {
+        if (num == 0) {
+            player = WHITE;
+        }
+        _squares[n].setColor(player);
+        _squares[n].setSpots(num);
+        _undos = new Stack<Square[]>();
+    }
+
+    @Override
+    void setMoves(int num) {
+        assert num > 0;
+        _moves = num;
+        _undos = new Stack<Square[]>();
+    }
+
+    @Override
+    void undo() {
+        if (_moves > 0 && !_undos.isEmpty()) {
+            _squares = _undos.pop();
+            _moves--;
+        }
+    }
+
+    @Override
+    Square[] getSquares() {
+        return _squares;
+    }
+
+    /** Do all jumping on this board, assuming that initially, S is the only
+     *  square that might be over-full. Changes color of square to PLAYER. */
+    private void jump(int S, Color player) {
+        if (getWinner() != null) {
+            return;
+        }
+        if (_squares[S].getSpots() > neighbors(S)) {
+            _squares[S].setSpots(1);
+            int n = size();
+            if (col(S) < n) {
+                give(S + 1, player);
+            }
+            if (col(S) > 1) {
+                give(S - 1, player);
+            }
+            if (row(S) < n) {
+                give(S + n, player);
+            }
+            if (row(S) > 1) {
+                give(S - n, player);
+            }
+        }
+    }
+
+    /** Add a spot to square N, give it to PLAYER, and jump from it. */
+    private void give(int n, Color player) {
+        _squares[n].setSpots(_squares[n].getSpots() + 1);
+        _squares[n].setColor(player);
+        jump(n, player);
+    }
+
+    /** Returns a new Square array with contents of ORIGINAL.*/
+    private static Square[] copyArray(Square[] original) {
+        Square[] result = new Square[original.length];
+        for (int i = 0; i < original.length; i++) {
+            Square k = original[i];
+            result[i] = new Square(k.getColor(), k.getSpots());
+        }
+        return result;
+    }
+
+    /** Total combined number of moves by both sides. */
+    private int _moves;
+    /** Size of board (squares along one edge). */
+    private int _N;
+    /** Complete copies of the squares before each undoable move. */
+    private Stack<Square[]> _undos;
+    /** Current board. */
+    private Square[] _squares;
+}
@@ -0,0 +1,118 @@
+package jump61;
+
+import java.util.Random;
+
+import static jump61.Color.*;
+
+/** Scaling benchmarks for large boards.  For each board size, reports
+ *  the mean and worst latency of applying a move during random play,
+ *  the rate of jumps during that play and during a cascade that sweeps
+ *  the whole board, and the memory used by the board and by its undo
+ *  history.
+ *  Usage: java jump61.ScalingBench [MOVES [SEED]]
+ *  @author Brian Su
+ */
+public class ScalingBench {
+
+    /** Board sizes measured. */
+    static final int[] SIZES = { 6, 16, 32, 64, 128, 256 };
+
+    /** Run the benchmarks with the move limit and seed in ARGS. */
+    public static void main(String[] args) {
+        int limit = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 61;
+        for (int n : SIZES) {
+            play(n, Math.min(limit, 20000), seed);
+        }
+        System.out.printf("%-5s %9s %10s %10s %12s %12s %10s %10s%n",
+                          "size", "moves", "mean ns", "max us", "jumps/s",
+                          "sweep/s", "board KB", "hist B/mv");
+        for (int n : SIZES) {
+            long[] play = play(n, limit, seed);
+            double sweep = sweep(n);
+            long boardBytes = boardBytes(n);
+            System.out.printf("%-5d %9d %10d %10.1f %12.0f %12.0f %10d "
+                              + "%10.1f%n", n, play[0], play[1] / play[0],
+                              play[2] * 1e-3, play[3] * 1e9 / play[1],
+                              sweep, boardBytes >> 10,
+                              (double) play[4] / play[0]);
+        }
+    }
+
+    /** Play up to LIMIT random moves (seeded by SEED) on an N x N board,
+     *  or until someone wins.  Returns the number of moves, total
+     *  nanoseconds spent applying them, the longest single move in
+     *  nanoseconds, the number of jumps, and the bytes retained by the
+     *  undo history. */
+    static long[] play(int n, int limit, long seed) {
+        Random random = new Random(seed);
+        MutableBoard board = new MutableBoard(n);
+        long before = usedMemory();
+        long total = 0, worst = 0;
+        int moves = 0;
+        while (moves < limit && board.getWinner() == null) {
+            Color player = board.whoseMove();
+            int sq;
+            do {
+                sq = random.nextInt(n * n);
+            } while (!board.isLegal(player, sq));
+            long start = System.nanoTime();
+            board.addSpot(player, sq);
+            long time = System.nanoTime() - start;
+            total += time;
+            worst = Math.max(worst, time);
+            moves += 1;
+        }
+        long history = Math.max(0, usedMemory() - before);
+        long jumps = board.jumps();
+        if (board.numMoves() == 0) {
+            throw new AssertionError("no moves");
+        }
+        return new long[] { moves, total, worst, jumps, history };
+    }
+
+    /** Returns the number of jumps per second in a cascade that starts in
+     *  one corner of a full N x N board and ends when it captures the
+     *  opposite corner. */
+    static double sweep(int n) {
+        long jumps = 0, time = 0;
+        do {
+            MutableBoard board = new MutableBoard(n);
+            for (int sq = 0; sq < n * n; sq += 1) {
+                board.set(sq, board.neighbors(sq), RED);
+            }
+            board.set(n * n - 1, 1, BLUE);
+            long start = System.nanoTime();
+            board.addSpot(RED, 0);
+            time += System.nanoTime() - start;
+            jumps += board.jumps();
+        } while (time < MIN_SWEEP_NANOS);
+        return jumps * 1e9 / time;
+    }
+
+    /** Returns the bytes used by an empty N x N board. */
+    static long boardBytes(int n) {
+        MutableBoard[] boards = new MutableBoard[4];
+        long before = usedMemory();
+        for (int i = 0; i < boards.length; i += 1) {
+            boards[i] = new MutableBoard(n);
+        }
+        long after = usedMemory();
+        if (boards[boards.length - 1].size() != n) {
+            throw new AssertionError("bad board");
+        }
+        return Math.max(0, after - before) / boards.length;
+    }
+
+    /** Returns the heap in use after a garbage collection. */
+    private static long usedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i += 1) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /** Minimum time to spend timing sweeps of one size. */
+    private static final long MIN_SWEEP_NANOS = 200_000_000L;
+}
@@ -0,0 +1,487 @@
+package jump61;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/** A minimax search with alpha-beta pruning over a board that the
+ *  search may modify freely (each move it tries is undone before it
+ *  returns).  A Search is used by one thread at a time; searches that
+ *  run concurrently must each have their own board.
+ *
+ *  With no Features enabled, the search is the original one.  Enabling
+ *  any of them switches to a full-window negamax that orders moves by
+ *  their one-ply value, follows the previous iteration's principal
+ *  variation first, and applies the chosen features.  Both searches
+ *  evaluate leaves alike, so they agree at equal depths up to the order
+ *  of equally good moves.
+ *  @author Brian Su
+ */
+class Search {
+
+    /** Optional search enhancements. */
+    enum Feature {
+        /** Principal-variation search: moves after the first are probed
+         *  with a null window and searched in full only if they might be
+         *  better. */
+        PVS,
+        /** Start each iteration after the first with a narrow window
+         *  around the previous score, widening it on failure. */
+        ASPIRATION,
+        /** Search moves ordered late at reduced depth, re-searching those
+         *  that turn out better than expected. */
+        LMR,
+        /** Let the player to move pass, and prune if it is still winning
+         *  by more than the window requires.  Unsound when a move would
+         *  hurt its maker, which happens in this game, so it trades
+         *  accuracy for depth. */
+        NULL_MOVE;
+
+        /** Returns the set of features named by NAMES (case ignored),
+         *  where "none" names nothing.  Throws IllegalArgumentException
+         *  for unknown names. */
+        static EnumSet<Feature> parse(String... names) {
+            EnumSet<Feature> result = EnumSet.noneOf(Feature.class);
+            for (String name : names) {
+                if (!name.equalsIgnoreCase("none")) {
+                    result.add(valueOf(name.toUpperCase().replace('-',
+                                                                  '_')));
+                }
+            }
+            return result;
+        }
+    }
+
+    /** A search of BOARD controlled by JOB, which may be null for an
+     *  unlimited search. */
+    Search(Board board, SearchScheduler.Job<?> job) {
+        _board = board;
+        _job = job;
+        _moveBuffer = new int[board.size() * board.size()];
+    }
+
+    /** Search only one of each set of root moves that are equivalent
+     *  under a symmetry of the position iff ON.  Initially on. */
+    void setRootSymmetry(boolean on) {
+        _rootSymmetry = on;
+    }
+
+    /** Search only those of MOVES that are legal at the root, in their
+     *  order, rather than all legal moves, or all of them again if MOVES
+     *  is null.  Root symmetry is then not applied. */
+    void setRootMoves(List<Integer> moves) {
+        _rootOnly = moves == null ? null : new ArrayList<>(moves);
+    }
+
+    /** Evaluate positions with EVALUATOR, or by material alone if it is
+     *  null.  Initially null. */
+    void setEvaluator(Evaluator evaluator) {
+        _evaluator = evaluator;
+    }
+
+    /** Use the enhancements in FEATURES.  Initially none. */
+    void setFeatures(Set<Feature> features) {
+        _features = features.isEmpty() ? EnumSet.noneOf(Feature.class)
+            : EnumSet.copyOf(features);
+    }
+
+    /** Returns an array containing the value and the best move for WHO,
+     *  deepening one ply at a time up to MAXDEPTH until my job says to
+     *  stop.  The result is that of the deepest completed search. */
+    int[] bestMove(Color who, int maxDepth) {
+        int[] best = null;
+        _pv = new int[maxDepth + 1][maxDepth + 1];
+        _pvLength = new int[maxDepth + 1];
+        _rootMoves = generateMoves(who);
+        _results = new int[maxDepth + 1][];
+        if (_rootOnly != null) {
+            ArrayList<Integer> legal = _rootMoves;
+            _rootMoves = new ArrayList<>(_rootOnly);
+            _rootMoves.retainAll(legal);
+            if (_rootMoves.isEmpty()) {
+                throw new IllegalArgumentException("no legal root moves");
+            }
+        } else if (_rootSymmetry) {
+            _rootMoves = Symmetry.distinctMoves(_board, _rootMoves);
+        }
+        try {
+            for (int depth = 1; depth <= maxDepth; depth += 1) {
+                _rootDepth = depth;
+                if (_features.isEmpty()) {
+                    best = findBestMove(who, _board, depth,
+                                        Integer.MAX_VALUE);
+                } else {
+                    best = iterate(who, depth, best);
+                }
+                if (best[1] < 0) {
+                    /* Every move loses; play any of them. */
+                    best[1] = _rootMoves.get(0);
+                    _pv[0][0] = best[1];
+                    _pvLength[0] = 1;
+                }
+                _completedDepth = depth;
+                _results[depth] = best.clone();
+                _principal = Arrays.copyOf(_pv[0], _pvLength[0]);
+            }
+        } catch (SearchStopped excp) {
+            /* Use the last completed depth. */
+        }
+        if (best == null) {
+            best = guessBestMove(who, generateMoves(who));
+            _principal = new int[] { best[1] };
+        }
+        return best;
+    }
+
+    /** Returns the principal variation found by the deepest search
+     *  bestMove completed: the best move followed by the best replies
+     *  expected from each side in turn. */
+    int[] principalVariation() {
+        return _principal;
+    }
+
+    /** Returns the value and best move found by the last call to
+     *  bestMove at depth DEPTH, or null if it did not complete that
+     *  depth. */
+    int[] result(int depth) {
+        return _results == null || depth < 1 || depth >= _results.length
+            || _results[depth] == null ? null : _results[depth].clone();
+    }
+
+    /** Returns the number of positions searched so far. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Returns the depth of the deepest search bestMove completed. */
+    int completedDepth() {
+        return _completedDepth;
+    }
+
+    /** Returns an array containg the move value and move of the best move for
+     * player WHO in board START with DEPTH and CUTOFF. */
+    private int[] findBestMove(Color who, Board start,
+            int depth, double cutoff) {
+        if (_job != null && _job.stopped()) {
+            throw STOPPED;
+        }
+        _nodes += 1;
+        int ply = _rootDepth - depth;
+        _pvLength[ply] = 0;
+        ArrayList<Integer> moves =
+            depth == _rootDepth ? _rootMoves : generateMoves(who);
+        if (_board.getWinner() == who) {
+            return new int[] {Integer.MAX_VALUE, 4};
+        } else if (_board.getWinner() == who.opposite()) {
+            return new int[] {-Integer.MAX_VALUE + 1, 8};
+        } else if (depth == 0) {
+            int[] gbm = guessBestMove(who, moves);
+            _pv[ply][0] = gbm[1];
+            _pvLength[ply] = 1;
+            return gbm;
+        }
+
+        int[] bestSoFar = new int[] {-Integer.MAX_VALUE, -1};
+        for (int move : moves) {
+            _board.addSpot(who, move);
+            int[] moveInfo;
+            int[] response;
+            try {
+                moveInfo = new int[] {staticEval(who), move};
+                response = findBestMove(who.opposite(),
+                        _board, depth - 1, -bestSoFar[0]);
+            } finally {
+                _board.undo();
+            }
+            if (-response[0] > bestSoFar[0]) {
+                moveInfo[0] = -response[0];
+                bestSoFar = moveInfo;
+                _pv[ply][0] = move;
+                System.arraycopy(_pv[ply + 1], 0, _pv[ply], 1,
+                                 _pvLength[ply + 1]);
+                _pvLength[ply] = _pvLength[ply + 1] + 1;
+                if (moveInfo[0] >= cutoff) {
+                    break;
+                }
+            }
+        }
+        return bestSoFar;
+    }
+
+    /** Returns the value and best move for WHO from a search of depth
+     *  DEPTH with the enabled features, given the result PREVIOUS of the
+     *  previous iteration (null for the first). */
+    private int[] iterate(Color who, int depth, int[] previous) {
+        int alpha = -INFINITY, beta = INFINITY;
+        if (previous != null && _features.contains(Feature.ASPIRATION)
+            && Math.abs(previous[0]) < WIN - MAX_PLY) {
+            alpha = previous[0] - ASPIRATION_WINDOW;
+            beta = previous[0] + ASPIRATION_WINDOW;
+        }
+        while (true) {
+            _followPV = true;
+            int score = negamax(who, depth, 0, alpha, beta, true);
+            if (score <= alpha && alpha > -INFINITY) {
+                alpha = -INFINITY;
+            } else if (score >= beta && beta < INFINITY) {
+                beta = INFINITY;
+            } else {
+                return new int[] { score, _pv[0][0] };
+            }
+        }
+    }
+
+    /** Returns the value for WHO of the current position, searched to
+     *  DEPTH more plies at PLY plies from the root, within the window
+     *  ALPHA to BETA: the result is exact if strictly inside the window,
+     *  and otherwise a bound on the same side.  NULLOK is false just
+     *  after a pass, to prevent two in a row.  Wins are worth WIN less
+     *  the ply at which they occur. */
+    private int negamax(Color who, int depth, int ply, int alpha, int beta,
+                        boolean nullOk) {
+        if (_job != null && _job.stopped()) {
+            throw STOPPED;
+        }
+        _nodes += 1;
+        _pvLength[ply] = 0;
+        Color winner = _board.getWinner();
+        if (winner != null) {
+            _followPV = false;
+            return winner == who ? WIN - ply : -(WIN - ply);
+        }
+        ArrayList<Integer> moves = ply == 0 ? _rootMoves : generateMoves(who);
+        if (depth == 0) {
+            _followPV = false;
+            int[] gbm = guessBestMove(who, moves);
+            _pv[ply][0] = gbm[1];
+            _pvLength[ply] = 1;
+            return leafValue(gbm[0], ply + 1);
+        }
+        boolean pvNode = beta - alpha > 1;
+        if (nullOk && !pvNode && depth > NULL_MOVE_REDUCTION
+            && _features.contains(Feature.NULL_MOVE)
+            && staticEval(who) >= beta) {
+            _board.pass();
+            int score;
+            try {
+                score = -negamax(who.opposite(),
+                                 depth - 1 - NULL_MOVE_REDUCTION, ply + 1,
+                                 -beta, -beta + 1, false);
+            } finally {
+                _board.undo();
+            }
+            if (score >= beta) {
+                _pvLength[ply] = 0;
+                return score;
+            }
+        }
+        moves = orderMoves(who, moves, ply, depth);
+        boolean pvs = _features.contains(Feature.PVS),
+            lmr = _features.contains(Feature.LMR);
+        int best = -INFINITY;
+        for (int i = 0; i < moves.size(); i += 1) {
+            int move = moves.get(i);
+            _board.addSpot(who, move);
+            int score;
+            try {
+                if (i == 0) {
+                    score = -negamax(who.opposite(), depth - 1, ply + 1,
+                                     -beta, -alpha, true);
+                } else {
+                    int reduction =
+                        lmr && depth >= LMR_MIN_DEPTH && i >= LMR_MIN_MOVE
+                        && _board.getWinner() == null ? 1 : 0;
+                    int low = pvs ? -alpha - 1 : -beta;
+                    score = -negamax(who.opposite(), depth - 1 - reduction,
+                                     ply + 1, low, -alpha, true);
+                    if (reduction > 0 && score > alpha) {
+                        score = -negamax(who.opposite(), depth - 1,
+                                         ply + 1, low, -alpha, true);
+                    }
+                    if (pvs && score > alpha && score < beta) {
+                        score = -negamax(who.opposite(), depth - 1,
+                                         ply + 1, -beta, -alpha, true);
+                    }
+                }
+            } finally {
+                _board.undo();
+            }
+            if (score > best) {
+                best = score;
+                _pv[ply][0] = move;
+                System.arraycopy(_pv[ply + 1], 0, _pv[ply], 1,
+                                 _pvLength[ply + 1]);
+                _pvLength[ply] = _pvLength[ply + 1] + 1;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Returns VALUE, as returned by guessBestMove, on negamax's scale,
+     *  taking a win to have happened at ply PLY. */
+    private static int leafValue(int value, int ply) {
+        if (value == Integer.MAX_VALUE) {
+            return WIN - ply;
+        } else if (value == -Integer.MAX_VALUE) {
+            return -(WIN - ply);
+        }
+        return value;
+    }
+
+    /** Returns MOVES for WHO at PLY plies from the root, with DEPTH plies
+     *  left to search, in the order to try them: the move of the previous
+     *  principal variation first while still following it, and the rest,
+     *  when DEPTH is at least 2, best one-ply value first. */
+    private ArrayList<Integer> orderMoves(Color who, ArrayList<Integer> moves,
+                                          int ply, int depth) {
+        ArrayList<Integer> result = moves;
+        if (depth >= 2 && moves.size() > 1) {
+            long[] keys = new long[moves.size()];
+            for (int i = 0; i < keys.length; i += 1) {
+                int move = moves.get(i);
+                _board.addSpot(who, move);
+                long value = staticEval(who);
+                _board.undo();
+                keys[i] = i - value * SORT_SCALE;
+            }
+            Arrays.sort(keys);
+            result = new ArrayList<>(keys.length);
+            for (long key : keys) {
+                result.add(moves.get((int) Math.floorMod(key, SORT_SCALE)));
+            }
+        }
+        if (_followPV) {
+            int index = ply < _principal.length
+                ? result.indexOf(_principal[ply]) : -1;
+            if (index < 0) {
+                _followPV = false;
+            } else if (index > 0) {
+                if (result == moves) {
+                    result = new ArrayList<>(moves);
+                }
+                result.add(0, result.remove(index));
+            }
+        }
+        return result;
+    }
+
+    /** Returns heuristic value of board B for player P.
+     *  Higher is better for P. */
+    private int staticEval(Color p) {
+        if (_board.getWinner() != null) {
+            if (_board.getWinner() == p) {
+                return Integer.MAX_VALUE;
+            } else {
+                return -Integer.MAX_VALUE;
+            }
+        } else if (_evaluator != null) {
+            return _evaluator.value(_board, p);
+        } else {
+            return _board.numOfColor(p) - _board.numOfColor(p.opposite());
+        }
+    }
+
+    /** Returns a list of all possible moves for player P in the current
+     *  board. */
+    ArrayList<Integer> generateMoves(Color p) {
+        int count = _board.legalMoves(p, _moveBuffer);
+        ArrayList<Integer> possibleMoves = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++) {
+            possibleMoves.add(_moveBuffer[i]);
+        }
+        return possibleMoves;
+    }
+
+    /** Returns the best move out of the possible MOVES for P. */
+    int[] guessBestMove(Color p, ArrayList<Integer> moves) {
+        int move, moveValue;
+        move = moves.get(0);
+        moveValue = -Integer.MAX_VALUE;
+        for (int aMove : moves) {
+            _board.addSpot(p, aMove);
+            int aMoveValue = staticEval(p);
+            if (aMoveValue > moveValue) {
+                move = aMove;
+                moveValue = aMoveValue;
+            }
+            _board.undo();
+        }
+        return new int[] {moveValue, move};
+    }
+
+    /** Signals that the current search was told to stop. */
+    private static class SearchStopped extends RuntimeException {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+
+        /** A SearchStopped without a stack trace. */
+        SearchStopped() {
+            super(null, null, false, false);
+        }
+    }
+
+    /** Value of a win at the root for negamax; a win at ply P is worth
+     *  WIN - P. */
+    static final int WIN = 1 << 28;
+    /** Bound on negamax values. */
+    private static final int INFINITY = WIN + 1;
+    /** Deepest ply at which negamax can find a win. */
+    private static final int MAX_PLY = 1 << 10;
+    /** Half-width of aspiration windows. */
+    static final int ASPIRATION_WINDOW = 2;
+    /** Plies by which a null move's search is reduced. */
+    static final int NULL_MOVE_REDUCTION = 2;
+    /** Least depth at which late moves are reduced. */
+    static final int LMR_MIN_DEPTH = 3;
+    /** Index, in order, of the first move that may be reduced. */
+    static final int LMR_MIN_MOVE = 3;
+    /** Spacing of keys used to sort moves by value in orderMoves; more
+     *  than the number of squares on any board. */
+    private static final long SORT_SCALE = 1 << 20;
+
+    /** Thrown to unwind a search that was told to stop. */
+    private static final SearchStopped STOPPED = new SearchStopped();
+
+    /** Board searched. */
+    private final Board _board;
+    /** Job controlling this search, or null. */
+    private final SearchScheduler.Job<?> _job;
+    /** Room for the legal moves of one position. */
+    private final int[] _moveBuffer;
+    /** Principal variations by ply: _pv[P] holds the best line found
+     *  from the current node at ply P, of length _pvLength[P]. */
+    private int[][] _pv;
+    /** Lengths of the lines in _pv. */
+    private int[] _pvLength;
+    /** Principal variation of the deepest completed search. */
+    private int[] _principal = new int[0];
+    /** Depth of the deepest completed search. */
+    private int _completedDepth;
+    /** Depth of the root of the current iteration. */
+    private int _rootDepth;
+    /** Moves considered at the root. */
+    private ArrayList<Integer> _rootMoves;
+    /** Root moves to search instead of all, or null. */
+    private ArrayList<Integer> _rootOnly;
+    /** Results of the last bestMove by completed depth. */
+    private int[][] _results;
+    /** True iff symmetric root moves are pruned. */
+    private boolean _rootSymmetry = true;
+    /** Number of positions searched. */
+    private long _nodes;
+    /** Evaluator of positions, or null for material. */
+    private Evaluator _evaluator;
+    /** Enhancements in use. */
+    private EnumSet<Feature> _features = EnumSet.noneOf(Feature.class);
+    /** True while negamax is still following the previous iteration's
+     *  principal variation. */
+    private boolean _followPV;
+}
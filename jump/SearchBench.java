@@ -0,0 +1,162 @@
+package jump61;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import static jump61.Color.*;
+import static jump61.Search.Feature.*;
+
+/** Compares the original search with searches using the optional
+ *  Search.Features on 6x6 and 8x8 boards: the time and nodes needed to
+ *  complete each depth on a set of random middle-game positions, and
+ *  the results of games against the original search with the same time
+ *  per move.
+ *  Usage: java jump61.SearchBench [GAMES [MILLIS [DEPTH [SEED]]]]
+ *  @author Brian Su
+ */
+public class SearchBench {
+
+    /** Run the benchmark as described by ARGS. */
+    public static void main(String[] args)
+        throws InterruptedException, ExecutionException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        int maxDepth = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 61;
+
+        for (int size : new int[] { 6, 8 }) {
+            Board[] positions = new Board[POSITIONS];
+            Random random = new Random(seed);
+            for (int p = 0; p < POSITIONS; p += 1) {
+                positions[p] = randomPosition(size, 2 * size, random);
+            }
+            for (EnumSet<Search.Feature> features : CONFIGS) {
+                for (Board position : positions) {
+                    Search search = new Search(position, null);
+                    search.setFeatures(features);
+                    search.bestMove(position.whoseMove(), 3);
+                }
+            }
+            System.out.printf("%dx%d time to depth (mean of %d positions)%n",
+                              size, size, POSITIONS);
+            System.out.printf("%-28s %5s %12s %10s%n", "features", "depth",
+                              "nodes", "ms");
+            for (EnumSet<Search.Feature> features : CONFIGS) {
+                for (int depth = 1; depth <= maxDepth; depth += 1) {
+                    long nodes = 0, nanos = 0;
+                    for (Board position : positions) {
+                        Search search = new Search(position, null);
+                        search.setFeatures(features);
+                        long start = System.nanoTime();
+                        search.bestMove(position.whoseMove(), depth);
+                        nanos += System.nanoTime() - start;
+                        nodes += search.nodes();
+                    }
+                    System.out.printf("%-28s %5d %12d %10.2f%n",
+                                      name(features), depth,
+                                      nodes / POSITIONS,
+                                      nanos * 1e-6 / POSITIONS);
+                }
+            }
+        }
+
+        SearchScheduler scheduler = new SearchScheduler(1);
+        try {
+            for (int size : new int[] { 6, 8 }) {
+                System.out.printf("%dx%d self-play against the original "
+                                  + "search, %d ms per move%n", size, size,
+                                  millis);
+                System.out.printf("%-28s %5s %5s %5s %7s%n", "features",
+                                  "won", "lost", "drawn", "score");
+                for (EnumSet<Search.Feature> features : CONFIGS) {
+                    if (features.isEmpty()) {
+                        continue;
+                    }
+                    Random random = new Random(seed);
+                    int[] results = new int[3];
+                    for (int g = 0; g < games; g += 1) {
+                        Board opening = randomPosition(size, 4, random);
+                        Color mine = g % 2 == 0 ? RED : BLUE;
+                        Color winner = play(scheduler, opening, features,
+                                            mine, millis);
+                        results[winner == null ? 2 : winner == mine ? 0 : 1]
+                            += 1;
+                    }
+                    System.out.printf("%-28s %5d %5d %5d %6.1f%%%n",
+                                      name(features), results[0],
+                                      results[1], results[2],
+                                      100.0 * (results[0] + results[2] / 2.0)
+                                      / games);
+                }
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /** Returns the winner of a game from OPENING between a search with
+     *  FEATURES playing MINE and the original search, each given MILLIS
+     *  milliseconds on SCHEDULER per move, or null if it goes on too
+     *  long. */
+    private static Color play(SearchScheduler scheduler, Board opening,
+                              EnumSet<Search.Feature> features, Color mine,
+                              long millis)
+        throws InterruptedException, ExecutionException {
+        MutableBoard board = new MutableBoard(opening);
+        EnumSet<Search.Feature> none = EnumSet.noneOf(Search.Feature.class);
+        while (board.getWinner() == null && board.numMoves() < MAX_MOVES) {
+            Color who = board.whoseMove();
+            Board fork = board.fork();
+            EnumSet<Search.Feature> used = who == mine ? features : none;
+            int[] move = scheduler.submit(board, millis,
+                (SearchScheduler.Job<int[]> job) -> {
+                    Search search = new Search(fork, job);
+                    search.setFeatures(used);
+                    return search.bestMove(who, MAX_DEPTH);
+                }).get();
+            board.addSpot(who, move[1]);
+        }
+        return board.getWinner();
+    }
+
+    /** Returns an N x N board after MOVES random legal moves from the
+     *  initial position chosen with RANDOM, retrying until the game is
+     *  not over. */
+    private static Board randomPosition(int n, int moves, Random random) {
+        while (true) {
+            MutableBoard board = new MutableBoard(n);
+            for (int i = 0; i < moves && board.getWinner() == null; i += 1) {
+                int sq;
+                do {
+                    sq = random.nextInt(n * n);
+                } while (!board.isLegal(board.whoseMove(), sq));
+                board.addSpot(board.whoseMove(), sq);
+            }
+            if (board.getWinner() == null) {
+                return new MutableBoard(board);
+            }
+        }
+    }
+
+    /** Returns a printable name for FEATURES. */
+    private static String name(EnumSet<Search.Feature> features) {
+        return features.isEmpty() ? "original"
+            : features.toString().toLowerCase().replaceAll("[\\[\\] ]", "");
+    }
+
+    /** Configurations compared, the original first. */
+    private static final List<EnumSet<Search.Feature>> CONFIGS =
+        List.of(EnumSet.noneOf(Search.Feature.class), EnumSet.of(PVS),
+                EnumSet.of(PVS, ASPIRATION), EnumSet.of(PVS, LMR),
+                EnumSet.of(PVS, ASPIRATION, LMR),
+                EnumSet.of(PVS, ASPIRATION, LMR, NULL_MOVE));
+
+    /** Number of positions for measuring time to depth. */
+    private static final int POSITIONS = 8;
+    /** Depth limit for timed searches. */
+    private static final int MAX_DEPTH = 32;
+    /** Moves after which a game counts as drawn. */
+    private static final int MAX_MOVES = 1000;
+}
@@ -0,0 +1,62 @@
+package jump61;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A bounded, thread-safe cache of search results keyed by position
+ *  (see Board.positionKey).  Each result is an array holding the value
+ *  and best move for the player to move, as returned by Search.  The
+ *  least recently used entries are dropped once the cache is full.
+ *  @author Brian Su
+ */
+class SearchCache {
+
+    /** A cache holding at most CAPACITY results. */
+    SearchCache(int capacity) {
+        _capacity = capacity;
+        _entries = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> e) {
+                return size() > _capacity;
+            }
+        };
+    }
+
+    /** Returns the result stored for KEY, or null if there is none. */
+    synchronized int[] get(String key) {
+        int[] result = _entries.get(key);
+        if (result == null) {
+            _misses += 1;
+        } else {
+            _hits += 1;
+        }
+        return result;
+    }
+
+    /** Store RESULT for KEY. */
+    synchronized void put(String key, int[] result) {
+        _entries.put(key, result);
+    }
+
+    /** Returns the number of stored results. */
+    synchronized int size() {
+        return _entries.size();
+    }
+
+    /** Returns the number of successful lookups. */
+    synchronized long hits() {
+        return _hits;
+    }
+
+    /** Returns the number of failed lookups. */
+    synchronized long misses() {
+        return _misses;
+    }
+
+    /** Maximum number of entries. */
+    private final int _capacity;
+    /** Stored results, in access order. */
+    private final LinkedHashMap<String, int[]> _entries;
+    /** Lookup statistics. */
+    private long _hits, _misses;
+}
@@ -0,0 +1,375 @@
+package jump61;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/** A process-wide scheduler for AI searches.  A fixed set of worker
+ *  threads serves requests that are queued per owner (typically a
+ *  Game) and taken round-robin across owners, so one game cannot starve
+ *  the others by submitting many requests.  Each request carries a time
+ *  budget that the search itself observes through Job.stopped(), and all
+ *  of an owner's requests can be cancelled at once.  Background requests,
+ *  such as pondering, yield to the others: they are started only when no
+ *  other request is waiting, and one running is cancelled whenever a
+ *  request arrives that would otherwise have to wait for a worker.
+ *  @author Brian Su
+ */
+class SearchScheduler {
+
+    /** A scheduler with THREADS worker threads. */
+    SearchScheduler(int threads) {
+        assert threads > 0;
+        _running = new Job<?>[threads];
+        for (int i = 0; i < threads; i += 1) {
+            final int k = i;
+            Thread worker = new Thread(() -> work(k), "jump61-search-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /** Returns the scheduler shared by all games in this process. */
+    static synchronized SearchScheduler shared() {
+        if (_shared == null) {
+            _shared = new SearchScheduler(Defaults.SEARCH_THREADS);
+        }
+        return _shared;
+    }
+
+    /** A queued or running search. */
+    static final class Job<T> {
+
+        /** A job for OWNER running TASK that should stop after BUDGETMILLIS
+         *  milliseconds (forever if negative). */
+        private Job(Object owner, long budgetMillis, Function<Job<T>, T> task) {
+            _owner = owner;
+            _task = task;
+            _enqueued = System.nanoTime();
+            _deadline = budgetMillis < 0 ? Long.MAX_VALUE
+                : _enqueued + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        }
+
+        /** Returns a job that runs nothing and is not scheduled, serving
+         *  only to stop a search run directly after BUDGETMILLIS
+         *  milliseconds (never if negative). */
+        static <T> Job<T> deadline(long budgetMillis) {
+            return new Job<>(null, budgetMillis, null);
+        }
+
+        /** Returns true iff the search should wind down: it has been
+         *  cancelled or its time budget has run out.  Searches are
+         *  expected to poll this regularly. */
+        boolean stopped() {
+            return _cancelled || System.nanoTime() - _deadline > 0;
+        }
+
+        /** Returns true iff I have no time budget. */
+        boolean unlimited() {
+            return _deadline == Long.MAX_VALUE;
+        }
+
+        /** Returns true iff I was cancelled. */
+        boolean cancelled() {
+            return _cancelled;
+        }
+
+        /** Returns the number of nanoseconds left in my budget (may be
+         *  negative). */
+        long remainingNanos() {
+            return _deadline - System.nanoTime();
+        }
+
+        /** Returns true iff my search has stopped running (or will never
+         *  run). */
+        synchronized boolean done() {
+            return _done;
+        }
+
+        /** Ask my search to stop.  Its result is discarded. */
+        void cancel() {
+            _cancelled = true;
+        }
+
+        /** Wait for my search to finish and return its result.  Throws
+         *  CancellationException if I was cancelled.  Does not return
+         *  until the search has actually stopped running. */
+        synchronized T get() throws InterruptedException,
+                                    ExecutionException {
+            while (!_done) {
+                wait();
+            }
+            if (_failure != null) {
+                throw new ExecutionException(_failure);
+            } else if (_cancelled) {
+                throw new CancellationException();
+            }
+            return _result;
+        }
+
+        /** Record that I finished with RESULT, or with FAILURE if that is
+         *  non-null. */
+        private synchronized void finish(T result, Throwable failure) {
+            _result = result;
+            _failure = failure;
+            _done = true;
+            notifyAll();
+        }
+
+        /** Run my task on the current thread. */
+        private void run() {
+            T result = null;
+            Throwable failure = null;
+            if (!_cancelled) {
+                try {
+                    result = _task.apply(this);
+                } catch (RuntimeException | Error excp) {
+                    failure = excp;
+                }
+            }
+            finish(result, failure);
+        }
+
+        /** Owner on whose behalf I run. */
+        private final Object _owner;
+        /** The search itself. */
+        private final Function<Job<T>, T> _task;
+        /** System.nanoTime() at submission. */
+        private final long _enqueued;
+        /** System.nanoTime() after which stopped() is true. */
+        private final long _deadline;
+        /** True once cancelled. */
+        private volatile boolean _cancelled;
+        /** True iff I am a background request.  Guarded by the
+         *  scheduler's _queues. */
+        private boolean _background;
+        /** True once the search has stopped running. */
+        private boolean _done;
+        /** Result of the search. */
+        private T _result;
+        /** Exception thrown by the search, if any. */
+        private Throwable _failure;
+    }
+
+    /** Queue TASK on behalf of OWNER with a budget of BUDGETMILLIS
+     *  milliseconds (no limit if negative), and return its Job. */
+    <T> Job<T> submit(Object owner, long budgetMillis,
+                      Function<Job<T>, T> task) {
+        return enqueue(new Job<>(owner, budgetMillis, task), false);
+    }
+
+    /** Queue TASK on behalf of OWNER as a background request with a
+     *  budget of BUDGETMILLIS milliseconds (no limit if negative), and
+     *  return its Job, which is cancelled if other requests need its
+     *  worker. */
+    <T> Job<T> submitBackground(Object owner, long budgetMillis,
+                                Function<Job<T>, T> task) {
+        return enqueue(new Job<>(owner, budgetMillis, task), true);
+    }
+
+    /** Queue JOB, a background request iff BACKGROUND, and return it,
+     *  cancelling a running background job if JOB is not one and would
+     *  otherwise have to wait. */
+    private <T> Job<T> enqueue(Job<T> job, boolean background) {
+        job._background = background;
+        synchronized (_queues) {
+            if (_shutdown) {
+                throw new IllegalStateException("scheduler is shut down");
+            }
+            _queues.computeIfAbsent(job._owner, k -> new ArrayDeque<>())
+                .add(job);
+            _depth += 1;
+            if (!background) {
+                _urgent += 1;
+                preempt();
+            }
+            _queues.notify();
+        }
+        return job;
+    }
+
+    /** Cancel a running background job if more jobs that are not in the
+     *  background are queued than there are idle workers.  Requires that
+     *  the caller hold _queues. */
+    private void preempt() {
+        int idle = 0;
+        Job<?> victim = null;
+        for (Job<?> running : _running) {
+            if (running == null) {
+                idle += 1;
+            } else if (running._background && !running._cancelled) {
+                victim = running;
+            }
+        }
+        if (_urgent > idle && victim != null) {
+            victim.cancel();
+        }
+    }
+
+    /** Cancel every queued or running job of OWNER. */
+    void cancel(Object owner) {
+        ArrayDeque<Job<?>> queued;
+        synchronized (_queues) {
+            queued = _queues.remove(owner);
+            if (queued != null) {
+                _depth -= queued.size();
+                for (Job<?> job : queued) {
+                    if (!job._background) {
+                        _urgent -= 1;
+                    }
+                }
+            }
+            for (Job<?> job : _running) {
+                if (job != null && job._owner == owner) {
+                    job.cancel();
+                }
+            }
+        }
+        if (queued != null) {
+            for (Job<?> job : queued) {
+                job.cancel();
+                job.finish(null, null);
+            }
+        }
+    }
+
+    /** Stop all workers after their current jobs, cancelling anything
+     *  still queued. */
+    void shutdown() {
+        synchronized (_queues) {
+            _shutdown = true;
+            for (ArrayDeque<Job<?>> queue : _queues.values()) {
+                for (Job<?> job : queue) {
+                    job.cancel();
+                    job.finish(null, null);
+                }
+            }
+            _queues.clear();
+            _depth = 0;
+            _urgent = 0;
+            _queues.notifyAll();
+        }
+    }
+
+    /** Returns the number of jobs waiting for a worker. */
+    int queueDepth() {
+        synchronized (_queues) {
+            return _depth;
+        }
+    }
+
+    /** Returns the number of jobs that have started running. */
+    long started() {
+        return _started.get();
+    }
+
+    /** Returns the mean time in milliseconds that started jobs waited
+     *  in the queue. */
+    double meanWaitMillis() {
+        long n = _started.get();
+        return n == 0 ? 0.0 : _totalWait.get() * 1e-6 / n;
+    }
+
+    /** Returns the longest time in milliseconds any job waited in the
+     *  queue. */
+    double maxWaitMillis() {
+        return _maxWait.get() * 1e-6;
+    }
+
+    /** Returns a one-line summary of my metrics. */
+    String stats() {
+        return String.format("queued %d, started %d, wait mean %.2f ms "
+                             + "max %.2f ms", queueDepth(), started(),
+                             meanWaitMillis(), maxWaitMillis());
+    }
+
+    /** Body of worker thread #ME. */
+    private void work(int me) {
+        while (true) {
+            Job<?> job;
+            synchronized (_queues) {
+                while (_depth == 0 && !_shutdown) {
+                    try {
+                        _queues.wait();
+                    } catch (InterruptedException excp) {
+                        return;
+                    }
+                }
+                if (_shutdown) {
+                    return;
+                }
+                job = next();
+                _running[me] = job;
+            }
+            long wait = System.nanoTime() - job._enqueued;
+            _started.incrementAndGet();
+            _totalWait.addAndGet(wait);
+            _maxWait.accumulateAndGet(wait, Math::max);
+            job.run();
+            synchronized (_queues) {
+                _running[me] = null;
+            }
+        }
+    }
+
+    /** Remove and return the oldest job of the owner that has waited
+     *  longest for a turn, moving that owner to the back of the rotation.
+     *  While any job not in the background is queued, background jobs
+     *  are passed over.  Requires that a job be queued and that the
+     *  caller hold _queues. */
+    private Job<?> next() {
+        Map.Entry<Object, ArrayDeque<Job<?>>> first = null;
+        Job<?> job = null;
+        for (Map.Entry<Object, ArrayDeque<Job<?>>> entry
+                 : _queues.entrySet()) {
+            for (Job<?> queued : entry.getValue()) {
+                if (_urgent == 0 || !queued._background) {
+                    first = entry;
+                    job = queued;
+                    break;
+                }
+            }
+            if (job != null) {
+                break;
+            }
+        }
+        _queues.remove(first.getKey());
+        first.getValue().remove(job);
+        if (!first.getValue().isEmpty()) {
+            _queues.put(first.getKey(), first.getValue());
+        }
+        _depth -= 1;
+        if (!job._background) {
+            _urgent -= 1;
+        }
+        return job;
+    }
+
+    /** The process-wide scheduler, created on first use. */
+    private static SearchScheduler _shared;
+
+    /** Jobs currently running, indexed by worker. Guarded by _queues. */
+    private final Job<?>[] _running;
+    /** Queued jobs per owner, in round-robin order.  Also the lock
+     *  guarding all queue state. */
+    private final LinkedHashMap<Object, ArrayDeque<Job<?>>> _queues =
+        new LinkedHashMap<>();
+    /** Total number of queued jobs.  Guarded by _queues. */
+    private int _depth;
+    /** Number of queued jobs not in the background.  Guarded by
+     *  _queues. */
+    private int _urgent;
+    /** True once shut down.  Guarded by _queues. */
+    private boolean _shutdown;
+    /** Number of jobs started. */
+    private final AtomicLong _started = new AtomicLong();
+    /** Total nanoseconds started jobs spent queued. */
+    private final AtomicLong _totalWait = new AtomicLong();
+    /** Longest nanoseconds any job spent queued. */
+    private final AtomicLong _maxWait = new AtomicLong();
+}
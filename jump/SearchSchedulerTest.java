@@ -0,0 +1,164 @@
+package jump61;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of SearchScheduler.
+ *  @author Brian Su
+ */
+public class SearchSchedulerTest {
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        SearchScheduler s = new SearchScheduler(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<String> order = new ArrayList<>();
+        Object a = new Object(), b = new Object();
+        s.submit(a, -1, j -> {
+            await(gate);
+            return log(order, "a1");
+        });
+        while (s.queueDepth() > 0) {
+            Thread.yield();
+        }
+        s.submit(a, -1, j -> log(order, "a2"));
+        s.submit(a, -1, j -> log(order, "a3"));
+        SearchScheduler.Job<String> last =
+            s.submit(b, -1, j -> log(order, "b1"));
+        assertEquals(3, s.queueDepth());
+        gate.countDown();
+        last.get();
+        SearchScheduler.Job<String> end = s.submit(a, -1, j -> "end");
+        end.get();
+        assertEquals("[a1, a2, b1, a3]", order.toString());
+        assertEquals(5, s.started());
+        s.shutdown();
+    }
+
+    @Test
+    public void testCancelAndBudget() throws Exception {
+        SearchScheduler s = new SearchScheduler(1);
+        Object a = new Object();
+        SearchScheduler.Job<Integer> spin = s.submit(a, -1, j -> {
+            int n = 0;
+            while (!j.stopped()) {
+                n += 1;
+            }
+            return n;
+        });
+        SearchScheduler.Job<Integer> queued = s.submit(a, -1, j -> 1);
+        s.cancel(a);
+        try {
+            spin.get();
+            fail("running job not cancelled");
+        } catch (CancellationException excp) {
+            assertTrue(spin.cancelled());
+        }
+        try {
+            queued.get();
+            fail("queued job not cancelled");
+        } catch (CancellationException excp) {
+            assertEquals(0, s.queueDepth());
+        }
+        SearchScheduler.Job<Boolean> timed = s.submit(a, 20, j -> {
+            while (!j.stopped()) {
+                Thread.yield();
+            }
+            return j.cancelled();
+        });
+        assertFalse(timed.get());
+        s.shutdown();
+    }
+
+    @Test
+    public void testBackgroundYields() throws Exception {
+        SearchScheduler s = new SearchScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Object a = new Object(), b = new Object();
+        SearchScheduler.Job<String> ponder = s.submitBackground(a, -1, j -> {
+            started.countDown();
+            while (!j.stopped()) {
+                Thread.yield();
+            }
+            return "ponder";
+        });
+        await(started);
+        SearchScheduler.Job<String> move = s.submit(b, 100, j -> "move");
+        assertEquals("move", move.get());
+        try {
+            ponder.get();
+            fail("background job was not preempted");
+        } catch (CancellationException excp) {
+            /* Expected. */
+        }
+
+        CountDownLatch gate = new CountDownLatch(1);
+        List<String> order = new ArrayList<>();
+        s.submit(a, -1, j -> {
+            await(gate);
+            return log(order, "a1");
+        });
+        while (s.queueDepth() > 0) {
+            Thread.yield();
+        }
+        s.submitBackground(a, -1, j -> log(order, "a2"));
+        SearchScheduler.Job<String> last =
+            s.submitBackground(b, -1, j -> log(order, "b2"));
+        s.submit(b, -1, j -> log(order, "b1"));
+        gate.countDown();
+        last.get();
+        assertEquals("[a1, b1, a2, b2]", order.toString());
+        s.shutdown();
+    }
+
+    @Test
+    public void testAIAfterShutdown() {
+        SearchScheduler s = new SearchScheduler(1);
+        s.shutdown();
+        StringWriter output = new StringWriter(), errors = new StringWriter();
+        Game game = new Game(new StringReader("auto red\nstart\nquit\n"),
+                             new StringWriter(), output, errors);
+        game.setScheduler(s);
+        assertEquals(0, game.play());
+        assertTrue(errors.toString(),
+                   errors.toString().contains("Error: AI cannot search"));
+        assertFalse(output.toString(), output.toString().contains("moves"));
+    }
+
+    @Test
+    public void testInputEndsMidGame() {
+        SearchScheduler s = new SearchScheduler(1);
+        StringWriter output = new StringWriter();
+        Game game = new Game(new StringReader("size 4\nauto red\nstart\n"),
+                             new StringWriter(), output, output);
+        game.setScheduler(s);
+        assertEquals(0, game.play());
+        assertTrue(output.toString(), output.toString().contains("moves"));
+        assertEquals(0, s.queueDepth());
+        s.shutdown();
+    }
+
+    /** Append NAME to ORDER, returning NAME. */
+    private static String log(List<String> order, String name) {
+        synchronized (order) {
+            order.add(name);
+        }
+        return name;
+    }
+
+    /** Wait for LATCH to open. */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException excp) {
+            throw new AssertionError(excp);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package jump61;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static jump61.Search.Feature.*;
+
+/** Unit tests for the optional search features.
+ *  @author Brian Su
+ */
+public class SearchTest {
+
+    /** Returns an N x N board after MOVES random moves chosen with
+     *  RANDOM, or null if the game ended. */
+    private MutableBoard randomPosition(int n, int moves, Random random) {
+        MutableBoard board = new MutableBoard(n);
+        for (int i = 0; i < moves; i += 1) {
+            if (board.getWinner() != null) {
+                return null;
+            }
+            int sq;
+            do {
+                sq = random.nextInt(n * n);
+            } while (!board.isLegal(board.whoseMove(), sq));
+            board.addSpot(board.whoseMove(), sq);
+        }
+        return board.getWinner() == null ? board : null;
+    }
+
+    @Test
+    public void testExactFeaturesAgree() {
+        Random random = new Random(61);
+        int compared = 0;
+        while (compared < 20) {
+            MutableBoard board = randomPosition(5, 12, random);
+            if (board == null) {
+                continue;
+            }
+            String before = board.positionKey();
+            Search original = new Search(board, null);
+            int[] expected = original.bestMove(board.whoseMove(), 3);
+            if (Math.abs(expected[0]) > 1000) {
+                continue;
+            }
+            for (EnumSet<Search.Feature> features
+                     : List.of(EnumSet.of(PVS), EnumSet.of(PVS, ASPIRATION))) {
+                Search search = new Search(board, null);
+                search.setFeatures(features);
+                int[] result = search.bestMove(board.whoseMove(), 3);
+                assertEquals(expected[0], result[0]);
+                assertTrue(board.isLegal(board.whoseMove(), result[1]));
+                assertEquals(result[1], search.principalVariation()[0]);
+                assertEquals(before, board.positionKey());
+            }
+            compared += 1;
+        }
+    }
+
+    @Test
+    public void testPruningFeaturesMoveLegally() {
+        Random random = new Random(5);
+        MutableBoard board = null;
+        while (board == null) {
+            board = randomPosition(6, 10, random);
+        }
+        String before = board.positionKey();
+        Search search = new Search(board, null);
+        search.setFeatures(EnumSet.allOf(Search.Feature.class));
+        int[] result = search.bestMove(board.whoseMove(), 4);
+        assertTrue(board.isLegal(board.whoseMove(), result[1]));
+        assertEquals(4, search.completedDepth());
+        assertEquals(before, board.positionKey());
+        assertEquals(EnumSet.of(PVS, LMR), Search.Feature.parse("pvs", "LMR"));
+        assertTrue(Search.Feature.parse("none").isEmpty());
+    }
+}
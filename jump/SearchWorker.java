@@ -0,0 +1,234 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** A process that searches root moves for a DistributedSearch over TCP
+ *  on the loopback interface.  Each connection carries a sequence of
+ *  one-line requests, each answered by one line:
+ *
+ *      search MOVES DEPTH MILLIS FEATURES CELLS ROOT
+ *
+ *  asks for a search of the position whose squares are CELLS (the bytes
+ *  of MutableBoard.encode in Base64) after MOVES moves, to at most DEPTH
+ *  plies, stopping after MILLIS milliseconds unless MILLIS is negative,
+ *  with the Search.Features FEATURES (separated by commas, or "none"),
+ *  considering only the root moves ROOT (square numbers separated by
+ *  commas).  The reply is
+ *
+ *      result NODES V1,M1 V2,M2 ...
+ *
+ *  where Vd and Md are the value and best move found at depth d, for
+ *  each depth completed, or "error MESSAGE".  "quit" closes the
+ *  connection.
+ *  Usage: java jump61.SearchWorker [PORT [THREADS]]
+ *  listens on PORT (any free port by default), announcing it on the
+ *  standard output, and runs at most THREADS searches at once.
+ *  @author Brian Su
+ */
+public class SearchWorker {
+
+    /** Start a worker with the port and threads in ARGS. */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+        SearchWorker worker = new SearchWorker(port, threads);
+        System.out.printf("%s %d%n", ANNOUNCEMENT, worker.port());
+        System.out.flush();
+        worker.serve();
+    }
+
+    /** A worker listening on PORT (0 for any free port) and running
+     *  searches on THREADS threads. */
+    SearchWorker(int port, int threads) throws IOException {
+        _listener = new ServerSocket(port, 0,
+                                     InetAddress.getLoopbackAddress());
+        _connections = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "jump61-worker-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        _scheduler = new SearchScheduler(threads);
+    }
+
+    /** Returns the port on which I am listening. */
+    int port() {
+        return _listener.getLocalPort();
+    }
+
+    /** Accept connections until close() is called, serving each on its
+     *  own thread. */
+    void serve() {
+        while (!_listener.isClosed()) {
+            Socket client;
+            try {
+                client = _listener.accept();
+            } catch (IOException excp) {
+                if (!_listener.isClosed()) {
+                    System.err.printf("Error: accept failed: %s%n",
+                                      excp.getMessage());
+                }
+                continue;
+            }
+            _connections.execute(() -> runConnection(client));
+        }
+    }
+
+    /** Stop accepting connections and searching. */
+    void close() {
+        try {
+            _listener.close();
+        } catch (IOException excp) {
+            /* Ignore: we are shutting down anyway. */
+        }
+        _connections.shutdownNow();
+        _scheduler.shutdown();
+    }
+
+    /** Start COUNT workers on this host as separate Java processes with
+     *  my class path, adding them to STARTED, and return their
+     *  addresses. */
+    static List<InetSocketAddress> launch(int count, List<Process> started)
+        throws IOException {
+        String java = System.getProperty("java.home") + File.separator
+            + "bin" + File.separator + "java";
+        List<InetSocketAddress> result = new ArrayList<>();
+        for (int k = 0; k < count; k += 1) {
+            Process worker =
+                new ProcessBuilder(java, "-cp",
+                                   System.getProperty("java.class.path"),
+                                   SearchWorker.class.getName(), "0", "1")
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            started.add(worker);
+            BufferedReader out =
+                new BufferedReader(new InputStreamReader(
+                    worker.getInputStream(), StandardCharsets.UTF_8));
+            String line = out.readLine();
+            if (line == null || !line.startsWith(ANNOUNCEMENT + " ")) {
+                throw new IOException("worker did not start: " + line);
+            }
+            int port = Integer.parseInt(line.substring(
+                ANNOUNCEMENT.length() + 1));
+            result.add(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                             port));
+        }
+        return result;
+    }
+
+    /** Answer the requests arriving over CLIENT until it closes or
+     *  quits. */
+    private void runConnection(Socket client) {
+        try (Socket socket = client) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in =
+                new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out =
+                new PrintWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null
+                   && !line.trim().equals("quit")) {
+                String reply;
+                try {
+                    reply = answer(line.trim().split("\\s+"), socket);
+                } catch (IllegalArgumentException excp) {
+                    reply = "error " + excp.getMessage();
+                }
+                out.print(reply + "\n");
+                out.flush();
+            }
+        } catch (SocketException excp) {
+            /* Coordinator went away; nothing to report. */
+        } catch (IOException excp) {
+            System.err.printf("Error: connection failed: %s%n",
+                              excp.getMessage());
+        }
+    }
+
+    /** Returns the reply to the request whose words are REQUEST, made
+     *  over connection OWNER.  Throws IllegalArgumentException if it is
+     *  malformed. */
+    private String answer(String[] request, Socket owner) {
+        if (request.length != 7 || !request[0].equals("search")) {
+            throw new IllegalArgumentException("bad request");
+        }
+        int moves = Integer.parseInt(request[1]);
+        int depth = Integer.parseInt(request[2]);
+        long millis = Long.parseLong(request[3]);
+        Set<Search.Feature> features =
+            Search.Feature.parse(request[4].split(","));
+        byte[] cells = Base64.getDecoder().decode(request[5]);
+        int n = (int) Math.round(Math.sqrt(cells.length));
+        if (n < 2 || n * n != cells.length || depth < 1) {
+            throw new IllegalArgumentException("bad position");
+        }
+        for (byte cell : cells) {
+            if ((cell & 3) == 3 || cell < 0) {
+                throw new IllegalArgumentException("bad position");
+            }
+        }
+        List<Integer> root = new ArrayList<>();
+        for (String move : request[6].split(",")) {
+            root.add(Integer.parseInt(move));
+        }
+        MutableBoard board = new MutableBoard(n);
+        board.decode(cells, moves);
+        Color who = board.whoseMove();
+        SearchScheduler.Job<String> job =
+            _scheduler.submit(owner, millis, j -> {
+                    Search search = new Search(board, j);
+                    search.setFeatures(features);
+                    search.setEvaluator(Evaluator.standard());
+                    search.setRootMoves(root);
+                    search.bestMove(who, depth);
+                    StringJoiner reply = new StringJoiner(" ");
+                    reply.add("result").add(Long.toString(search.nodes()));
+                    for (int d = 1; d <= search.completedDepth(); d += 1) {
+                        int[] best = search.result(d);
+                        reply.add(best[0] + "," + best[1]);
+                    }
+                    return reply.toString();
+                });
+        try {
+            return job.get();
+        } catch (InterruptedException excp) {
+            job.cancel();
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("interrupted");
+        } catch (CancellationException | ExecutionException excp) {
+            Throwable cause = excp.getCause() == null ? excp : excp.getCause();
+            throw new IllegalArgumentException("search failed: " + cause);
+        }
+    }
+
+    /** First words of the line with which main announces its port. */
+    static final String ANNOUNCEMENT = "jump61 search worker on port";
+
+    /** Socket on which I accept connections. */
+    private final ServerSocket _listener;
+    /** Runs one task per connection. */
+    private final ExecutorService _connections;
+    /** Scheduler on which searches run. */
+    private final SearchScheduler _scheduler;
+}
@@ -0,0 +1,151 @@
+package jump61;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A TCP server hosting many simultaneous sessions of Jump61 on the
+ *  loopback interface.  Each connection gets its own Game that speaks
+ *  the ordinary textual command protocol over the socket.  Sessions
+ *  run on virtual threads when the JVM provides them, AI searches run
+ *  on a bounded scheduler shared fairly by all sessions, and a session
+ *  that sends nothing for longer than the idle timeout is closed.
+ *  @author Brian Su
+ */
+class Server {
+
+    /** A server that will listen on PORT (0 for any free port), dropping
+     *  sessions idle for more than IDLEMILLIS milliseconds and running
+     *  AI searches on SEARCHTHREADS worker threads shared fairly among
+     *  sessions. */
+    Server(int port, int idleMillis, int searchThreads) throws IOException {
+        _listener = new ServerSocket(port, BACKLOG,
+                                     InetAddress.getLoopbackAddress());
+        _idleMillis = idleMillis;
+        _sessions = sessionExecutor();
+        _scheduler = new SearchScheduler(searchThreads);
+    }
+
+    /** Returns the port on which I am listening. */
+    int port() {
+        return _listener.getLocalPort();
+    }
+
+    /** Accept connections until close() is called, starting a session
+     *  for each. */
+    void serve() {
+        while (!_listener.isClosed()) {
+            Socket client;
+            try {
+                client = _listener.accept();
+            } catch (IOException excp) {
+                if (!_listener.isClosed()) {
+                    System.err.printf("Error: accept failed: %s%n",
+                                      excp.getMessage());
+                }
+                continue;
+            }
+            _sessions.execute(() -> runSession(client));
+        }
+    }
+
+    /** Play one session of Jump61 over CLIENT, closing it when the
+     *  session ends, the client disconnects, or it is idle too long. */
+    private void runSession(Socket client) {
+        _active.incrementAndGet();
+        _started.incrementAndGet();
+        try (Socket socket = client) {
+            socket.setSoTimeout(_idleMillis);
+            socket.setTcpNoDelay(true);
+            Writer output =
+                new OutputStreamWriter(socket.getOutputStream(),
+                                       StandardCharsets.UTF_8);
+            Game game =
+                new Game(new InputStreamReader(socket.getInputStream(),
+                                               StandardCharsets.UTF_8),
+                         output, output, output);
+            game.setScheduler(_scheduler);
+            game.setSearchBudget(Defaults.SERVER_MOVE_MILLIS);
+            game.play();
+        } catch (SocketException excp) {
+            /* Client went away; nothing to report. */
+        } catch (IOException excp) {
+            System.err.printf("Error: session failed: %s%n",
+                              excp.getMessage());
+        } finally {
+            _active.decrementAndGet();
+        }
+    }
+
+    /** Returns the number of sessions currently in progress. */
+    int activeSessions() {
+        return _active.get();
+    }
+
+    /** Returns the number of sessions started since I was created. */
+    int startedSessions() {
+        return _started.get();
+    }
+
+    /** Returns the scheduler on which sessions' AI players search. */
+    SearchScheduler scheduler() {
+        return _scheduler;
+    }
+
+    /** Stop accepting connections and shut down the search scheduler.  Sessions
+     *  in progress are left to finish on their own. */
+    void close() {
+        try {
+            _listener.close();
+        } catch (IOException excp) {
+            /* Ignore: we are shutting down anyway. */
+        }
+        _sessions.shutdown();
+        _scheduler.shutdown();
+    }
+
+    /** Wait up to MILLIS milliseconds for sessions in progress to end
+     *  after close().  Returns true iff they all did. */
+    boolean awaitSessions(long millis) throws InterruptedException {
+        return _sessions.awaitTermination(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Returns an executor that runs each task on its own virtual thread
+     *  if this JVM supports them, and on a new platform thread
+     *  otherwise. */
+    private static ExecutorService sessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException excp) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /** Maximum number of connections waiting to be accepted. */
+    private static final int BACKLOG = 512;
+
+    /** Socket on which I accept connections. */
+    private final ServerSocket _listener;
+    /** Milliseconds a session may wait for input before being closed. */
+    private final int _idleMillis;
+    /** Runs one task per session. */
+    private final ExecutorService _sessions;
+    /** Bounded scheduler on which all sessions' AI players search. */
+    private final SearchScheduler _scheduler;
+    /** Number of sessions in progress. */
+    private final AtomicInteger _active = new AtomicInteger();
+    /** Number of sessions started. */
+    private final AtomicInteger _started = new AtomicInteger();
+}
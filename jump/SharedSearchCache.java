@@ -0,0 +1,303 @@
+package jump61;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/** A cache of search results in a memory-mapped file, so that every
+ *  process on a host that opens the same file shares the results, and a
+ *  new process starts with what earlier ones learned.  It complements
+ *  the AI's SearchCache, which lives only as long as one AI.
+ *
+ *  The file holds a header and a power-of-two number of buckets of
+ *  BUCKET_SLOTS slots.  A slot is two longs: the result, packed as for
+ *  pack(), and the 64-bit hash of its position key exclusive-ored with
+ *  the result, so that a reader can recognize a slot torn by a
+ *  concurrent writer as a miss.  Writers claim a slot by compare-and-set
+ *  on its result word and never lock.  Each process that opens the file
+ *  starts a new generation; when a bucket is full, results from older
+ *  generations are replaced first, then shallower ones.  Since processes
+ *  searching with different features or evaluators may share a file, a
+ *  key must identify those as well as the position.
+ *  @author Brian Su
+ */
+class SharedSearchCache {
+
+    /** First four bytes of a cache file. */
+    static final int MAGIC = 0x4a363143;
+    /** Format version.  Version 2 results are keyed by search
+     *  configuration as well as position. */
+    static final int VERSION = 2;
+    /** Slots per bucket: one 64-byte cache line. */
+    static final int BUCKET_SLOTS = 4;
+
+    /** Opens the cache in FILE, creating it with about BYTES bytes of
+     *  slots if it does not exist or is empty, and starts a new
+     *  generation.  A file of the right size but another layout is
+     *  emptied of results and statistics.  Throws IOException if FILE
+     *  has another size, since other processes may have it mapped and
+     *  would fail if it shrank. */
+    SharedSearchCache(Path file, long bytes) throws IOException {
+        long buckets = Long.highestOneBit(Math.max(1, bytes / BUCKET_BYTES));
+        if (buckets > Integer.MAX_VALUE / BUCKET_BYTES) {
+            throw new IllegalArgumentException("cache too large");
+        }
+        long length = HEADER + buckets * BUCKET_BYTES;
+        try (FileChannel channel = FileChannel.open(file, CREATE, READ,
+                                                    WRITE)) {
+            long size = channel.size();
+            if (size != 0 && size != length) {
+                throw new IOException(String.format(
+                    "holds %d bytes, not %d", size, length));
+            }
+            _map = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+        if (ints(MAGIC_AT) != MAGIC || ints(VERSION_AT) != VERSION
+            || ints(BUCKETS_AT) != buckets) {
+            INTS.setVolatile(_map, MAGIC_AT, 0);
+            for (int at = 8; at < length; at += 8) {
+                LONGS.setVolatile(_map, at, 0L);
+            }
+            INTS.setVolatile(_map, VERSION_AT, VERSION);
+            INTS.setVolatile(_map, BUCKETS_AT, (int) buckets);
+            INTS.setVolatile(_map, MAGIC_AT, MAGIC);
+        }
+        _file = file;
+        _mask = (int) buckets - 1;
+        _generation = (int) INTS.getAndAdd(_map, GENERATION_AT, 1) + 1;
+    }
+
+    /** Returns the cache named by Defaults.SHARED_CACHE, opening it on
+     *  first use, or null if there is none or it cannot be opened. */
+    static synchronized SharedSearchCache shared() {
+        if (!_opened && Defaults.SHARED_CACHE != null) {
+            _opened = true;
+            try {
+                _shared = new SharedSearchCache(
+                    Paths.get(Defaults.SHARED_CACHE),
+                    Defaults.SHARED_CACHE_BYTES);
+            } catch (IOException | IllegalArgumentException excp) {
+                System.err.printf("Error: cannot open shared cache %s: %s%n",
+                                  Defaults.SHARED_CACHE, excp.getMessage());
+            }
+        }
+        return _shared;
+    }
+
+    /** Returns the value and best move stored for the position with key
+     *  KEY (see Board.positionKey) by a search at least MINDEPTH plies
+     *  deep, or null if there is none. */
+    int[] get(String key, int minDepth) {
+        long hash = hash(key);
+        int base = slotOffset(hash);
+        for (int s = 0; s < BUCKET_SLOTS; s += 1) {
+            int at = base + s * SLOT_BYTES;
+            long data = (long) LONGS.getAcquire(_map, at + DATA);
+            long check = (long) LONGS.getAcquire(_map, at);
+            if (data != 0 && (check ^ data) == hash
+                && depth(data) >= minDepth) {
+                _hits.increment();
+                LONGS.getAndAdd(_map, HITS_AT, 1L);
+                return new int[] { value(data), move(data) };
+            }
+        }
+        _misses.increment();
+        LONGS.getAndAdd(_map, MISSES_AT, 1L);
+        return null;
+    }
+
+    /** Store VALUE and MOVE, found by a search DEPTH plies deep, for the
+     *  position with key KEY.  Silently gives up if another writer is
+     *  changing the chosen slot at the same moment. */
+    void put(String key, int value, int move, int depth) {
+        long hash = hash(key);
+        int base = slotOffset(hash);
+        int victim = -1;
+        long victimData = 0;
+        int victimScore = Integer.MAX_VALUE;
+        for (int s = 0; s < BUCKET_SLOTS; s += 1) {
+            int at = base + s * SLOT_BYTES;
+            long data = (long) LONGS.getAcquire(_map, at + DATA);
+            long check = (long) LONGS.getAcquire(_map, at);
+            int score;
+            if (data != 0 && (check ^ data) == hash) {
+                if (depth(data) > depth) {
+                    return;
+                }
+                score = Integer.MIN_VALUE;
+            } else if (data == 0) {
+                score = Integer.MIN_VALUE + 1;
+            } else {
+                int age = (_generation - generation(data)) & GENERATION_MASK;
+                score = depth(data) - AGE_WEIGHT * age;
+            }
+            if (score < victimScore) {
+                victim = at;
+                victimData = data;
+                victimScore = score;
+            }
+        }
+        long data = pack(value, move, depth, _generation);
+        if (LONGS.compareAndSet(_map, victim + DATA, victimData, data)) {
+            LONGS.setRelease(_map, victim, hash ^ data);
+            _stores.increment();
+            LONGS.getAndAdd(_map, STORES_AT, 1L);
+            if (victimData != 0 && victimScore != Integer.MIN_VALUE) {
+                _evictions.increment();
+            }
+        }
+    }
+
+    /** Returns the number of slots. */
+    int capacity() {
+        return (_mask + 1) * BUCKET_SLOTS;
+    }
+
+    /** Returns my generation. */
+    int generation() {
+        return _generation;
+    }
+
+    /** Returns the number of lookups by this process that found a
+     *  result. */
+    long hits() {
+        return _hits.sum();
+    }
+
+    /** Returns the number of lookups by this process that found
+     *  nothing. */
+    long misses() {
+        return _misses.sum();
+    }
+
+    /** Returns the number of results stored by this process. */
+    long stores() {
+        return _stores.sum();
+    }
+
+    /** Returns the number of results from other positions that this
+     *  process's stores replaced. */
+    long evictions() {
+        return _evictions.sum();
+    }
+
+    /** Returns a summary of my statistics for this process and for all
+     *  processes that have used my file. */
+    String stats() {
+        long hits = hits(), lookups = hits + misses();
+        long allHits = (long) LONGS.getVolatile(_map, HITS_AT),
+            allLookups = allHits + (long) LONGS.getVolatile(_map, MISSES_AT);
+        return String.format("%s: %d slots, generation %d.%n"
+                             + "This process: %d of %d lookups hit (%.1f%%), "
+                             + "%d stores, %d evictions.%n"
+                             + "All processes: %d of %d lookups hit (%.1f%%), "
+                             + "%d stores.",
+                             _file, capacity(), _generation, hits, lookups,
+                             percent(hits, lookups), stores(), evictions(),
+                             allHits, allLookups, percent(allHits, allLookups),
+                             (long) LONGS.getVolatile(_map, STORES_AT));
+    }
+
+    /** Returns the 64-bit hash of KEY, which is never 0. */
+    static long hash(String key) {
+        long h = 0x9e3779b97f4a7c15L ^ key.length();
+        for (int i = 0; i < key.length(); i += 1) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+            h ^= h >>> 29;
+        }
+        h ^= h >>> 32;
+        h *= 0xd6e8feb86659fd93L;
+        h ^= h >>> 32;
+        return h == 0 ? 1 : h;
+    }
+
+    /** Returns VALUE, MOVE (0 to 65535), DEPTH (1 to 255), and
+     *  GENERATION packed into a nonzero long. */
+    static long pack(int value, int move, int depth, int generation) {
+        return (value & 0xffffffffL) | (long) (move & 0xffff) << 32
+            | (long) (depth & 0xff) << 48
+            | (long) (generation & GENERATION_MASK) << 56;
+    }
+
+    /** Returns the value in packed result DATA. */
+    static int value(long data) {
+        return (int) data;
+    }
+
+    /** Returns the move in packed result DATA. */
+    static int move(long data) {
+        return (int) (data >>> 32) & 0xffff;
+    }
+
+    /** Returns the depth in packed result DATA. */
+    static int depth(long data) {
+        return (int) (data >>> 48) & 0xff;
+    }
+
+    /** Returns the generation in packed result DATA. */
+    static int generation(long data) {
+        return (int) (data >>> 56) & GENERATION_MASK;
+    }
+
+    /** Returns the int at offset AT of my file. */
+    private int ints(int at) {
+        return (int) INTS.getVolatile(_map, at);
+    }
+
+    /** Returns the offset of the first slot of HASH's bucket. */
+    private int slotOffset(long hash) {
+        return HEADER + (int) (hash & _mask) * BUCKET_BYTES;
+    }
+
+    /** Returns 100 * PART / WHOLE, or 0 if WHOLE is 0. */
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0.0 : 100.0 * part / whole;
+    }
+
+    /** Offsets of the header fields. */
+    private static final int MAGIC_AT = 0, VERSION_AT = 4, BUCKETS_AT = 8,
+        GENERATION_AT = 12, HITS_AT = 16, MISSES_AT = 24, STORES_AT = 32;
+    /** Size of the header. */
+    private static final int HEADER = 64;
+    /** Size of a slot, and the offset in it of the result word. */
+    private static final int SLOT_BYTES = 16, DATA = 8;
+    /** Size of a bucket. */
+    private static final int BUCKET_BYTES = BUCKET_SLOTS * SLOT_BYTES;
+    /** Generations are stored modulo GENERATION_MASK + 1. */
+    private static final int GENERATION_MASK = 0xff;
+    /** Plies of depth that one generation of age outweighs when choosing
+     *  a slot to replace. */
+    private static final int AGE_WEIGHT = 4;
+
+    /** Access to the longs and ints of a mapped file. */
+    private static final VarHandle LONGS =
+        MethodHandles.byteBufferViewVarHandle(long[].class,
+                                              ByteOrder.nativeOrder()),
+        INTS = MethodHandles.byteBufferViewVarHandle(int[].class,
+                                                     ByteOrder.nativeOrder());
+
+    /** The cache named by Defaults.SHARED_CACHE, if open. */
+    private static SharedSearchCache _shared;
+    /** True iff shared() has tried to open the cache. */
+    private static boolean _opened;
+
+    /** File holding the cache. */
+    private final Path _file;
+    /** The mapped file. */
+    private final MappedByteBuffer _map;
+    /** Number of buckets less 1. */
+    private final int _mask;
+    /** Generation of the results I store. */
+    private final int _generation;
+    /** Statistics for this process. */
+    private final LongAdder _hits = new LongAdder(), _misses = new LongAdder(),
+        _stores = new LongAdder(), _evictions = new LongAdder();
+}
@@ -0,0 +1,133 @@
+package jump61;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of SharedSearchCache.
+ *  @author Brian Su
+ */
+public class SharedSearchCacheTest {
+
+    /** Returns a new temporary file. */
+    private Path tempFile() throws Exception {
+        Path file = Files.createTempFile("jump61", ".cache");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void testPack() {
+        long data = SharedSearchCache.pack(-123456, 65535, 4, 300);
+        assertEquals(-123456, SharedSearchCache.value(data));
+        assertEquals(65535, SharedSearchCache.move(data));
+        assertEquals(4, SharedSearchCache.depth(data));
+        assertEquals(300 & 0xff, SharedSearchCache.generation(data));
+    }
+
+    @Test
+    public void testShared() throws Exception {
+        Path file = tempFile();
+        SharedSearchCache a = new SharedSearchCache(file, 1 << 16);
+        assertEquals(4096, a.capacity());
+        assertNull(a.get("abc", 1));
+        a.put("abc", 7, 3, 4);
+        SharedSearchCache b = new SharedSearchCache(file, 1 << 16);
+        assertEquals(a.generation() + 1, b.generation());
+        assertArrayEquals(new int[] { 7, 3 }, b.get("abc", 4));
+        assertNull(b.get("abc", 5));
+        b.put("abc", 9, 1, 2);
+        assertArrayEquals(new int[] { 7, 3 }, a.get("abc", 1));
+        b.put("abc", 9, 1, 5);
+        assertArrayEquals(new int[] { 9, 1 }, a.get("abc", 1));
+        assertEquals(1, b.hits());
+        assertEquals(1, b.misses());
+        assertTrue(b.stats().contains("This process: 1 of 2 lookups hit"));
+        assertTrue(b.stats().contains("All processes: 3 of 5 lookups hit"));
+        long size = Files.size(file);
+        try {
+            new SharedSearchCache(file, 1 << 20);
+            fail("resized a cache file in use");
+        } catch (IOException excp) {
+            assertEquals(size, Files.size(file));
+        }
+        assertArrayEquals(new int[] { 9, 1 }, b.get("abc", 1));
+    }
+
+    @Test
+    public void testOldVersion() throws Exception {
+        Path file = tempFile();
+        SharedSearchCache a = new SharedSearchCache(file, 1 << 16);
+        a.put("abc", 7, 3, 4);
+        assertNotNull(a.get("abc", 1));
+        ByteBuffer version =
+            ByteBuffer.allocate(4).order(ByteOrder.nativeOrder()).putInt(0, 1);
+        try (FileChannel channel =
+             FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(version, 4);
+        }
+        SharedSearchCache b = new SharedSearchCache(file, 1 << 16);
+        assertEquals(1, b.generation());
+        assertNull(b.get("abc", 1));
+        assertTrue(b.stats(), b.stats().contains(
+            "All processes: 0 of 1 lookups hit (0.0%), 0 stores."));
+    }
+
+    @Test
+    public void testAging() throws Exception {
+        Path file = tempFile();
+        SharedSearchCache old = new SharedSearchCache(file, 64);
+        assertEquals(4, old.capacity());
+        for (int k = 0; k < 4; k += 1) {
+            old.put("old" + k, k, k, 6);
+        }
+        SharedSearchCache young = new SharedSearchCache(file, 64);
+        for (int k = 0; k < 4; k += 1) {
+            young.put("young" + k, k, k, 4);
+        }
+        for (int k = 0; k < 4; k += 1) {
+            assertArrayEquals(new int[] { k, k }, young.get("young" + k, 1));
+            assertNull(young.get("old" + k, 1));
+        }
+        young.put("deep", 0, 0, 5);
+        young.put("shallow", 0, 0, 1);
+        assertNotNull(young.get("deep", 1));
+        assertEquals(6, young.evictions());
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        Path file = tempFile();
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t += 1) {
+            SharedSearchCache cache = new SharedSearchCache(file, 4096);
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i += 1) {
+                    String key = "k" + ((i * 31 + seed) % 500);
+                    int expected = (int) SharedSearchCache.hash(key);
+                    int[] found = cache.get(key, 1);
+                    if (found != null && (found[0] != expected
+                                          || found[1] != key.length())) {
+                        errors.incrementAndGet();
+                    }
+                    cache.put(key, expected, key.length(), 1 + i % 8);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+    }
+}
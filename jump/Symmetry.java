@@ -0,0 +1,111 @@
+package jump61;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The eight symmetries (rotations and reflections) of a square board,
+ *  as maps on square numbers, and the canonical form of a position
+ *  under them.  Transform #0 is the identity.
+ *  @author Brian Su
+ */
+class Symmetry {
+
+    /** Number of symmetries of a square. */
+    static final int COUNT = 8;
+
+    /** Returns the symmetries of an N x N board: element [T][S] is the
+     *  square to which transform #T takes square #S. */
+    static int[][] transforms(int n) {
+        int[][] result = _tables.get(n);
+        if (result == null) {
+            result = new int[COUNT][n * n];
+            for (int r = 0; r < n; r += 1) {
+                for (int c = 0; c < n; c += 1) {
+                    int s = r * n + c, r1 = n - 1 - r, c1 = n - 1 - c;
+                    result[0][s] = s;
+                    result[1][s] = c * n + r1;
+                    result[2][s] = r1 * n + c1;
+                    result[3][s] = c1 * n + r;
+                    result[4][s] = r * n + c1;
+                    result[5][s] = r1 * n + c;
+                    result[6][s] = c * n + r;
+                    result[7][s] = c1 * n + r1;
+                }
+            }
+            _tables.put(n, result);
+        }
+        return result;
+    }
+
+    /** Returns the number of the transform that undoes transform #T. */
+    static int inverse(int t) {
+        return INVERSES[t];
+    }
+
+    /** Returns the position key (see Board.positionKey) of BOARD after
+     *  applying transform #T. */
+    static String key(Board board, int t) {
+        int n = board.size() * board.size();
+        int[] map = transforms(board.size())[t];
+        char[] key = new char[n + 1];
+        key[0] = (char) board.whoseMove().ordinal();
+        for (int i = 0; i < n; i += 1) {
+            key[map[i] + 1] =
+                (char) (board.spots(i) * 3 + board.color(i).ordinal());
+        }
+        return new String(key);
+    }
+
+    /** Returns the number of the transform that takes BOARD to its
+     *  canonical form: the one with the smallest key.  Ties go to the
+     *  lowest-numbered transform. */
+    static int canonicalTransform(Board board) {
+        int best = 0;
+        String bestKey = board.positionKey();
+        for (int t = 1; t < COUNT; t += 1) {
+            String key = key(board, t);
+            if (key.compareTo(bestKey) < 0) {
+                best = t;
+                bestKey = key;
+            }
+        }
+        return best;
+    }
+
+    /** Returns the moves in MOVES that are not equivalent under a
+     *  symmetry of BOARD to some earlier move in MOVES, in their
+     *  original order. */
+    static ArrayList<Integer> distinctMoves(Board board,
+                                            ArrayList<Integer> moves) {
+        int[][] maps = transforms(board.size());
+        String key = board.positionKey();
+        ArrayList<int[]> invariant = new ArrayList<>();
+        for (int t = 1; t < COUNT; t += 1) {
+            if (key(board, t).equals(key)) {
+                invariant.add(maps[t]);
+            }
+        }
+        if (invariant.isEmpty()) {
+            return moves;
+        }
+        boolean[] seen = new boolean[maps[0].length];
+        ArrayList<Integer> result = new ArrayList<>();
+        for (int move : moves) {
+            if (!seen[move]) {
+                result.add(move);
+                seen[move] = true;
+                for (int[] map : invariant) {
+                    seen[map[move]] = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Inverses of the transforms. */
+    private static final int[] INVERSES = { 0, 3, 2, 1, 4, 5, 6, 7 };
+
+    /** Transform tables by board size. */
+    private static final ConcurrentHashMap<Integer, int[][]> _tables =
+        new ConcurrentHashMap<>();
+}
@@ -0,0 +1,70 @@
+package jump61;
+
+import static jump61.Color.*;
+
+/** Measures how many positions the AI's search saves by pruning
+ *  symmetric root moves, on empty and near-empty boards of sizes 4-10.
+ *  Usage: java jump61.SymmetryBench [DEPTH]
+ *  @author Brian Su
+ */
+public class SymmetryBench {
+
+    /** Run the measurements at the depth given by ARGS (default 3). */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        System.out.printf("%-4s %-14s %12s %12s %8s %10s %10s%n", "size",
+                          "position", "nodes", "nodes(sym)", "saved",
+                          "ms", "ms(sym)");
+        for (int n = 4; n <= 10; n += 1) {
+            for (int p = 0; p < POSITIONS.length; p += 1) {
+                Board board = position(n, p);
+                long[] plain = measure(board, depth, false);
+                long[] sym = measure(board, depth, true);
+                System.out.printf("%-4d %-14s %12d %12d %7.1f%% %10.1f "
+                                  + "%10.1f%n", n, POSITIONS[p], plain[0],
+                                  sym[0], 100.0 * (plain[0] - sym[0])
+                                  / plain[0], plain[1] * 1e-6,
+                                  sym[1] * 1e-6);
+            }
+        }
+    }
+
+    /** Search BOARD to DEPTH for the player to move, pruning symmetric
+     *  root moves iff SYMMETRY.  Returns the number of nodes searched and
+     *  the elapsed nanoseconds. */
+    private static long[] measure(Board board, int depth, boolean symmetry) {
+        Search search = new Search(board, null);
+        search.setRootSymmetry(symmetry);
+        long start = System.nanoTime();
+        search.bestMove(board.whoseMove(), depth);
+        return new long[] { search.nodes(), System.nanoTime() - start };
+    }
+
+    /** Returns an N x N board containing test position #P. */
+    private static Board position(int n, int p) {
+        Board board = new MutableBoard(n);
+        switch (p) {
+        case 0:
+            break;
+        case 1:
+            board.set(1, 1, 1, RED);
+            board.setMoves(1);
+            break;
+        case 2:
+            board.set((n + 1) / 2, (n + 1) / 2, 1, RED);
+            board.setMoves(1);
+            break;
+        default:
+            board.set(1, 1, 1, RED);
+            board.set(n, n, 1, BLUE);
+            board.setMoves(2);
+            break;
+        }
+        return board;
+    }
+
+    /** Descriptions of the test positions. */
+    private static final String[] POSITIONS = {
+        "empty", "red corner", "red center", "corners r+b"
+    };
+}
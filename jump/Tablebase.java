@@ -0,0 +1,299 @@
+package jump61;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static jump61.Color.*;
+
+/** An exactly solved Jump61 board size, built by TablebaseBuilder and
+ *  read from a memory-mapped file.  Every position with at most
+ *  neighbors(sq) spots on each square sq has an entry, whether or not it
+ *  can arise in play, so positions made with set are covered too.
+ *  Positions are numbered as mixed-radix numbers with one digit per
+ *  square (0 for an empty square, 2 * spots - 1 for red, 2 * spots for
+ *  blue, square 0 least significant), doubled, plus 1 if blue is to
+ *  move.  Entry number P is the byte at HEADER + P of the file: 0 if not
+ *  yet solved, and otherwise 1 + (2 * D + W), where the player to move
+ *  wins (W = 1) or loses (W = 0) D moves from now with best play.
+ *  @author Brian Su
+ */
+class Tablebase {
+
+    /** First four bytes of a tablebase file. */
+    static final int MAGIC = 0x4a363154;
+    /** Format version, the fifth byte; the sixth is the board size. */
+    static final int VERSION = 1;
+    /** Offset of the entries in a file.  Bytes 8-11 hold the number of
+     *  spots on the board in the positions TablebaseBuilder is to solve
+     *  next, or -1 if all are solved. */
+    static final int HEADER = 16;
+    /** Largest size for which the positions can be numbered by an int;
+     *  4x4 would need about 5e13 entries. */
+    static final int MAX_SIZE = 3;
+
+    /** The numbering of positions on an N x N board, without entries. */
+    Tablebase(int n) {
+        this(n, null);
+    }
+
+    /** The numbering of positions on an N x N board, with entries in
+     *  TABLE, laid out as in a file. */
+    Tablebase(int n, ByteBuffer table) {
+        if (n < 2 || n > MAX_SIZE) {
+            throw new IllegalArgumentException("no tablebase for size " + n);
+        }
+        _n = n;
+        _table = table;
+        _cap = new int[n * n];
+        _radix = new int[n * n];
+        _weight = new int[n * n];
+        long weight = 2;
+        for (int sq = 0; sq < n * n; sq += 1) {
+            int r = sq / n, c = sq % n;
+            _cap[sq] = 4 - (r == 0 || r == n - 1 ? 1 : 0)
+                - (c == 0 || c == n - 1 ? 1 : 0);
+            _radix[sq] = 2 * _cap[sq] + 1;
+            _weight[sq] = (int) weight;
+            weight *= _radix[sq];
+        }
+        _positions = (int) weight;
+    }
+
+    /** Returns the solved tablebase for N x N boards found in
+     *  Defaults.TABLEBASE_DIR, or null if there is none.  Each size is
+     *  looked for only once. */
+    static synchronized Tablebase forSize(int n) {
+        if (n < 2 || n > MAX_SIZE) {
+            return null;
+        }
+        if (!LOOKED[n]) {
+            LOOKED[n] = true;
+            Path file = file(Paths.get(Defaults.TABLEBASE_DIR), n);
+            if (Files.isReadable(file)) {
+                try {
+                    LOADED[n] = open(file);
+                } catch (IOException | IllegalArgumentException excp) {
+                    System.err.printf("Error: cannot use tablebase %s: %s%n",
+                                      file, excp.getMessage());
+                }
+            }
+        }
+        return LOADED[n];
+    }
+
+    /** Returns the name of the tablebase file for N x N boards in
+     *  DIR. */
+    static Path file(Path dir, int n) {
+        return dir.resolve(String.format("jump61-%dx%d.tb", n, n));
+    }
+
+    /** Returns the tablebase in FILE, mapped into memory.  It must be
+     *  completely solved. */
+    static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.READ)) {
+            ByteBuffer table =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (table.limit() < HEADER || table.getInt(0) != MAGIC
+                || table.get(4) != VERSION) {
+                throw new IllegalArgumentException("not a tablebase");
+            }
+            Tablebase result = new Tablebase(table.get(5), table);
+            if (table.limit() != HEADER + result.positions()) {
+                throw new IllegalArgumentException("wrong length");
+            } else if (table.getInt(8) != -1) {
+                throw new IllegalArgumentException("not completely solved");
+            }
+            return result;
+        }
+    }
+
+    /** Returns the size of my boards. */
+    int size() {
+        return _n;
+    }
+
+    /** Returns the number of positions I number. */
+    int positions() {
+        return _positions;
+    }
+
+    /** Returns the most spots a position I number can hold. */
+    int maxSpots() {
+        int total = 0;
+        for (int cap : _cap) {
+            total += cap;
+        }
+        return total;
+    }
+
+    /** Returns the number of POSITION, whose player to move is the one
+     *  after MOVES moves, and whose square SQ has SPOTS[sq] spots of the
+     *  color with ordinal OWNERS[sq].  Returns -1 if I have no such
+     *  position. */
+    int index(byte[] owners, int[] spots, int moves) {
+        int index = moves & 1;
+        for (int sq = 0; sq < _cap.length; sq += 1) {
+            if (owners[sq] == 0 && spots[sq] == 0) {
+                continue;
+            } else if (owners[sq] == 0 || spots[sq] < 1
+                       || spots[sq] > _cap[sq]) {
+                return -1;
+            }
+            index += (2 * spots[sq] - (owners[sq] == 1 ? 1 : 0))
+                * _weight[sq];
+        }
+        return index;
+    }
+
+    /** Set OWNERS and SPOTS to the colors (as ordinals) and spots of the
+     *  squares in position number INDEX, and return the number of moves,
+     *  0 or 1, that gives the right player to move. */
+    int decode(int index, byte[] owners, int[] spots) {
+        int rest = index / 2;
+        for (int sq = 0; sq < _cap.length; sq += 1) {
+            int digit = rest % _radix[sq];
+            rest /= _radix[sq];
+            owners[sq] = (byte) (digit == 0 ? 0 : 2 - digit % 2);
+            spots[sq] = (digit + 1) / 2;
+        }
+        return index & 1;
+    }
+
+    /** Returns entry number INDEX. */
+    int entry(int index) {
+        return _table.get(HEADER + index) & 0xff;
+    }
+
+    /** Returns the entry recording that the player to move wins, if
+     *  WINS, or loses, otherwise, in DISTANCE moves. */
+    static int entry(boolean wins, int distance) {
+        return 1 + (2 * distance + (wins ? 1 : 0));
+    }
+
+    /** Returns true iff ENTRY says that the player to move wins. */
+    static boolean wins(int entry) {
+        return ((entry - 1) & 1) == 1;
+    }
+
+    /** Returns the number of moves to the end of the game recorded in
+     *  ENTRY. */
+    static int distance(int entry) {
+        return (entry - 1) >> 1;
+    }
+
+    /** Returns { E, SQ }, where E is the entry for the unfinished position
+     *  given by OWNERS, SPOTS, and MOVES as for index, and SQ is a move
+     *  that achieves it, using SCRATCH, a Playout of my size, for trial
+     *  moves.  The player to move wins as quickly as possible or loses as
+     *  slowly as possible.  Returns null if an entry that is needed is
+     *  missing. */
+    int[] solve(byte[] owners, int[] spots, int moves, Playout scratch) {
+        int them = 2 - (moves & 1);
+        int best = 0, bestMove = -1;
+        for (int sq = 0; sq < _cap.length; sq += 1) {
+            if (owners[sq] == them) {
+                continue;
+            }
+            scratch.load(owners, spots, moves);
+            scratch.move(sq);
+            int value;
+            if (scratch.winner() != null) {
+                value = entry(true, 1);
+            } else {
+                int reply = entry(index(scratch));
+                if (reply == 0) {
+                    return null;
+                }
+                value = entry(!wins(reply), distance(reply) + 1);
+            }
+            if (bestMove < 0 || better(value, best)) {
+                best = value;
+                bestMove = sq;
+            }
+        }
+        return new int[] { best, bestMove };
+    }
+
+    /** Returns the value and best move for the player to move on BOARD,
+     *  as for Search.bestMove, or null if BOARD is not my size, the game
+     *  is over, or I lack the position. */
+    int[] bestMove(Board board) {
+        if (board.size() != _n || board.getWinner() != null) {
+            return null;
+        }
+        int area = _n * _n;
+        byte[] owners = new byte[area];
+        int[] spots = new int[area];
+        for (int sq = 0; sq < area; sq += 1) {
+            owners[sq] = (byte) board.color(sq).ordinal();
+            spots[sq] = board.spots(sq);
+        }
+        int index = index(owners, spots, board.numMoves());
+        if (index < 0 || entry(index) == 0) {
+            return null;
+        }
+        int[] result = solve(owners, spots, board.numMoves(),
+                             new Playout(_n));
+        if (result == null) {
+            return null;
+        }
+        int distance = distance(result[0]);
+        result[0] = wins(result[0]) ? Search.WIN - distance
+            : -(Search.WIN - distance);
+        return result;
+    }
+
+    /** Returns the number of the unfinished position on PLAYOUT, or -1 if
+     *  I have no such position. */
+    private int index(Playout playout) {
+        int index = playout.whoseMove() == RED ? 0 : 1;
+        for (int sq = 0; sq < _cap.length; sq += 1) {
+            int spots = playout.spots(sq);
+            if (spots > _cap[sq]) {
+                return -1;
+            } else if (spots > 0) {
+                int digit = playout.color(sq) == RED ? 2 * spots - 1
+                    : 2 * spots;
+                index += digit * _weight[sq];
+            }
+        }
+        return index;
+    }
+
+    /** Returns true iff entry A is better than entry B for the player to
+     *  move: a win beats a loss, a quicker win a slower one, and a slower
+     *  loss a quicker one. */
+    private static boolean better(int a, int b) {
+        if (wins(a) != wins(b)) {
+            return wins(a);
+        } else if (wins(a)) {
+            return distance(a) < distance(b);
+        } else {
+            return distance(a) > distance(b);
+        }
+    }
+
+    /** Tablebases found by forSize, by size. */
+    private static final Tablebase[] LOADED = new Tablebase[MAX_SIZE + 1];
+    /** Sizes for which forSize has looked for a tablebase. */
+    private static final boolean[] LOOKED = new boolean[MAX_SIZE + 1];
+
+    /** Size of my boards. */
+    private final int _n;
+    /** File contents, or null if I only number positions. */
+    private final ByteBuffer _table;
+    /** Number of neighbors of each square. */
+    private final int[] _cap;
+    /** Number of digit values of each square. */
+    private final int[] _radix;
+    /** Place value of each square's digit in a position number. */
+    private final int[] _weight;
+    /** Number of positions. */
+    private final int _positions;
+}
@@ -0,0 +1,176 @@
+package jump61;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/** Solves small Jump61 boards completely, writing Tablebase files.
+ *  Every move adds one spot to the board and jumps only move spots, so
+ *  an unfinished game never returns to a position and each move leads
+ *  from positions with S spots to ones with S + 1 or to a finished game.
+ *  The builder therefore works backward from the fullest positions:
+ *  once all positions with S + 1 spots are solved, those with S spots
+ *  are solved independently of each other, in parallel, by trying each
+ *  move.  The file's header records the next number of spots to solve,
+ *  so an interrupted build resumes where it stopped.
+ *  Usage: java jump61.TablebaseBuilder [SIZE [DIR [THREADS]]]
+ *  builds sizes 2 and 3 if SIZE is omitted, in the directory
+ *  Defaults.TABLEBASE_DIR by default.
+ *  @author Brian Su
+ */
+public class TablebaseBuilder {
+
+    /** Build the tablebases described by ARGS. */
+    public static void main(String[] args)
+        throws IOException, InterruptedException, ExecutionException {
+        int[] sizes = args.length > 0
+            ? new int[] { Integer.parseInt(args[0]) } : new int[] { 2, 3 };
+        Path dir = Paths.get(args.length > 1 ? args[1]
+                             : Defaults.TABLEBASE_DIR);
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors();
+        Files.createDirectories(dir);
+        for (int n : sizes) {
+            Path file = Tablebase.file(dir, n);
+            long start = System.nanoTime();
+            build(n, file, threads, true);
+            System.out.printf("%s: %d positions in %.1f s%n", file,
+                              new Tablebase(n).positions(),
+                              (System.nanoTime() - start) * 1e-9);
+        }
+    }
+
+    /** Solve the N x N board into FILE using THREADS threads, resuming
+     *  the build already in FILE if there is one.  Report progress on the
+     *  standard output iff VERBOSE. */
+    static void build(int n, Path file, int threads, boolean verbose)
+        throws IOException, InterruptedException, ExecutionException {
+        Tablebase numbering = new Tablebase(n);
+        long length = Tablebase.HEADER + (long) numbering.positions();
+        try (FileChannel channel =
+             FileChannel.open(file, CREATE, READ, WRITE)) {
+            if (channel.size() != length) {
+                channel.truncate(0);
+            }
+            MappedByteBuffer table =
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            if (table.getInt(0) != Tablebase.MAGIC
+                || table.get(4) != Tablebase.VERSION || table.get(5) != n) {
+                table.putInt(0, Tablebase.MAGIC);
+                table.put(4, (byte) Tablebase.VERSION);
+                table.put(5, (byte) n);
+                table.putInt(8, numbering.maxSpots());
+            }
+            Tablebase tablebase = new Tablebase(n, table);
+            int[][] layers = layers(tablebase);
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (int spots = table.getInt(8); spots >= 0; spots -= 1) {
+                    int[] layer = layers[spots];
+                    pool.submit(() -> IntStream.range(0, layer.length)
+                                .parallel()
+                                .forEach(k -> solve(tablebase, table,
+                                                    layer[k])))
+                        .get();
+                    table.force();
+                    table.putInt(8, spots - 1);
+                    table.force();
+                    if (verbose) {
+                        System.out.printf("%s: solved %d spots (%d "
+                                          + "positions)%n", file, spots,
+                                          2 * layer.length);
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /** Returns, for each number of spots S, the numbers of the positions
+     *  of TABLEBASE with S spots and red to move. */
+    private static int[][] layers(Tablebase tablebase) {
+        int area = tablebase.size() * tablebase.size();
+        byte[] owners = new byte[area];
+        int[] spots = new int[area];
+        int configs = tablebase.positions() / 2;
+        byte[] totals = new byte[configs];
+        int[] counts = new int[tablebase.maxSpots() + 1];
+        for (int c = 0; c < configs; c += 1) {
+            tablebase.decode(2 * c, owners, spots);
+            int total = 0;
+            for (int s : spots) {
+                total += s;
+            }
+            totals[c] = (byte) total;
+            counts[total] += 1;
+        }
+        int[][] layers = new int[counts.length][];
+        for (int s = 0; s < counts.length; s += 1) {
+            layers[s] = new int[counts[s]];
+            counts[s] = 0;
+        }
+        for (int c = 0; c < configs; c += 1) {
+            layers[totals[c]][counts[totals[c]]++] = 2 * c;
+        }
+        return layers;
+    }
+
+    /** Solve position number INDEX of TABLEBASE and the same position
+     *  with the other player to move, recording them in TABLE. */
+    private static void solve(Tablebase tablebase, MappedByteBuffer table,
+                              int index) {
+        Scratch scratch = SCRATCH.get();
+        if (scratch.playout == null
+            || scratch.playout.size() != tablebase.size()) {
+            int area = tablebase.size() * tablebase.size();
+            scratch.playout = new Playout(tablebase.size());
+            scratch.owners = new byte[area];
+            scratch.spots = new int[area];
+        }
+        tablebase.decode(index, scratch.owners, scratch.spots);
+        int red = 0, blue = 0;
+        for (byte owner : scratch.owners) {
+            red += owner == 1 ? 1 : 0;
+            blue += owner == 2 ? 1 : 0;
+        }
+        int area = scratch.owners.length;
+        for (int moves = 0; moves < 2; moves += 1) {
+            int entry;
+            if (red == area || blue == area) {
+                entry = Tablebase.entry((red == area) == (moves == 0), 0);
+            } else {
+                int[] result = tablebase.solve(scratch.owners, scratch.spots,
+                                               moves, scratch.playout);
+                if (result == null) {
+                    throw new IllegalStateException("unsolved successor of "
+                                                    + (index + moves));
+                }
+                entry = result[0];
+            }
+            table.put(Tablebase.HEADER + index + moves, (byte) entry);
+        }
+    }
+
+    /** Per-thread working storage for solve. */
+    private static class Scratch {
+        /** Board for trial moves. */
+        private Playout playout;
+        /** Colors of the squares, by ordinal. */
+        private byte[] owners;
+        /** Spots on the squares. */
+        private int[] spots;
+    }
+
+    /** Each thread's working storage. */
+    private static final ThreadLocal<Scratch> SCRATCH =
+        ThreadLocal.withInitial(Scratch::new);
+}
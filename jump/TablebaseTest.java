@@ -0,0 +1,161 @@
+package jump61;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import static java.nio.file.StandardOpenOption.*;
+import static jump61.Color.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of Tablebase and TablebaseBuilder.
+ *  @author Brian Su
+ */
+public class TablebaseTest {
+
+    /** Returns the 2x2 tablebase, built in a temporary file. */
+    private Tablebase build2x2() throws IOException, InterruptedException,
+                                        ExecutionException {
+        Path file = Files.createTempFile("jump61", ".tb");
+        file.toFile().deleteOnExit();
+        TablebaseBuilder.build(2, file, 2, false);
+        return Tablebase.open(file);
+    }
+
+    /** Returns the tablebase entry for the player to move on BOARD,
+     *  computed by exhaustive search. */
+    private int solve(MutableBoard board) {
+        Color winner = board.getWinner();
+        if (winner != null) {
+            return Tablebase.entry(winner == board.whoseMove(), 0);
+        }
+        int best = -1;
+        for (int sq = 0; sq < board.size() * board.size(); sq += 1) {
+            if (board.isLegal(board.whoseMove(), sq)) {
+                board.addSpot(board.whoseMove(), sq);
+                int reply = solve(board);
+                board.undo();
+                int value = Tablebase.entry(!Tablebase.wins(reply),
+                                            Tablebase.distance(reply) + 1);
+                if (best < 0 || better(value, best)) {
+                    best = value;
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Returns true iff entry A is better than B for the player to
+     *  move. */
+    private boolean better(int a, int b) {
+        if (Tablebase.wins(a) != Tablebase.wins(b)) {
+            return Tablebase.wins(a);
+        }
+        int d = Tablebase.distance(a) - Tablebase.distance(b);
+        return Tablebase.wins(a) ? d < 0 : d > 0;
+    }
+
+    @Test
+    public void testNumbering() {
+        Tablebase t = new Tablebase(3);
+        assertEquals(2 * 625 * 2401 * 9, t.positions());
+        assertEquals(24, t.maxSpots());
+        byte[] owners = new byte[9];
+        int[] spots = new int[9];
+        Random random = new Random(61);
+        for (int k = 0; k < 1000; k += 1) {
+            int index = random.nextInt(t.positions());
+            int moves = t.decode(index, owners, spots);
+            assertEquals(index, t.index(owners, spots, moves + 2));
+        }
+        owners[0] = 0;
+        spots[0] = 1;
+        assertEquals(-1, t.index(owners, spots, 0));
+    }
+
+    @Test
+    public void testMatchesExhaustiveSearch() throws Exception {
+        Tablebase t = build2x2();
+        Random random = new Random(61);
+        for (int g = 0; g < 50; g += 1) {
+            MutableBoard board = new MutableBoard(2);
+            while (board.getWinner() == null) {
+                int[] best = t.bestMove(board);
+                int expected = solve(board);
+                assertEquals(Tablebase.wins(expected), best[0] > 0);
+                assertEquals(Tablebase.distance(expected),
+                             Search.WIN - Math.abs(best[0]));
+                assertTrue(board.isLegal(board.whoseMove(), best[1]));
+                int sq;
+                do {
+                    sq = random.nextInt(4);
+                } while (!board.isLegal(board.whoseMove(), sq));
+                board.addSpot(board.whoseMove(), sq);
+            }
+            assertNull(t.bestMove(board));
+        }
+        assertNull(t.bestMove(new MutableBoard(3)));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        Path file = Files.createTempFile("jump61", ".tb");
+        file.toFile().deleteOnExit();
+        TablebaseBuilder.build(2, file, 1, false);
+        byte[] complete = Files.readAllBytes(file);
+        Tablebase numbering = new Tablebase(2);
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+            MappedByteBuffer table =
+                channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                            channel.size());
+            byte[] owners = new byte[4];
+            int[] spots = new int[4];
+            for (int p = 0; p < numbering.positions(); p += 1) {
+                numbering.decode(p, owners, spots);
+                if (spots[0] + spots[1] + spots[2] + spots[3] <= 4) {
+                    table.put(Tablebase.HEADER + p, (byte) 0);
+                }
+            }
+            table.putInt(8, 4);
+            table.force();
+        }
+        try {
+            Tablebase.open(file);
+            fail("opened an incomplete tablebase");
+        } catch (IllegalArgumentException excp) {
+            assertTrue(excp.getMessage().contains("solved"));
+        }
+        TablebaseBuilder.build(2, file, 2, false);
+        assertTrue(Arrays.equals(complete, Files.readAllBytes(file)));
+    }
+
+    @Test
+    public void testPlaysPerfectly() throws Exception {
+        Tablebase t = build2x2();
+        MutableBoard board = new MutableBoard(2);
+        boolean firstWins = t.bestMove(board)[0] > 0;
+        Color expected = firstWins ? RED : BLUE;
+        Random random = new Random(61);
+        for (int g = 0; g < 20; g += 1) {
+            board.clear(2);
+            while (board.getWinner() == null) {
+                int sq;
+                if (board.whoseMove() == expected) {
+                    sq = t.bestMove(board)[1];
+                } else {
+                    do {
+                        sq = random.nextInt(4);
+                    } while (!board.isLegal(board.whoseMove(), sq));
+                }
+                board.addSpot(board.whoseMove(), sq);
+            }
+            assertEquals(expected, board.getWinner());
+        }
+    }
+}
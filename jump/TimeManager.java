@@ -0,0 +1,84 @@
+package jump61;
+
+import static jump61.Color.*;
+
+/** Decides how long an AI under a Clock may search for a move.  It
+ *  spreads the time left over the moves it expects still to make, adds
+ *  most of the increment, spends up to twice as much in critical
+ *  positions, and never allows more than a fraction of the time left
+ *  less a reserve, so that it does not run out of time.
+ *  @author Brian Su
+ */
+class TimeManager {
+
+    /** Returns the milliseconds that PLAYER, to move on BOARD with
+     *  REMAININGMILLIS milliseconds left and INCREMENTMILLIS milliseconds
+     *  gained per move, may spend searching. */
+    static long allocate(Board board, Color player, long remainingMillis,
+                         long incrementMillis) {
+        long usable = remainingMillis - Defaults.CLOCK_RESERVE_MILLIS;
+        if (usable <= 0) {
+            return 0;
+        }
+        double share = (double) usable / movesToGo(board)
+            + INCREMENT_SPENT * incrementMillis;
+        double budget = share * (1 + criticality(board));
+        return (long) Math.min(budget, usable * MAX_FRACTION);
+    }
+
+    /** Returns the number of moves the player to move on BOARD is
+     *  expected still to make.  Games between reasonable players last
+     *  about GAME_LENGTH moves per square, and every move adds one spot,
+     *  so the spots on the board measure the progress of the game even
+     *  after set commands. */
+    static int movesToGo(Board board) {
+        int area = board.size() * board.size();
+        int spots = 0;
+        for (int sq = 0; sq < area; sq += 1) {
+            spots += board.spots(sq);
+        }
+        int left = (int) (GAME_LENGTH * area) - spots;
+        return Math.max(MIN_MOVES_TO_GO, left / 2);
+    }
+
+    /** Returns a measure between 0 and 1 of how critical the position on
+     *  BOARD is: the number of full squares (those about to
+     *  jump) next to a square of the other color, relative to the length
+     *  of a side.  Such squares start the cascades that capture groups of
+     *  squares, so a mistake there costs most. */
+    static double criticality(Board board) {
+        int n = board.size();
+        int contacts = 0;
+        for (int sq = 0; sq < n * n; sq += 1) {
+            Color color = board.color(sq);
+            if (color == WHITE || board.spots(sq) < board.neighbors(sq)) {
+                continue;
+            }
+            int r = board.row(sq), c = board.col(sq);
+            if (opposed(board, r + 1, c, color)
+                || opposed(board, r - 1, c, color)
+                || opposed(board, r, c + 1, color)
+                || opposed(board, r, c - 1, color)) {
+                contacts += 1;
+            }
+        }
+        return Math.min(1.0, (double) contacts / n);
+    }
+
+    /** Returns true iff row R, column C of BOARD exists and has the
+     *  opposite color to COLOR. */
+    private static boolean opposed(Board board, int r, int c, Color color) {
+        return board.exists(r, c)
+            && board.color(r, c) == color.opposite();
+    }
+
+    /** Moves per square in a typical game (measured at 2.5 to 2.9 on
+     *  boards from 4x4 to 16x16). */
+    private static final double GAME_LENGTH = 2.75;
+    /** Fewest moves assumed still to come. */
+    private static final int MIN_MOVES_TO_GO = 10;
+    /** Fraction of the increment spent on each move. */
+    private static final double INCREMENT_SPENT = 0.75;
+    /** Largest fraction of the usable time spent on one move. */
+    private static final double MAX_FRACTION = 0.25;
+}
@@ -0,0 +1,224 @@
+package jump61;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/** Analysis of every move of recorded games.  Each position of a game
+ *  is searched by the AI at a fixed budget, once over all moves and once
+ *  over the move actually played, at the same depth; the difference is
+ *  the move's swing, and a move whose swing reaches a threshold is
+ *  flagged as a blunder.  Games are read lazily from Transcripts and
+ *  analyzed on a fork-join pool, the positions of each game in parallel
+ *  and at most a few games per thread at once, so memory stays bounded
+ *  however large the corpus.  Results are printed in the order of the
+ *  games as comma-separated lines
+ *
+ *      SOURCE,PLY,PLAYER,ROW,COL,BEST,PLAYED,SWING,BLUNDER
+ *
+ *  where BEST and PLAYED are values for the player to move (material,
+ *  or one more than the number of squares for a win), and BLUNDER is 1
+ *  or 0.  The totals and throughput go to the standard error.
+ *  Usage: java jump61.TranscriptAnalyzer [--depth D | --millis MS]
+ *         [--threads T] [--blunder N] PATH...
+ *  where each PATH is a transcript or a directory of "*.in" files.
+ *  @author Brian Su
+ */
+public class TranscriptAnalyzer {
+
+    /** Analyze the transcripts named in ARGS. */
+    public static void main(String[] args) throws IOException {
+        int depth = DEFAULT_DEPTH, threads =
+            Runtime.getRuntime().availableProcessors(),
+            blunder = DEFAULT_BLUNDER;
+        long millis = -1;
+        List<Path> paths = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                switch (args[i]) {
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    millis = -1;
+                    break;
+                case "--millis":
+                    millis = Long.parseLong(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--blunder":
+                    blunder = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    paths.add(Paths.get(args[i]));
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            paths.clear();
+        }
+        if (paths.isEmpty() || depth < 1 || threads < 1 || millis == 0) {
+            System.err.println("Usage: java jump61.TranscriptAnalyzer "
+                               + "[--depth D | --millis MS] [--threads T] "
+                               + "[--blunder N] PATH...");
+            System.exit(1);
+        }
+        TranscriptAnalyzer analyzer =
+            new TranscriptAnalyzer(depth, millis, blunder);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try (Transcripts games = new Transcripts(paths)) {
+            analyzer.run(games, pool, System.out);
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) * 1e-9;
+        System.out.flush();
+        System.err.printf("%d games, %d positions, %d blunders in %.1f s: "
+                          + "%.0f positions/s on %d threads%n",
+                          analyzer.games(), analyzer.positions(),
+                          analyzer.blunders(), seconds,
+                          analyzer.positions() / seconds, threads);
+    }
+
+    /** An analyzer searching each position to DEPTH plies or, if MILLIS
+     *  is positive, as deep as it can in MILLIS milliseconds, and flagging
+     *  moves with a swing of at least BLUNDER. */
+    TranscriptAnalyzer(int depth, long millis, int blunder) {
+        _depth = millis > 0 ? MAX_DEPTH : depth;
+        _millis = millis;
+        _blunder = blunder;
+    }
+
+    /** Analyze the games from GAMES on POOL, printing the results on OUT
+     *  in the order of the games. */
+    void run(Iterator<Transcripts.Record> games, ForkJoinPool pool,
+             PrintStream out) {
+        ArrayDeque<ForkJoinTask<List<String>>> pending = new ArrayDeque<>();
+        int window = GAMES_PER_THREAD * pool.getParallelism();
+        while (games.hasNext()) {
+            Transcripts.Record game = games.next();
+            if (pending.size() >= window) {
+                print(pending.remove().join(), out);
+            }
+            pending.add(pool.submit(() -> analyze(game)));
+        }
+        while (!pending.isEmpty()) {
+            print(pending.remove().join(), out);
+        }
+    }
+
+    /** Returns the result lines for the moves of GAME, analyzing its
+     *  positions in parallel on the current pool. */
+    List<String> analyze(Transcripts.Record game) {
+        int length = game.length();
+        if (length == 0) {
+            return Collections.emptyList();
+        }
+        MutableBoard[] positions = new MutableBoard[length];
+        MutableBoard board = game.start();
+        for (int k = 0; k < length; k += 1) {
+            positions[k] = board.fork();
+            board.addSpot(board.whoseMove(), game.move(k));
+        }
+        List<String> result = IntStream.range(0, length).parallel()
+            .mapToObj(k -> line(game, k, positions[k]))
+            .collect(Collectors.toList());
+        synchronized (this) {
+            _games += 1;
+            _positions += length;
+            for (String line : result) {
+                if (line.endsWith(",1")) {
+                    _blunders += 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns the number of games analyzed. */
+    synchronized long games() {
+        return _games;
+    }
+
+    /** Returns the number of positions analyzed. */
+    synchronized long positions() {
+        return _positions;
+    }
+
+    /** Returns the number of moves flagged as blunders. */
+    synchronized long blunders() {
+        return _blunders;
+    }
+
+    /** Returns the result line for move K of GAME, played in POSITION,
+     *  which is mine to change. */
+    private String line(Transcripts.Record game, int k,
+                        MutableBoard position) {
+        Color who = position.whoseMove();
+        int move = game.move(k);
+        SearchScheduler.Job<?> job =
+            _millis > 0 ? SearchScheduler.Job.deadline(_millis) : null;
+        Search search = new Search(position.fork(), job);
+        int[] best = search.bestMove(who, _depth);
+        int depth = search.completedDepth();
+        if (depth == 0) {
+            depth = 1;
+            best = new Search(position.fork(), null).bestMove(who, 1);
+        }
+        Search played = new Search(position, null);
+        played.setRootMoves(Collections.singletonList(move));
+        int area = position.size() * position.size();
+        int bestValue = clamp(best[0], area),
+            playedValue = clamp(played.bestMove(who, depth)[0], area),
+            swing = bestValue - playedValue;
+        return String.format("%s,%d,%s,%d,%d,%d,%d,%d,%d", game.source(),
+                             k + 1, who, position.row(move),
+                             position.col(move), bestValue, playedValue,
+                             swing, swing >= _blunder ? 1 : 0);
+    }
+
+    /** Returns search value VALUE on a board of AREA squares with wins
+     *  and losses as plus or minus AREA + 1. */
+    private static int clamp(int value, int area) {
+        return Math.max(-area - 1, Math.min(area + 1, value));
+    }
+
+    /** Print LINES on OUT. */
+    private static void print(List<String> lines, PrintStream out) {
+        for (String line : lines) {
+            out.println(line);
+        }
+    }
+
+    /** Depth searched by default. */
+    static final int DEFAULT_DEPTH = 3;
+    /** Swing that makes a move a blunder by default. */
+    static final int DEFAULT_BLUNDER = 3;
+    /** Depth limit of searches with a time budget. */
+    static final int MAX_DEPTH = 64;
+    /** Games in flight per thread of the pool. */
+    static final int GAMES_PER_THREAD = 4;
+
+    /** Depth to search. */
+    private final int _depth;
+    /** Time budget per position, or nonpositive for none. */
+    private final long _millis;
+    /** Least swing flagged. */
+    private final int _blunder;
+    /** Games analyzed. */
+    private long _games;
+    /** Positions analyzed. */
+    private long _positions;
+    /** Blunders found. */
+    private long _blunders;
+}
@@ -0,0 +1,135 @@
+package jump61;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of Transcripts and TranscriptAnalyzer.
+ *  @author Brian Su
+ */
+public class TranscriptAnalyzerTest {
+
+    /** Returns a new file in directory DIR named NAME holding LINES. */
+    private Path write(Path dir, String name, String... lines)
+        throws IOException {
+        return Files.write(dir.resolve(name), Arrays.asList(lines),
+                           StandardCharsets.UTF_8);
+    }
+
+    /** Returns the games read from PATHS. */
+    private List<Transcripts.Record> read(Path... paths) throws IOException {
+        List<Transcripts.Record> result = new ArrayList<>();
+        try (Transcripts games = new Transcripts(Arrays.asList(paths))) {
+            games.forEachRemaining(result::add);
+        }
+        return result;
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        Path dir = Files.createTempDirectory("transcripts");
+        write(dir, "a.in", "# header", "java -ea jump61.Main", "===#1===",
+              "manual red", "1 1", "2 2", "1 1", "undo", "3 3", "quit",
+              "4 4", "===#2===", "size 4", "2 3", "9 9", "3 2",
+              "set 1 1 2 b", "1 2");
+        write(dir, "b.in", "1 1", "move 4", "2 2");
+        write(dir, "ignored.txt", "1 1");
+        List<Transcripts.Record> games = read(dir);
+        assertEquals(5, games.size());
+        Transcripts.Record first = games.get(0);
+        assertTrue(first.source().endsWith("a.in#1"));
+        assertEquals(Defaults.BOARD_SIZE, first.size());
+        assertEquals(3, first.length());
+        MutableBoard board = first.start();
+        assertEquals(0, board.numOfColor(Color.RED));
+        assertEquals(board.sqNum(3, 3), first.move(2));
+        Transcripts.Record second = games.get(1);
+        assertEquals(4, second.size());
+        assertEquals(2, second.length());
+        Transcripts.Record third = games.get(2);
+        board = third.start();
+        assertEquals(Color.BLUE, board.color(1, 1));
+        assertEquals(Color.RED, board.color(2, 3));
+        assertEquals(1, third.length());
+        assertEquals(board.sqNum(1, 2), third.move(0));
+        assertEquals(1, games.get(3).length());
+        board = games.get(4).start();
+        assertTrue(games.get(4).source().endsWith("b.in#2"));
+        assertEquals(5, board.numMoves());
+        assertEquals(Color.RED, board.color(1, 1));
+    }
+
+    @Test
+    public void testFindsBlunder() throws IOException {
+        Path dir = Files.createTempDirectory("transcripts");
+        Path file = write(dir, "blunder.in", "size 2", "set 1 1 2 r",
+                          "set 1 2 2 b", "set 2 1 1 b", "set 2 2 1 r",
+                          "2 2", "1 2");
+        String[] lines = analyze(2, file);
+        assertEquals(2, lines.length);
+        String[] fields = lines[0].split(",");
+        assertEquals("1", fields[1]);
+        assertEquals("red", fields[2]);
+        assertEquals("5", fields[5]);
+        assertEquals("-5", fields[6]);
+        assertEquals("10", fields[7]);
+        assertEquals("1", fields[8]);
+        fields = lines[1].split(",");
+        assertEquals("blue", fields[2]);
+        assertEquals("0", fields[7]);
+        assertEquals("0", fields[8]);
+    }
+
+    @Test
+    public void testSwings() throws IOException {
+        Path dir = Files.createTempDirectory("transcripts");
+        List<String> commands = new ArrayList<>();
+        commands.add("size 4");
+        MutableBoard board = new MutableBoard(4);
+        Random random = new Random(61);
+        while (board.getWinner() == null) {
+            int sq = random.nextInt(16);
+            if (board.isLegal(board.whoseMove(), sq)) {
+                board.addSpot(board.whoseMove(), sq);
+                commands.add(board.row(sq) + " " + board.col(sq));
+            }
+        }
+        Path file = write(dir, "random.in", commands.toArray(new String[0]));
+        String[] lines = analyze(2, file);
+        assertEquals(commands.size() - 1, lines.length);
+        for (String line : lines) {
+            String[] fields = line.split(",");
+            int best = Integer.parseInt(fields[5]),
+                played = Integer.parseInt(fields[6]);
+            assertTrue(line, best >= played);
+            assertEquals(best - played, Integer.parseInt(fields[7]));
+        }
+    }
+
+    /** Returns the result lines of analyzing the games in FILE to DEPTH
+     *  plies on two threads. */
+    private String[] analyze(int depth, Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TranscriptAnalyzer analyzer = new TranscriptAnalyzer(depth, -1, 3);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (Transcripts games = new Transcripts(Arrays.asList(file));
+             PrintStream out = new PrintStream(bytes, true, "UTF-8")) {
+            analyzer.run(games, pool, out);
+        } finally {
+            pool.shutdown();
+        }
+        String text = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        return text.isEmpty() ? new String[0] : text.split("\n");
+    }
+}
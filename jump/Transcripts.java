@@ -0,0 +1,306 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/** The games recorded in transcripts of game commands, read lazily: one
+ *  file and one game at a time, so that a corpus of any size is read in
+ *  bounded memory.  A transcript is a sequence of commands, possibly
+ *  divided, as in tests/correct/*.in, into runs of the program by lines
+ *  such as "===#1===", each starting afresh; lines that are not
+ *  commands, such as headers, are ignored.  Only the moves given as
+ *  "R C" commands are recorded, together with the position they start
+ *  from; "size" and "clear" begin a new game, "set" and "move" change
+ *  the starting position (ending the game so far if it has moves),
+ *  "undo" takes back the last move, illegal moves and moves after the
+ *  game is won are dropped as Game would reject them, and all other
+ *  commands are ignored.
+ *  @author Brian Su
+ */
+class Transcripts implements Iterator<Transcripts.Record>, AutoCloseable {
+
+    /** One game: the moves played from a starting position. */
+    static final class Record {
+
+        /** A game from SOURCE on an N x N board starting from CELLS (as
+         *  for MutableBoard.encode) after MOVESBEFORE moves, continued by
+         *  MOVES. */
+        Record(String source, int n, byte[] cells, int movesBefore,
+               int[] moves) {
+            _source = source;
+            _n = n;
+            _cells = cells;
+            _movesBefore = movesBefore;
+            _moves = moves;
+        }
+
+        /** Returns where I came from: a file name and game number. */
+        String source() {
+            return _source;
+        }
+
+        /** Returns the size of my board. */
+        int size() {
+            return _n;
+        }
+
+        /** Returns the number of moves I contain. */
+        int length() {
+            return _moves.length;
+        }
+
+        /** Returns move K, a square number. */
+        int move(int k) {
+            return _moves[k];
+        }
+
+        /** Returns a new board holding my starting position. */
+        MutableBoard start() {
+            MutableBoard board = new MutableBoard(_n);
+            board.decode(_cells, _movesBefore);
+            return board;
+        }
+
+        /** Origin. */
+        private final String _source;
+        /** Board size. */
+        private final int _n;
+        /** Starting position. */
+        private final byte[] _cells;
+        /** Move number of the starting position. */
+        private final int _movesBefore;
+        /** Moves played. */
+        private final int[] _moves;
+    }
+
+    /** The games in the transcripts under PATHS, each a file or a
+     *  directory searched recursively for files ending in ".in". */
+    Transcripts(List<Path> paths) {
+        _paths = new ArrayDeque<>(paths);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (_ready.isEmpty()) {
+            try {
+                if (!readLine()) {
+                    return false;
+                }
+            } catch (IOException excp) {
+                throw new UncheckedIOException(excp);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Record next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return _ready.remove();
+    }
+
+    /** Returns the number of files opened so far. */
+    int files() {
+        return _files;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_reader != null) {
+            _reader.close();
+            _reader = null;
+        }
+        if (_walk != null) {
+            _walk.close();
+            _walk = null;
+        }
+    }
+
+    /** Read and interpret one more line, opening the next file as needed.
+     *  Returns false if there are no more. */
+    private boolean readLine() throws IOException {
+        while (_reader == null) {
+            Path next = nextFile();
+            if (next == null) {
+                return false;
+            }
+            _reader = Files.newBufferedReader(next, StandardCharsets.UTF_8);
+            _file = next.toString();
+            _files += 1;
+            _games = 0;
+            _running = true;
+            startGame(Defaults.BOARD_SIZE);
+        }
+        String line = _reader.readLine();
+        if (line == null) {
+            endGame();
+            _reader.close();
+            _reader = null;
+            return true;
+        }
+        line = line.trim();
+        if (line.matches("===#\\d+===")) {
+            endGame();
+            startGame(Defaults.BOARD_SIZE);
+            _running = true;
+        } else if (_running && !line.isEmpty()) {
+            command(line.split("\\s+"));
+        }
+        return true;
+    }
+
+    /** Returns the next transcript file, or null if there are no more. */
+    private Path nextFile() throws IOException {
+        while (true) {
+            if (_walk != null) {
+                if (_walking.hasNext()) {
+                    return _walking.next();
+                }
+                _walk.close();
+                _walk = null;
+            }
+            if (_paths.isEmpty()) {
+                return null;
+            }
+            Path path = _paths.remove();
+            if (!Files.isDirectory(path)) {
+                return path;
+            }
+            _walk = Files.walk(path)
+                .filter(p -> Files.isRegularFile(p)
+                        && p.toString().endsWith(".in"))
+                .sorted();
+            _walking = _walk.iterator();
+        }
+    }
+
+    /** Interpret the command whose words are WORDS. */
+    private void command(String[] words) {
+        try {
+            switch (words[0]) {
+            case "size":
+                endGame();
+                startGame(Integer.parseInt(words[1]));
+                break;
+            case "clear":
+                endGame();
+                startGame(_board.size());
+                break;
+            case "set":
+                int r = Integer.parseInt(words[1]),
+                    c = Integer.parseInt(words[2]),
+                    spots = Integer.parseInt(words[3]);
+                if (_board.exists(r, c) && spots >= 0
+                    && spots <= _board.neighbors(r, c)) {
+                    endGame();
+                    _board.set(r, c, spots, Color.parseColor(words[4]));
+                }
+                break;
+            case "move":
+                int moves = Integer.parseInt(words[1]);
+                if (moves >= 0) {
+                    endGame();
+                    _board.setMoves(moves + 1);
+                }
+                break;
+            case "quit":
+                endGame();
+                _running = false;
+                break;
+            case "undo":
+                if (!_moves.isEmpty()) {
+                    _board.undo();
+                    _moves.remove(_moves.size() - 1);
+                }
+                break;
+            default:
+                if (words.length == 2) {
+                    move(Integer.parseInt(words[0]),
+                         Integer.parseInt(words[1]));
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException
+                 | GameException excp) {
+            /* Not a valid command; Game would reject it too. */
+        }
+    }
+
+    /** Record a move at row R and column C if it is legal. */
+    private void move(int r, int c) {
+        if (_board.exists(r, c) && _board.getWinner() == null
+            && _board.isLegal(_board.whoseMove(), r, c)) {
+            if (_moves.isEmpty()) {
+                _cells = _board.encode();
+                _movesBefore = _board.numMoves();
+            }
+            _board.addSpot(_board.whoseMove(), r, c);
+            _moves.add(_board.sqNum(r, c));
+        }
+    }
+
+    /** Start recording a game on an empty N x N board. */
+    private void startGame(int n) {
+        if (n < 2 || n > MAX_SIZE) {
+            n = Defaults.BOARD_SIZE;
+        }
+        _board = new MutableBoard(n);
+        _moves.clear();
+    }
+
+    /** Queue the game so far if it has any moves, so that the next
+     *  starts from the current position. */
+    private void endGame() {
+        if (!_moves.isEmpty()) {
+            int[] moves = new int[_moves.size()];
+            for (int k = 0; k < moves.length; k += 1) {
+                moves[k] = _moves.get(k);
+            }
+            _games += 1;
+            _ready.add(new Record(_file + "#" + _games, _board.size(),
+                                  _cells, _movesBefore, moves));
+            _moves.clear();
+        }
+    }
+
+    /** Largest board size accepted. */
+    static final int MAX_SIZE = 64;
+
+    /** Files and directories not yet opened. */
+    private final ArrayDeque<Path> _paths;
+    /** Files of the directory being walked, or null. */
+    private Stream<Path> _walk;
+    /** Iterator over _walk. */
+    private Iterator<Path> _walking;
+    /** Transcript being read, or null. */
+    private BufferedReader _reader;
+    /** Name of the transcript being read. */
+    private String _file;
+    /** Number of files opened. */
+    private int _files;
+    /** Number of games read from the current file. */
+    private int _games;
+    /** True unless the current run of commands has quit. */
+    private boolean _running;
+    /** Position reached by the current game. */
+    private MutableBoard _board;
+    /** Starting position of the current game, once it has a move. */
+    private byte[] _cells;
+    /** Move number of the current game's starting position. */
+    private int _movesBefore;
+    /** Moves of the current game. */
+    private final ArrayList<Integer> _moves = new ArrayList<>();
+    /** Games read but not yet returned. */
+    private final ArrayDeque<Record> _ready = new ArrayDeque<>();
+}
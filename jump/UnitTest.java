@@ -12,6 +12,21 @@ public class UnitTest {
         textui.runClasses(jump61.BoardTest.class);
         textui.runClasses(jump61.MutableBoardTest.class);
         textui.runClasses(jump61.StackTest.class);
+        textui.runClasses(jump61.SearchSchedulerTest.class);
+        textui.runClasses(jump61.AnalysisTest.class);
+        textui.runClasses(jump61.PlayoutTest.class);
+        textui.runClasses(jump61.HistoryTest.class);
+        textui.runClasses(jump61.SearchTest.class);
+        textui.runClasses(jump61.BatchSimulatorTest.class);
+        textui.runClasses(jump61.BoardFuzzerTest.class);
+        textui.runClasses(jump61.MetricsTest.class);
+        textui.runClasses(jump61.TablebaseTest.class);
+        textui.runClasses(jump61.ClockTest.class);
+        textui.runClasses(jump61.SharedSearchCacheTest.class);
+        textui.runClasses(jump61.WaveResolverTest.class);
+        textui.runClasses(jump61.DistributedSearchTest.class);
+        textui.runClasses(jump61.TranscriptAnalyzerTest.class);
+        textui.runClasses(jump61.EvaluatorTest.class);
         textui.runClasses(jump61.BoardTest.class);
     }
 
@@ -0,0 +1,162 @@
+package jump61;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** The jump waves of BatchSimulator, written with the incubating Vector
+ *  API, one vector lane per board, and the row operations of
+ *  WaveResolver, one lane per square.  This class may be loaded only when
+ *  BatchSimulator.VECTOR_AVAILABLE; it needs
+ *  "--add-modules jdk.incubator.vector" at compile and run time.
+ *  @author Brian Su
+ */
+final class VectorWaves {
+
+    /** Not instantiable. */
+    private VectorWaves() {
+    }
+
+    /** Returns the number of boards handled by one vector. */
+    static int length() {
+        return SPECIES.length();
+    }
+
+    /** Perform one wave on LANES boards (a multiple of length()) of AREA
+     *  squares each, whose Ith square has CAP[I] neighbors, listed in
+     *  NBRS[4 * I] to NBRS[4 * I + 3] (AREA for none).  SPOTS and OWNER
+     *  hold the spots and color ordinal of square I of board L at I *
+     *  LANES + L, and FIRE and NEXT are indexed the same way, with an
+     *  extra row of zeros for square AREA.  On each board L
+     *  with ACTIVE[L] != 0, every square marked 1 in FIRE jumps at once,
+     *  and every square that jumps or receives a spot is given to color
+     *  PLAYER[L]; CONVERTED[L] is increased by the number of squares that
+     *  changed color and FROMOPPONENT[L] by how many of those belonged to
+     *  the other player.  Afterwards NEXT marks the squares that must jump
+     *  in the following wave.  Returns true iff there are any. */
+    static boolean wave(int lanes, int area, int[] cap, int[] nbrs,
+                        int[] spots, int[] owner, int[] fire, int[] next,
+                        int[] player, int[] active, int[] converted,
+                        int[] fromOpponent) {
+        int step = SPECIES.length();
+        IntVector one = IntVector.broadcast(SPECIES, 1);
+        IntVector zero = IntVector.zero(SPECIES);
+        boolean fired = false;
+        for (int sq = 0; sq < area; sq += 1) {
+            int base = sq * lanes, right = nbrs[4 * sq] * lanes,
+                left = nbrs[4 * sq + 1] * lanes,
+                down = nbrs[4 * sq + 2] * lanes,
+                up = nbrs[4 * sq + 3] * lanes;
+            for (int lane = 0; lane < lanes; lane += step) {
+                int i = base + lane;
+                IntVector self = IntVector.fromArray(SPECIES, fire, i);
+                IntVector add =
+                    IntVector.fromArray(SPECIES, fire, right + lane)
+                    .add(IntVector.fromArray(SPECIES, fire, left + lane))
+                    .add(IntVector.fromArray(SPECIES, fire, down + lane))
+                    .add(IntVector.fromArray(SPECIES, fire, up + lane));
+                VectorMask<Integer> touched = add.add(self).compare(NE, 0)
+                    .and(IntVector.fromArray(SPECIES, active, lane)
+                         .compare(NE, 0));
+                if (!touched.anyTrue()) {
+                    zero.intoArray(next, i);
+                    continue;
+                }
+                IntVector sp = IntVector.fromArray(SPECIES, spots, i)
+                    .add(add.sub(self.mul(cap[sq])), touched);
+                sp.intoArray(spots, i);
+                IntVector own = IntVector.fromArray(SPECIES, owner, i);
+                IntVector me = IntVector.fromArray(SPECIES, player, lane);
+                VectorMask<Integer> changed =
+                    touched.and(own.compare(NE, me));
+                if (changed.anyTrue()) {
+                    VectorMask<Integer> taken =
+                        changed.and(own.compare(NE, 0));
+                    IntVector.fromArray(SPECIES, converted, lane)
+                        .add(one, changed).intoArray(converted, lane);
+                    IntVector.fromArray(SPECIES, fromOpponent, lane)
+                        .add(one, taken).intoArray(fromOpponent, lane);
+                    own.blend(me, touched).intoArray(owner, i);
+                }
+                VectorMask<Integer> over =
+                    sp.compare(GT, cap[sq]).and(touched);
+                zero.blend(one, over).intoArray(next, i);
+                fired |= over.anyTrue();
+            }
+        }
+        return fired;
+    }
+
+    /** Set FIRE[I] to 1 if SPOTS[I] > CAP[I], and otherwise to 0, for
+     *  FROM <= I < TO, and return the number of 1s, for WaveResolver. */
+    static int fire(int[] spots, int[] cap, int[] fire, int from, int to) {
+        IntVector one = IntVector.broadcast(SPECIES, 1);
+        IntVector zero = IntVector.zero(SPECIES);
+        int count = 0, i = from;
+        for (int end = from + SPECIES.loopBound(to - from); i < end;
+             i += SPECIES.length()) {
+            VectorMask<Integer> over = IntVector.fromArray(SPECIES, spots, i)
+                .compare(GT, IntVector.fromArray(SPECIES, cap, i));
+            zero.blend(one, over).intoArray(fire, i);
+            count += over.trueCount();
+        }
+        for (; i < to; i += 1) {
+            fire[i] = spots[i] > cap[i] ? 1 : 0;
+            count += fire[i];
+        }
+        return count;
+    }
+
+    /** For FROM <= I < TO, add to SPOTS[I] the number of its neighbors I
+     *  +/- 1 and I +/- STRIDE marked 1 in FIRE, less CAP[I] if it is
+     *  marked itself, and give it to PLAYER if any of these are marked.
+     *  Returns the number of squares given to PLAYER that were not
+     *  already its, for WaveResolver. */
+    static int spread(int[] spots, int[] owner, int[] fire, int[] cap,
+                      int stride, int player, int from, int to) {
+        IntVector me = IntVector.broadcast(SPECIES, player);
+        int taken = 0, i = from;
+        for (int end = from + SPECIES.loopBound(to - from); i < end;
+             i += SPECIES.length()) {
+            IntVector self = IntVector.fromArray(SPECIES, fire, i);
+            IntVector add = IntVector.fromArray(SPECIES, fire, i + 1)
+                .add(IntVector.fromArray(SPECIES, fire, i - 1))
+                .add(IntVector.fromArray(SPECIES, fire, i + stride))
+                .add(IntVector.fromArray(SPECIES, fire, i - stride));
+            VectorMask<Integer> touched = add.add(self).compare(NE, 0);
+            if (!touched.anyTrue()) {
+                continue;
+            }
+            IntVector.fromArray(SPECIES, spots, i)
+                .add(add.sub(self.mul(IntVector.fromArray(SPECIES, cap, i))))
+                .intoArray(spots, i);
+            IntVector own = IntVector.fromArray(SPECIES, owner, i);
+            VectorMask<Integer> changed = touched.and(own.compare(NE, me));
+            if (changed.anyTrue()) {
+                taken += changed.trueCount();
+                own.blend(me, changed).intoArray(owner, i);
+            }
+        }
+        for (; i < to; i += 1) {
+            int add = fire[i + 1] + fire[i - 1] + fire[i + stride]
+                + fire[i - stride];
+            if (add + fire[i] != 0) {
+                spots[i] += add - fire[i] * cap[i];
+                if (owner[i] != player) {
+                    owner[i] = player;
+                    taken += 1;
+                }
+            }
+        }
+        return taken;
+    }
+
+    /** Comparison operators. */
+    private static final VectorOperators.Comparison NE = VectorOperators.NE,
+        GT = VectorOperators.GT;
+
+    /** Vector shape used. */
+    private static final VectorSpecies<Integer> SPECIES =
+        IntVector.SPECIES_PREFERRED;
+}
@@ -0,0 +1,89 @@
+package jump61;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static jump61.Color.*;
+
+/** Benchmarks of WaveResolver.  For each board size, reports the number
+ *  of cascades per second, and the jumps per second within them, when
+ *  MutableBoard resolves a large cascade depth first, in scalar waves,
+ *  in waves with the Vector API (if available), and in vector waves
+ *  with stripes of rows on THREADS threads.  The cascade starts in one
+ *  corner of a board whose rows but the last two are full, and makes
+ *  every square of those rows jump without winning the game.
+ *  Usage: java --add-modules jdk.incubator.vector jump61.WaveBench
+ *         [MAXSIZE [THREADS]]
+ *  @author Brian Su
+ */
+public class WaveBench {
+
+    /** Run the benchmarks with the limits in ARGS. */
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            System.out.printf("%-5s %12s %10s %10s %10s %10s %14s%n",
+                              "size", "jumps", "dfs/s", "waves/s",
+                              "vector/s", "parallel/s", "best jumps/s");
+            for (int n = 16; n <= maxSize; n *= 2) {
+                double dfs = rate(n, null);
+                double scalar = rate(n, new WaveResolver(n, false, null));
+                double vector = rate(n, new WaveResolver(n, true, null));
+                double parallel = rate(n, new WaveResolver(n, true, pool));
+                double best = Math.max(Math.max(dfs, scalar),
+                                       Math.max(vector, parallel));
+                long jumps = cascadeJumps(n);
+                System.out.printf("%-5d %12d %10.1f %10.1f %10.1f %10.1f "
+                                  + "%14.3g%n", n, jumps, dfs, scalar,
+                                  vector, parallel, best * jumps);
+            }
+            if (!BatchSimulator.VECTOR_AVAILABLE) {
+                System.out.println("(jdk.incubator.vector is not loaded: "
+                                   + "vector columns are scalar)");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Returns an N x N board ready for the benchmark cascade, which
+     *  is started by a red spot in square 0. */
+    static MutableBoard primed(int n) {
+        MutableBoard board = new MutableBoard(n);
+        for (int sq = 0; sq < n * (n - 2); sq += 1) {
+            board.set(sq, board.neighbors(sq), RED);
+        }
+        board.set(n * n - 1, 1, BLUE);
+        return board;
+    }
+
+    /** Returns the number of jumps in the benchmark cascade on an N x N
+     *  board. */
+    static long cascadeJumps(int n) {
+        MutableBoard board = primed(n);
+        board.addSpot(RED, 0);
+        return board.jumps();
+    }
+
+    /** Returns the number of benchmark cascades per second on an N x N
+     *  board, finishing them with WAVES, or depth first if WAVES is
+     *  null. */
+    static double rate(int n, WaveResolver waves) {
+        long time = 0;
+        int cascades = 0;
+        do {
+            MutableBoard board = primed(n);
+            board.setWaveResolver(waves);
+            long start = System.nanoTime();
+            board.addSpot(RED, 0);
+            time += System.nanoTime() - start;
+            cascades += 1;
+        } while (time < MIN_NANOS);
+        return cascades * 1e9 / time;
+    }
+
+    /** Minimum time to spend timing one kind of cascade on one size. */
+    private static final long MIN_NANOS = 500_000_000L;
+}
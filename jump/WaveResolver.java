@@ -0,0 +1,320 @@
+package jump61;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/** Resolves a cascade of jumps on one large board in synchronous waves:
+ *  in each wave, every over-full square jumps at once.  The final
+ *  position of a cascade that does not win the game does not depend on
+ *  the order of its jumps, so this reaches the same position as
+ *  MutableBoard's depth-first order while working a row of squares at a
+ *  time over primitive arrays, with the Vector API when it is
+ *  available and, on a fork-join pool, with stripes of rows in
+ *  parallel.  A cascade that wins the game ends at a position that does
+ *  depend on the order; resolve reports it so that the caller can
+ *  replay it exactly.
+ *
+ *  The squares are stored with a border of empty squares that never
+ *  jump, so that every square has four neighbors in the arrays: square
+ *  (R, C) is at (R + 1) * (N + 2) + C + 1.  The first wave examines only
+ *  the rows changed with set and give since the last resolve, which
+ *  assumes that no other square was left over-full, and each later wave
+ *  only the rows between the first and last that jumped in the one
+ *  before, widened by one.  So a caller that keeps my contents equal to
+ *  its board's between cascades does work in proportion to the rows each
+ *  cascade reaches, not to the whole board.
+ *  @author Brian Su
+ */
+class WaveResolver {
+
+    /** Fewest squares in each stripe of a wave that is split among
+     *  threads. */
+    static final int PARALLEL_SQUARES = 1 << 14;
+
+    /** A resolver for N x N boards, using the Vector API iff VECTOR and
+     *  it is available, and the threads of POOL, unless it is null, for
+     *  waves spanning at least 2 * PARALLEL_SQUARES squares. */
+    WaveResolver(int n, boolean vector, ForkJoinPool pool) {
+        _n = n;
+        _stride = n + 2;
+        _vector = vector && BatchSimulator.VECTOR_AVAILABLE;
+        _pool = pool;
+        int size = _stride * (n + 2);
+        _spots = new int[size];
+        _owner = new int[size];
+        _fire = new int[size];
+        _cap = new int[size];
+        _rowFires = new int[n + 2];
+        for (int r = 0; r < n; r += 1) {
+            for (int c = 0; c < n; c += 1) {
+                _cap[index(r * n + c)] = 4 - (r == 0 || r == n - 1 ? 1 : 0)
+                    - (c == 0 || c == n - 1 ? 1 : 0);
+            }
+        }
+        _threshold = Math.max(MIN_THRESHOLD, n * n / 16);
+        _lo = n + 1;
+        _first = 1;
+    }
+
+    /** Returns the size of a side of my boards. */
+    int size() {
+        return _n;
+    }
+
+    /** Returns true iff waves are resolved with the Vector API. */
+    boolean vector() {
+        return _vector;
+    }
+
+    /** Returns the number of jumps after which MutableBoard hands a
+     *  cascade over to me. */
+    int threshold() {
+        return _threshold;
+    }
+
+    /** Set threshold() to JUMPS, at least 1. */
+    void setThreshold(int jumps) {
+        _threshold = Math.max(1, jumps);
+    }
+
+    /** Set square SQ (numbered as on a Board) to have SPOTS spots and the
+     *  color with ordinal OWNER. */
+    void set(int sq, int spots, int owner) {
+        int i = index(sq);
+        _spots[i] = spots;
+        _owner[i] = owner;
+        changed(sq);
+    }
+
+    /** Add a spot to square SQ and give it to the color with ordinal
+     *  OWNER, without jumping.  Returns true iff OWNER did not already
+     *  own it. */
+    boolean give(int sq, int owner) {
+        int i = index(sq);
+        _spots[i] += 1;
+        boolean taken = _owner[i] != owner;
+        _owner[i] = owner;
+        changed(sq);
+        return taken;
+    }
+
+    /** Returns the first row (from 0) that the last resolve may have
+     *  changed, or a row after lastRow() if none. */
+    int firstRow() {
+        return _first - 1;
+    }
+
+    /** Returns the last row (from 0) that the last resolve may have
+     *  changed. */
+    int lastRow() {
+        return _last - 1;
+    }
+
+    /** Returns the number of spots on square SQ. */
+    int spots(int sq) {
+        return _spots[index(sq)];
+    }
+
+    /** Returns the color ordinal of square SQ. */
+    int owner(int sq) {
+        return _owner[index(sq)];
+    }
+
+    /** Jump every over-full square, and every square that becomes
+     *  over-full as a result, giving each square that jumps or receives a
+     *  spot to the color with ordinal PLAYER, which owns all but OTHERS
+     *  squares.  Every over-full square must be in a row changed with set
+     *  or give since the last call.  Returns the number of jumps.  If
+     *  PLAYER comes to own every square, stops and returns -1; my
+     *  contents are then undefined until every square is set again.  The
+     *  result matches the depth-first order only if every over-full
+     *  square became so by spots given with give. */
+    long resolve(int player, int others) {
+        long jumps = 0;
+        int lo = _lo, hi = _hi;
+        _first = lo;
+        _last = hi;
+        _lo = _n + 1;
+        _hi = 0;
+        if (lo > hi) {
+            return 0;
+        }
+        while (others > 0) {
+            int fired = fire(lo, hi);
+            if (fired == 0) {
+                return jumps;
+            }
+            jumps += fired;
+            int first = lo, last = hi;
+            while (_rowFires[first] == 0) {
+                first += 1;
+            }
+            while (_rowFires[last] == 0) {
+                last -= 1;
+            }
+            lo = Math.max(1, first - 1);
+            hi = Math.min(_n, last + 1);
+            _first = Math.min(_first, lo);
+            _last = Math.max(_last, hi);
+            others -= spread(lo, hi, player);
+        }
+        Arrays.fill(_fire, 0);
+        return -1;
+    }
+
+    /** Mark in _fire the over-full squares in rows LO to HI of my arrays
+     *  (1 to N), recording the number in each row in _rowFires.  Returns
+     *  the total. */
+    private int fire(int lo, int hi) {
+        int stripes = stripes(lo, hi);
+        if (stripes > 1) {
+            _pool.submit(() -> IntStream.range(0, stripes).parallel()
+                         .forEach(k -> {
+                                 for (int r = stripe(lo, hi, stripes, k);
+                                      r < stripe(lo, hi, stripes, k + 1);
+                                      r += 1) {
+                                     _rowFires[r] = fireRow(r);
+                                 }
+                             }))
+                .join();
+        } else {
+            for (int r = lo; r <= hi; r += 1) {
+                _rowFires[r] = fireRow(r);
+            }
+        }
+        int total = 0;
+        for (int r = lo; r <= hi; r += 1) {
+            total += _rowFires[r];
+        }
+        return total;
+    }
+
+    /** Jump the squares marked in _fire, updating rows LO to HI of my
+     *  arrays, which include all that receive spots, and give the squares
+     *  affected to PLAYER.  Returns the number of squares that PLAYER did
+     *  not already own. */
+    private int spread(int lo, int hi, int player) {
+        int stripes = stripes(lo, hi);
+        if (stripes > 1) {
+            return _pool.submit(() -> IntStream.range(0, stripes).parallel()
+                                .map(k -> {
+                                        int taken = 0;
+                                        for (int r = stripe(lo, hi,
+                                                            stripes, k);
+                                             r < stripe(lo, hi, stripes,
+                                                        k + 1);
+                                             r += 1) {
+                                            taken += spreadRow(r, player);
+                                        }
+                                        return taken;
+                                    }).sum())
+                .join();
+        }
+        int taken = 0;
+        for (int r = lo; r <= hi; r += 1) {
+            taken += spreadRow(r, player);
+        }
+        return taken;
+    }
+
+    /** Returns the number of stripes of rows into which to divide a wave
+     *  over rows LO to HI: one per PARALLEL_SQUARES squares, up to the
+     *  parallelism of my pool, or 1 if I have none. */
+    private int stripes(int lo, int hi) {
+        if (_pool == null) {
+            return 1;
+        }
+        long squares = (long) (hi - lo + 1) * _n;
+        return (int) Math.min(_pool.getParallelism(),
+                              Math.max(1, squares / PARALLEL_SQUARES));
+    }
+
+    /** Returns the first row of stripe K of the STRIPES stripes of rows
+     *  LO to HI, or HI + 1 if K is STRIPES. */
+    private static int stripe(int lo, int hi, int stripes, int k) {
+        return lo + (int) ((long) (hi - lo + 1) * k / stripes);
+    }
+
+    /** Mark the over-full squares of row R of my arrays in _fire, and
+     *  return their number. */
+    private int fireRow(int r) {
+        int from = r * _stride + 1, to = from + _n;
+        if (_vector) {
+            return VectorWaves.fire(_spots, _cap, _fire, from, to);
+        }
+        int count = 0;
+        for (int i = from; i < to; i += 1) {
+            int f = _spots[i] > _cap[i] ? 1 : 0;
+            _fire[i] = f;
+            count += f;
+        }
+        return count;
+    }
+
+    /** Apply the jumps marked in _fire to row R of my arrays, giving the
+     *  squares affected to PLAYER.  Returns the number of those that
+     *  PLAYER did not already own. */
+    private int spreadRow(int r, int player) {
+        int from = r * _stride + 1, to = from + _n;
+        if (_vector) {
+            return VectorWaves.spread(_spots, _owner, _fire, _cap, _stride,
+                                      player, from, to);
+        }
+        int[] fire = _fire;
+        int stride = _stride, taken = 0;
+        for (int i = from; i < to; i += 1) {
+            int self = fire[i];
+            int add = fire[i + 1] + fire[i - 1] + fire[i + stride]
+                + fire[i - stride];
+            if (add + self != 0) {
+                _spots[i] += add - self * _cap[i];
+                if (_owner[i] != player) {
+                    _owner[i] = player;
+                    taken += 1;
+                }
+            }
+        }
+        return taken;
+    }
+
+    /** Note that square SQ has changed since the last resolve. */
+    private void changed(int sq) {
+        int r = sq / _n + 1;
+        _lo = Math.min(_lo, r);
+        _hi = Math.max(_hi, r);
+    }
+
+    /** Returns the index in my arrays of square SQ. */
+    private int index(int sq) {
+        return (sq / _n + 1) * _stride + sq % _n + 1;
+    }
+
+    /** Least default threshold. */
+    private static final int MIN_THRESHOLD = 256;
+
+    /** Size of a side. */
+    private final int _n;
+    /** Distance between vertically adjacent squares in my arrays. */
+    private final int _stride;
+    /** True iff waves use the Vector API. */
+    private final boolean _vector;
+    /** Pool for parallel waves, or null. */
+    private final ForkJoinPool _pool;
+    /** Spots and color ordinal of each square, in the bordered layout. */
+    private final int[] _spots, _owner;
+    /** 1 for squares jumping in the current wave, else 0. */
+    private final int[] _fire;
+    /** Number of neighbors of each square (0 on the border). */
+    private final int[] _cap;
+    /** Number of squares jumping in each row in the current wave. */
+    private final int[] _rowFires;
+    /** Jumps after which MutableBoard hands over a cascade. */
+    private int _threshold;
+    /** First and last rows of my arrays changed since the last resolve,
+     *  or _lo > _hi if none. */
+    private int _lo, _hi;
+    /** First and last rows of my arrays that the last resolve may have
+     *  changed. */
+    private int _first, _last;
+}
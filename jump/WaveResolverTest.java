@@ -0,0 +1,176 @@
+package jump61;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static jump61.Color.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of WaveResolver.
+ *  @author Brian Su
+ */
+public class WaveResolverTest {
+
+    /** A MutableBoard that hands every cascade to a WaveResolver after
+     *  a given number of jumps. */
+    private static class WaveBoard extends MutableBoard {
+        /** An N x N board resolving waves with the Vector API iff
+         *  VECTOR once a cascade reaches THRESHOLD jumps. */
+        WaveBoard(int N, boolean vector, int threshold) {
+            super(N);
+            _vector = vector;
+            _threshold = threshold;
+            attach();
+        }
+
+        /** A copy of BOARD. */
+        WaveBoard(WaveBoard board) {
+            super(board);
+            _vector = board._vector;
+            _threshold = board._threshold;
+            attach();
+        }
+
+        @Override
+        void clear(int N) {
+            super.clear(N);
+            attach();
+        }
+
+        @Override
+        MutableBoard fork() {
+            return new WaveBoard(this);
+        }
+
+        /** Give me a resolver of my size. */
+        private void attach() {
+            WaveResolver waves = new WaveResolver(size(), _vector, null);
+            waves.setThreshold(_threshold);
+            setWaveResolver(waves);
+        }
+
+        /** True iff my resolvers use the Vector API. */
+        private boolean _vector;
+        /** Jumps after which my resolvers take over. */
+        private int _threshold;
+    }
+
+    /** Returns an N x N board whose first N - 2 rows are full of red
+     *  spots, with one blue spot in the last row, so that a red spot in
+     *  square 0 makes every square of those rows jump without
+     *  winning. */
+    private MutableBoard primed(int n) {
+        MutableBoard board = new MutableBoard(n);
+        for (int sq = 0; sq < n * (n - 2); sq += 1) {
+            board.set(sq, board.neighbors(sq), RED);
+        }
+        board.set(n * n - 1, 1, BLUE);
+        return board;
+    }
+
+    /** Assert that A and B hold the same position. */
+    private void assertSame(MutableBoard a, MutableBoard b) {
+        for (int sq = 0; sq < a.size() * a.size(); sq += 1) {
+            assertEquals(a.spots(sq), b.spots(sq));
+            assertEquals(a.color(sq), b.color(sq));
+        }
+        assertEquals(a.numOfColor(RED), b.numOfColor(RED));
+    }
+
+    @Test
+    public void testFuzzerAgrees() {
+        for (boolean vector : new boolean[] { false, true }) {
+            for (int threshold = 2; threshold <= 4; threshold += 1) {
+                int t = threshold;
+                BoardFuzzer fuzzer =
+                    new BoardFuzzer(n -> new WaveBoard(n, vector, t), 7);
+                Random random = new Random(61);
+                for (int k = 0; k < 1000; k += 1) {
+                    int[][] ops = fuzzer.generate(random);
+                    String failure = fuzzer.check(ops);
+                    assertNull(failure == null ? null : failure + "\n"
+                               + BoardFuzzer.commands(fuzzer.minimize(ops)),
+                               failure);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLargeCascade() {
+        int n = 200;
+        MutableBoard expected = primed(n);
+        expected.addSpot(RED, 0);
+        assertNull(expected.getWinner());
+        assertTrue(expected.jumps() > n * (n - 2));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (boolean vector : new boolean[] { false, true }) {
+                MutableBoard board = primed(n);
+                WaveResolver waves = new WaveResolver(n, vector, pool);
+                board.setWaveResolver(waves);
+                board.addSpot(RED, 0);
+                assertNull(board.getWinner());
+                assertSame(expected, board);
+                assertEquals(expected.jumps(), board.jumps());
+                board.undo();
+                assertSame(primed(n), board);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSuccessiveCascades() {
+        int n = 100;
+        MutableBoard expected = new MutableBoard(n),
+            board = new MutableBoard(n);
+        for (MutableBoard b : new MutableBoard[] { expected, board }) {
+            for (int sq = 0; sq < n * 10; sq += 1) {
+                b.set(sq, b.neighbors(sq), RED);
+            }
+            for (int sq = n * 50; sq < n * 60; sq += 1) {
+                b.set(sq, b.neighbors(sq), BLUE);
+            }
+            b.set(n * n - 1, 1, BLUE);
+        }
+        WaveResolver waves = new WaveResolver(n, true, null);
+        waves.setThreshold(16);
+        board.setWaveResolver(waves);
+        expected.addSpot(RED, 0);
+        board.addSpot(RED, 0);
+        assertSame(expected, board);
+        expected.addSpot(BLUE, n * 50);
+        board.addSpot(BLUE, n * 50);
+        assertSame(expected, board);
+        board.undo();
+        expected.undo();
+        board.set(n * 55 + 7, 0, WHITE);
+        expected.set(n * 55 + 7, 0, WHITE);
+        expected.addSpot(BLUE, n * 59);
+        board.addSpot(BLUE, n * 59);
+        assertSame(expected, board);
+        assertEquals(expected.jumps(), board.jumps());
+    }
+
+    @Test
+    public void testWinningCascade() {
+        int n = 40;
+        MutableBoard expected = new MutableBoard(n);
+        MutableBoard board = new MutableBoard(n);
+        for (int sq = 0; sq < n * n; sq += 1) {
+            expected.set(sq, expected.neighbors(sq), RED);
+            board.set(sq, board.neighbors(sq), RED);
+        }
+        expected.set(n * n - 1, 1, BLUE);
+        board.set(n * n - 1, 1, BLUE);
+        board.setWaveResolver(new WaveResolver(n, true, null));
+        expected.addSpot(RED, 0);
+        board.addSpot(RED, 0);
+        assertEquals(RED, board.getWinner());
+        assertSame(expected, board);
+        assertEquals(expected.jumps(), board.jumps());
+    }
+}